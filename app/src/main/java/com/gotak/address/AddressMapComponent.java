@@ -3,17 +3,24 @@ package com.gotak.address;
 
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
 
 import com.atakmap.android.dropdown.DropDownMapComponent;
 import com.atakmap.app.preferences.ToolsPreferenceFragment;
+import com.gotak.address.net.HttpEngine;
+import com.gotak.address.net.HttpResponseCache;
 import com.gotak.address.plugin.R;
 import com.gotak.address.search.AddressSearchDropDown;
+import com.gotak.address.search.OfflineAddressDatabase;
 import com.gotak.address.search.OfflineDataDropDown;
 import com.gotak.address.search.SearchButtonWidget;
 import com.atakmap.android.ipc.AtakBroadcast.DocumentedIntentFilter;
 import com.atakmap.android.maps.MapView;
 import com.atakmap.coremap.log.Log;
 
+import java.io.File;
+
 /**
  * Address Plugin Map Component
  * Provides address search and self-location geocoding functionality.
@@ -39,6 +46,10 @@ public class AddressMapComponent extends DropDownMapComponent {
     
     // Marker selection geocoding widget (top right)
     private com.gotak.address.selfgeo.MarkerSelectionWidget markerSelectionWidget;
+    
+    // Disk cache of online responses, shared by every online client
+    private HttpResponseCache responseCache;
+    private SharedPreferences.OnSharedPreferenceChangeListener responseCachePrefListener;
 
     @Override
     public void onCreate(final Context context, Intent intent,
@@ -59,6 +70,8 @@ public class AddressMapComponent extends DropDownMapComponent {
                         context.getResources().getDrawable(R.drawable.ic_launcher, null),
                         new AddressPreferenceFragment(context)));
 
+        installResponseCache(view);
+
         // Initialize Address Search components
         try {
             Log.d(TAG, "Initializing address search components");
@@ -122,6 +135,14 @@ public class AddressMapComponent extends DropDownMapComponent {
         // Unregister preferences
         ToolsPreferenceFragment.unregister("addressPreferences");
         
+        if (responseCache != null) {
+            HttpEngine.getInstance().setResponseCache(null);
+            PreferenceManager.getDefaultSharedPreferences(view.getContext())
+                    .unregisterOnSharedPreferenceChangeListener(responseCachePrefListener);
+            responseCache = null;
+            responseCachePrefListener = null;
+        }
+        
         // Clean up address search components
         try {
             if (searchButtonWidget != null) {
@@ -148,10 +169,34 @@ public class AddressMapComponent extends DropDownMapComponent {
                 markerSelectionWidget.dispose();
                 markerSelectionWidget = null;
             }
+            com.gotak.address.selfgeo.OfflineReverseGeocoder.shutdown();
+            com.gotak.address.net.CotBroadcastQueue.shutdown();
+            com.gotak.address.search.OfflineAddressDatabase.shutdown();
+            // Last: the components above may still have queued work on the shared lanes
+            com.gotak.address.sched.PluginScheduler.shutdown();
         } catch (Exception e) {
             Log.e(TAG, "Error cleaning up address search components: " + e.getMessage(), e);
         }
         
         super.onDestroyImpl(context, view);
     }
+
+    /**
+     * Install the persistent response cache and keep its limits in sync with the preferences.
+     */
+    private void installResponseCache(MapView view) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(view.getContext());
+        File cacheDir = new File(OfflineAddressDatabase.ATAK_ADDRESS_DIR, "response_cache");
+        responseCache = HttpResponseCache.fromPreferences(cacheDir, prefs);
+        HttpEngine.getInstance().setResponseCache(responseCache);
+
+        // Held in a field: SharedPreferences only keeps weak references to listeners
+        responseCachePrefListener = (sharedPrefs, key) -> {
+            if (HttpResponseCache.PREF_CACHE_SIZE_MB.equals(key)
+                    || HttpResponseCache.PREF_CACHE_TTL_HOURS.equals(key)) {
+                responseCache.applyPreferences(sharedPrefs);
+            }
+        };
+        prefs.registerOnSharedPreferenceChangeListener(responseCachePrefListener);
+    }
 }
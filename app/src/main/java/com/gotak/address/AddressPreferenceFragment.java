@@ -9,7 +9,10 @@ import com.atakmap.android.gui.PanPreference;
 import com.atakmap.android.ipc.AtakBroadcast;
 import com.atakmap.android.maps.MapView;
 import com.atakmap.android.preference.PluginPreferenceFragment;
+import com.gotak.address.net.HttpEngine;
+import com.gotak.address.net.HttpResponseCache;
 import com.gotak.address.plugin.R;
+import com.gotak.address.sched.PluginScheduler;
 import com.gotak.address.search.OfflineDataDropDown;
 import com.gotak.address.search.SearchHistoryManager;
 
@@ -53,6 +56,26 @@ public class AddressPreferenceFragment extends PluginPreferenceFragment {
             });
         }
         
+        // Set up clear online response cache button
+        PanPreference clearResponseCachePref = (PanPreference) findPreference("address_clear_response_cache");
+        if (clearResponseCachePref != null) {
+            clearResponseCachePref.setOnPreferenceClickListener(preference -> {
+                Context ctx = getActivity();
+                HttpResponseCache cache = HttpEngine.getInstance().getResponseCache();
+                // Deleting the cache files is disk I/O; keep it off the UI thread
+                PluginScheduler.getInstance().execute(PluginScheduler.Lane.IO, PluginScheduler.Priority.INTERACTIVE, () -> {
+                    if (cache != null) {
+                        cache.clear();
+                    }
+                    if (ctx != null) {
+                        MapView.getMapView().post(() -> android.widget.Toast.makeText(ctx,
+                                "Online response cache cleared", android.widget.Toast.LENGTH_SHORT).show());
+                    }
+                });
+                return true;
+            });
+        }
+        
         // Set up manage offline data button
         PanPreference offlineDataPref = (PanPreference) findPreference("address_manage_offline");
         if (offlineDataPref != null) {
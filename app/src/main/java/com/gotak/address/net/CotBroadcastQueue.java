@@ -0,0 +1,327 @@
+package com.gotak.address.net;
+
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+
+import com.atakmap.android.cot.CotMapComponent;
+import com.atakmap.android.maps.MapView;
+import com.atakmap.android.maps.Marker;
+import com.atakmap.coremap.cot.event.CotDetail;
+import com.atakmap.coremap.cot.event.CotEvent;
+import com.atakmap.coremap.cot.event.CotPoint;
+import com.atakmap.coremap.log.Log;
+import com.atakmap.coremap.maps.coords.GeoPoint;
+import com.atakmap.coremap.maps.time.CoordinatedTime;
+import com.gotak.address.sched.PluginScheduler;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Rate-limited queue for sharing markers on the TAK network as CoT.
+ *
+ * Markers are queued by UID; queuing a marker that is still waiting replaces the
+ * pending update instead of sending both, so only the latest state goes out. CoT events
+ * are built and dispatched on the IO lane, paced by a token bucket (a short burst, then
+ * a steady rate) so sharing hundreds of POIs does not swamp a radio or mesh link.
+ * The rate is read from the preferences once and then kept in sync by a listener.
+ *
+ * The queue outlives the drop-down that fills it: broadcasts the user asked for keep
+ * draining after it closes, and are only dropped (and counted in the log) on plugin unload.
+ */
+public class CotBroadcastQueue {
+    private static final String TAG = "CotBroadcastQueue";
+
+    public static final String PREF_RATE = "address_cot_broadcast_rate";
+    // Events per second; low enough for constrained links
+    private static final double DEFAULT_RATE = 2.0;
+    private static final double MAX_RATE = 50.0;
+    // Events that may go out back to back after the queue has been idle
+    private static final int BURST = 5;
+    private static final long STALE_MS = 60 * 60 * 1000;
+    // Send rate is averaged over this window
+    private static final long RATE_WINDOW_MS = 10000;
+    // A scheduled drain this late was dropped by the scheduler
+    private static final long DRAIN_STALL_MS = 5000;
+
+    private static CotBroadcastQueue instance;
+
+    private final LinkedHashMap<String, Marker> pending = new LinkedHashMap<>();
+    private final ArrayDeque<Long> sendTimes = new ArrayDeque<>();
+    private double tokens = BURST;
+    private long lastRefill = SystemClock.elapsedRealtime();
+    private boolean drainScheduled = false;
+    private long drainDueAt = 0;
+    private long sentCount = 0;
+    private long mergedCount = 0;
+    private long failedCount = 0;
+
+    private final SharedPreferences prefs;
+    // Held here because SharedPreferences only keeps a weak reference to listeners
+    private final SharedPreferences.OnSharedPreferenceChangeListener prefListener;
+    private volatile double rate;
+
+    public static synchronized CotBroadcastQueue getInstance() {
+        if (instance == null) {
+            instance = new CotBroadcastQueue();
+        }
+        return instance;
+    }
+
+    /**
+     * Drop whatever is still queued and stop following the rate preference (plugin unload).
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            int dropped = instance.clear();
+            if (dropped > 0) {
+                Log.w(TAG, "Plugin unloading with " + dropped + " broadcasts unsent");
+            }
+            if (instance.prefs != null) {
+                instance.prefs.unregisterOnSharedPreferenceChangeListener(instance.prefListener);
+            }
+            instance = null;
+        }
+    }
+
+    private CotBroadcastQueue() {
+        prefs = loadPreferences();
+        rate = readRate(prefs);
+        prefListener = (sharedPreferences, key) -> {
+            if (PREF_RATE.equals(key)) {
+                rate = readRate(sharedPreferences);
+                Log.d(TAG, "Broadcast rate set to " + rate + "/s");
+            }
+        };
+        if (prefs != null) {
+            prefs.registerOnSharedPreferenceChangeListener(prefListener);
+        }
+    }
+
+    /**
+     * Queue a marker to be sent. Its CoT is built when its turn comes, from the marker's
+     * state at that time. A marker already queued keeps its place in line.
+     */
+    public synchronized void enqueue(Marker marker) {
+        String uid = marker.getUID();
+        if (pending.containsKey(uid)) {
+            mergedCount++;
+        }
+        // Insertion-ordered map: replacing a value does not move the key to the tail
+        pending.put(uid, marker);
+        scheduleDrain(0);
+    }
+
+    /**
+     * Drop every update that has not been sent yet.
+     * @return The number of broadcasts dropped
+     */
+    public synchronized int clear() {
+        int dropped = pending.size();
+        if (dropped > 0) {
+            Log.i(TAG, "Dropping " + dropped + " queued broadcasts");
+        }
+        pending.clear();
+        return dropped;
+    }
+
+    /**
+     * Markers waiting to be sent.
+     */
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * Events sent per second over the last few seconds.
+     */
+    public synchronized double getSendRate() {
+        trimSendTimes(SystemClock.elapsedRealtime());
+        return sendTimes.size() * 1000.0 / RATE_WINDOW_MS;
+    }
+
+    public synchronized long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * Updates replaced by a newer one for the same UID before being sent.
+     */
+    public synchronized long getMergedCount() {
+        return mergedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "queued=%d rate=%.1f/s sent=%d merged=%d failed=%d",
+                pending.size(), getSendRate(), sentCount, mergedCount, failedCount);
+    }
+
+    /**
+     * Send queued events while tokens last, then come back when the next one is due.
+     */
+    private void drain() {
+        while (true) {
+            Marker marker;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    drainScheduled = false;
+                    Log.d(TAG, "Broadcast queue empty: " + this);
+                    return;
+                }
+                double rate = this.rate;
+                refill(rate);
+                if (tokens < 1) {
+                    drainScheduled = false;
+                    scheduleDrain((long) Math.ceil((1 - tokens) * 1000 / rate));
+                    return;
+                }
+                tokens -= 1;
+                Iterator<Marker> it = pending.values().iterator();
+                marker = it.next();
+                it.remove();
+            }
+            send(marker);
+        }
+    }
+
+    private void send(Marker marker) {
+        boolean sent = false;
+        try {
+            CotEvent cotEvent = buildEvent(marker);
+            if (cotEvent != null && cotEvent.isValid()) {
+                CotMapComponent.getInternalDispatcher().dispatch(cotEvent);
+                CotMapComponent.getExternalDispatcher().dispatch(cotEvent);
+                sent = true;
+                Log.d(TAG, "Broadcasted marker to internal + external: " + marker.getUID());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error broadcasting marker " + marker.getUID() + ": " + e.getMessage());
+        }
+
+        synchronized (this) {
+            if (sent) {
+                sentCount++;
+                long now = SystemClock.elapsedRealtime();
+                sendTimes.addLast(now);
+                trimSendTimes(now);
+            } else {
+                failedCount++;
+            }
+        }
+    }
+
+    private synchronized void scheduleDrain(long delayMs) {
+        long now = SystemClock.elapsedRealtime();
+        if (drainScheduled && now < drainDueAt + DRAIN_STALL_MS) {
+            return;
+        }
+        drainScheduled = true;
+        drainDueAt = now + delayMs;
+        try {
+            if (delayMs <= 0) {
+                PluginScheduler.getInstance().execute(PluginScheduler.Lane.IO,
+                        PluginScheduler.Priority.BACKGROUND, this::drain);
+            } else {
+                PluginScheduler.getInstance().schedule(PluginScheduler.Lane.IO,
+                        PluginScheduler.Priority.BACKGROUND, this::drain, delayMs);
+            }
+        } catch (RejectedExecutionException e) {
+            // Retried on the next enqueue
+            Log.w(TAG, "Could not schedule broadcast drain: " + e.getMessage());
+            drainScheduled = false;
+        }
+    }
+
+    private void refill(double rate) {
+        long now = SystemClock.elapsedRealtime();
+        tokens = Math.min(BURST, tokens + (now - lastRefill) * rate / 1000);
+        lastRefill = now;
+    }
+
+    private void trimSendTimes(long now) {
+        while (!sendTimes.isEmpty() && now - sendTimes.peekFirst() > RATE_WINDOW_MS) {
+            sendTimes.removeFirst();
+        }
+    }
+
+    private static SharedPreferences loadPreferences() {
+        try {
+            return PreferenceManager.getDefaultSharedPreferences(MapView.getMapView().getContext());
+        } catch (Exception e) {
+            Log.w(TAG, "Preferences unavailable, using the default broadcast rate");
+            return null;
+        }
+    }
+
+    private static double readRate(SharedPreferences prefs) {
+        if (prefs == null) {
+            return DEFAULT_RATE;
+        }
+        try {
+            double rate = Double.parseDouble(prefs.getString(PREF_RATE, String.valueOf(DEFAULT_RATE)));
+            return rate > 0 ? Math.min(MAX_RATE, rate) : DEFAULT_RATE;
+        } catch (Exception e) {
+            return DEFAULT_RATE;
+        }
+    }
+
+    /**
+     * Build a CotEvent from a Marker (similar to how RIDAR generates CoT events).
+     */
+    private static CotEvent buildEvent(Marker marker) {
+        CotEvent event = new CotEvent();
+
+        // Set UID and type
+        event.setUID(marker.getUID());
+        event.setType(marker.getType());
+
+        // Set times
+        CoordinatedTime now = new CoordinatedTime();
+        event.setTime(now);
+        event.setStart(now);
+        event.setStale(new CoordinatedTime(now.getMilliseconds() + STALE_MS));
+        event.setHow("h-g-i-g-o");
+
+        // Set point
+        GeoPoint point = marker.getPoint();
+        event.setPoint(new CotPoint(point.getLatitude(), point.getLongitude(), point.getAltitude(),
+                CotPoint.UNKNOWN, CotPoint.UNKNOWN));
+
+        // Build detail
+        CotDetail detail = new CotDetail("detail");
+
+        // Add contact (callsign/title)
+        CotDetail contact = new CotDetail("contact");
+        contact.setAttribute("callsign", marker.getTitle() != null ? marker.getTitle() : marker.getUID());
+        detail.addChild(contact);
+
+        // Add remarks
+        String remarks = marker.getMetaString("remarks", "");
+        if (!remarks.isEmpty()) {
+            CotDetail remarksDetail = new CotDetail("remarks");
+            remarksDetail.setInnerText(remarks);
+            detail.addChild(remarksDetail);
+        }
+
+        // Add usericon if present
+        String usericon = marker.getMetaString("usericon", null);
+        if (usericon != null) {
+            CotDetail usericonDetail = new CotDetail("usericon");
+            usericonDetail.setAttribute("iconsetpath", usericon);
+            detail.addChild(usericonDetail);
+        }
+
+        // Add status
+        CotDetail status = new CotDetail("status");
+        status.setAttribute("readiness", "true");
+        detail.addChild(status);
+
+        event.setDetail(detail);
+        return event;
+    }
+}
@@ -0,0 +1,115 @@
+package com.gotak.address.net;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Process-wide minimum spacing between requests to a host.
+ *
+ * Used for services with a published request-rate policy (Nominatim: at most one
+ * request per second per application). Every caller in the plugin goes through the
+ * same limiter, so widgets and searches share the budget instead of each keeping
+ * their own. Callers reserve the next free slot and wait until it comes up; a caller
+ * that gives up before its slot starts (cancelled or superseded) releases it, so a
+ * stale request never delays the live one behind it.
+ */
+public class HostRateLimiter {
+
+    private final Map<String, Long> intervalMsByHost = new HashMap<>();
+    private final Map<String, Long> nextSlotByHost = new HashMap<>();
+
+    // Released slots that still lie before nextSlot, handed to the next caller first
+    private final Map<String, TreeSet<Long>> freeSlotsByHost = new HashMap<>();
+
+    /**
+     * A reserved request start time for one host.
+     */
+    public static final class Slot {
+        private final String host;
+        private final long startMs;
+
+        Slot(String host, long startMs) {
+            this.host = host;
+            this.startMs = startMs;
+        }
+
+        public long getStartMs() {
+            return startMs;
+        }
+
+        /**
+         * Milliseconds from now until the slot starts (0 if it already has).
+         */
+        public long getWaitMs(long nowMs) {
+            return Math.max(0, startMs - nowMs);
+        }
+    }
+
+    /**
+     * Require at least intervalMs between the starts of two requests to host.
+     */
+    public synchronized void setMinInterval(String host, long intervalMs) {
+        intervalMsByHost.put(host, intervalMs);
+    }
+
+    /**
+     * Reserve the next free request slot for host.
+     *
+     * @return The slot, or null if the host is not rate limited
+     */
+    public Slot reserve(String host) {
+        return reserve(host, System.currentTimeMillis());
+    }
+
+    synchronized Slot reserve(String host, long nowMs) {
+        Long interval = intervalMsByHost.get(host);
+        if (interval == null) {
+            return null;
+        }
+
+        // Reuse a slot given back by a cancelled call if it hasn't passed yet
+        TreeSet<Long> free = freeSlotsByHost.get(host);
+        if (free != null) {
+            free.headSet(nowMs).clear();
+            Long reused = free.pollFirst();
+            if (reused != null) {
+                return new Slot(host, reused);
+            }
+        }
+
+        Long nextSlot = nextSlotByHost.get(host);
+        long start = nextSlot != null ? Math.max(nowMs, nextSlot) : nowMs;
+        nextSlotByHost.put(host, start + interval);
+        return new Slot(host, start);
+    }
+
+    /**
+     * Give back a slot whose request was never sent.
+     * The tail slot rolls the schedule back; an earlier one is kept for the next caller.
+     */
+    public synchronized void release(Slot slot) {
+        if (slot == null) {
+            return;
+        }
+        Long interval = intervalMsByHost.get(slot.host);
+        Long nextSlot = nextSlotByHost.get(slot.host);
+        if (interval == null || nextSlot == null) {
+            return;
+        }
+
+        TreeSet<Long> free = freeSlotsByHost.get(slot.host);
+        if (free == null) {
+            free = new TreeSet<>();
+            freeSlotsByHost.put(slot.host, free);
+        }
+        free.add(slot.startMs);
+
+        // Collapse released slots at the end of the schedule
+        long next = nextSlot;
+        while (free.remove(next - interval)) {
+            next -= interval;
+        }
+        nextSlotByHost.put(slot.host, next);
+    }
+}
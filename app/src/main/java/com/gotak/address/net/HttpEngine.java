@@ -0,0 +1,561 @@
+package com.gotak.address.net;
+
+import android.util.JsonReader;
+
+import com.atakmap.coremap.log.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared HTTP layer for every online client in the plugin (geocoding, POIs, downloads).
+ *
+ * - Keep-alive: the platform HttpURLConnection keeps a per-host pool of idle sockets,
+ *   but only gets a socket back when the response body is read to the end and closed.
+ *   Calls therefore drain and close their body instead of disconnect()ing, which would
+ *   throw the socket away; only a cancelled call disconnects.
+ * - gzip: JSON requests ask for gzip explicitly and inflate it here, so it works the
+ *   same on every HttpURLConnection implementation. Downloads keep identity encoding
+ *   so Content-Length stays usable for progress.
+ * - Streaming JSON: executeJson() hands the caller a JsonReader over the body, so
+ *   results are built as the bytes arrive instead of from a String and a JSON tree.
+ * - Response cache: JSON requests given a cache key are answered from the disk cache
+ *   while fresh, and from a stale entry when the network request fails.
+ * - Rate limits: hosts with a request-rate policy are throttled here for the whole
+ *   plugin (Nominatim: one request per second).
+ */
+public class HttpEngine {
+    private static final String TAG = "HttpEngine";
+
+    public static final String USER_AGENT = "ATAK-AddressPlugin/1.0";
+    private static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    private static final int DEFAULT_READ_TIMEOUT = 15000;
+    private static final int BUFFER_SIZE = 8192;
+
+    // Leftover bytes worth reading to keep a socket reusable; larger remainders just close it
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    // Larger JSON bodies are parsed but not written to the response cache
+    private static final int MAX_CACHED_BODY_BYTES = 2 * 1024 * 1024;
+
+    // Nominatim usage policy: an absolute maximum of one request per second
+    private static final String NOMINATIM_HOST = "nominatim.openstreetmap.org";
+    private static final long NOMINATIM_MIN_INTERVAL_MS = 1000;
+
+    private static HttpEngine instance;
+    private volatile HttpResponseCache responseCache;
+    private final HostRateLimiter rateLimiter = new HostRateLimiter();
+
+    public static synchronized HttpEngine getInstance() {
+        if (instance == null) {
+            instance = new HttpEngine();
+        }
+        return instance;
+    }
+
+    private HttpEngine() {
+        rateLimiter.setMinInterval(NOMINATIM_HOST, NOMINATIM_MIN_INTERVAL_MS);
+    }
+
+    /**
+     * Install (or with null, remove) the disk cache used by requests with a cache key.
+     */
+    public void setResponseCache(HttpResponseCache cache) {
+        this.responseCache = cache;
+    }
+
+    public HttpResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Parse a cached response for a request without touching the network,
+     * regardless of its age. Used when the device is known to be offline.
+     *
+     * @return The parsed result, or null if nothing is cached for the request
+     */
+    public <T> T readCached(Request request, JsonHandler<T> handler) {
+        HttpResponseCache cache = responseCache;
+        if (cache == null || request.cacheKey == null) {
+            return null;
+        }
+        byte[] body = cache.get(request.cacheKey, true);
+        if (body == null) {
+            return null;
+        }
+        try {
+            return parseCached(request, body, handler);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not parse cached " + request.label + " response: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Parses a streamed JSON response body.
+     */
+    public interface JsonHandler<T> {
+        T parse(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Thrown when the server answers with a non-200 status.
+     */
+    public static class HttpStatusException extends IOException {
+        private final int statusCode;
+
+        public HttpStatusException(String label, int statusCode) {
+            super(label + " HTTP error: " + statusCode);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+
+    /**
+     * Description of one HTTP request. Setters return the request for chaining.
+     */
+    public static class Request {
+        private final String url;
+        private final String method;
+        private final byte[] body;
+        private final String contentType;
+        private final Map<String, String> headers = new LinkedHashMap<>();
+        private String label = "HTTP";
+        private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        private int readTimeout = DEFAULT_READ_TIMEOUT;
+        private boolean gzip = true;
+        private boolean partial = false;
+        private String cacheKey;
+
+        private Request(String url, String method, byte[] body, String contentType) {
+            this.url = url;
+            this.method = method;
+            this.body = body;
+            this.contentType = contentType;
+        }
+
+        public static Request get(String url) {
+            return new Request(url, "GET", null, null);
+        }
+
+        /**
+         * POST a single form field (application/x-www-form-urlencoded).
+         */
+        public static Request postForm(String url, String field, String value) throws IOException {
+            String form = field + "=" + URLEncoder.encode(value, "UTF-8");
+            return new Request(url, "POST", form.getBytes(StandardCharsets.UTF_8),
+                    "application/x-www-form-urlencoded");
+        }
+
+        /**
+         * Name used in log and error messages (e.g. "Photon").
+         */
+        public Request setLabel(String label) {
+            this.label = label;
+            return this;
+        }
+
+        public Request setHeader(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        public Request setTimeouts(int connectTimeoutMs, int readTimeoutMs) {
+            this.connectTimeout = connectTimeoutMs;
+            this.readTimeout = readTimeoutMs;
+            return this;
+        }
+
+        /**
+         * Whether to negotiate gzip. Turn off for binary downloads that need Content-Length.
+         */
+        public Request setGzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        /**
+         * Request bytes start..end (inclusive) of the resource; end -1 means to the end.
+         * A 206 Partial Content response is then accepted as well as a 200 (server
+         * ignored the range and sent everything) - check Response.getStatusCode().
+         */
+        public Request setRange(long start, long end) {
+            headers.put("Range", "bytes=" + start + "-" + (end >= 0 ? end : ""));
+            this.partial = true;
+            return this;
+        }
+
+        /**
+         * Cache the parsed JSON response under a normalized key (query or tile rather than
+         * the raw URL, so equivalent requests share an entry). Only executeJson() uses it.
+         */
+        public Request setCacheKey(String cacheKey) {
+            this.cacheKey = cacheKey;
+            return this;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+    }
+
+    /**
+     * Create a call for a request. A call runs once and can be cancelled from any thread.
+     */
+    public Call newCall(Request request) {
+        return new Call(request, request.cacheKey != null ? responseCache : null, rateLimiter);
+    }
+
+    /**
+     * One execution of a request.
+     */
+    public static class Call {
+        private final Request request;
+        private final HttpResponseCache cache;
+        private final HostRateLimiter rateLimiter;
+        private HttpURLConnection connection;
+        private boolean cancelled = false;
+
+        private Call(Request request, HttpResponseCache cache, HostRateLimiter rateLimiter) {
+            this.request = request;
+            this.cache = cache;
+            this.rateLimiter = rateLimiter;
+        }
+
+        /**
+         * Send the request and open the response body.
+         * The caller must close the response.
+         *
+         * @throws HttpStatusException if the status is not 200 (or 206 for a range request)
+         * @throws IOException on network errors or if the call was cancelled
+         */
+        public Response execute() throws IOException {
+            URL url = new URL(request.url);
+            if (isCancelled()) {
+                throw new IOException(request.label + " request cancelled");
+            }
+            awaitRateLimit(url.getHost());
+
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            synchronized (this) {
+                if (cancelled) {
+                    throw new IOException(request.label + " request cancelled");
+                }
+                connection = conn;
+            }
+
+            try {
+                conn.setRequestMethod(request.method);
+                conn.setConnectTimeout(request.connectTimeout);
+                conn.setReadTimeout(request.readTimeout);
+                conn.setInstanceFollowRedirects(true);
+                conn.setRequestProperty("User-Agent", USER_AGENT);
+                if (request.gzip) {
+                    conn.setRequestProperty("Accept-Encoding", "gzip");
+                }
+                for (Map.Entry<String, String> header : request.headers.entrySet()) {
+                    conn.setRequestProperty(header.getKey(), header.getValue());
+                }
+
+                if (request.body != null) {
+                    conn.setDoOutput(true);
+                    conn.setRequestProperty("Content-Type", request.contentType);
+                    conn.setFixedLengthStreamingMode(request.body.length);
+                    try (OutputStream os = conn.getOutputStream()) {
+                        os.write(request.body);
+                    }
+                }
+
+                int responseCode = conn.getResponseCode();
+                boolean accepted = responseCode == HttpURLConnection.HTTP_OK
+                        || (request.partial && responseCode == HttpURLConnection.HTTP_PARTIAL);
+                if (!accepted) {
+                    // Reading the error body lets the socket go back to the pool
+                    drainAndClose(conn.getErrorStream());
+                    throw new HttpStatusException(request.label, responseCode);
+                }
+
+                InputStream body = conn.getInputStream();
+                if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
+                    body = new GZIPInputStream(body, BUFFER_SIZE);
+                }
+                return new Response(this, conn, responseCode, body);
+            } catch (IOException e) {
+                if (isCancelled()) {
+                    throw new IOException(request.label + " request cancelled", e);
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Wait for the host's next request slot. cancel() or an interrupt ends the wait
+         * early and gives the unused slot back to the limiter.
+         */
+        private void awaitRateLimit(String host) throws IOException {
+            HostRateLimiter.Slot slot = rateLimiter.reserve(host);
+            if (slot == null) {
+                return;
+            }
+
+            long waitMs = slot.getWaitMs(System.currentTimeMillis());
+            if (waitMs > 0) {
+                Log.d(TAG, "Waiting " + waitMs + "ms for a " + host + " request slot");
+            }
+            synchronized (this) {
+                try {
+                    while (!cancelled && waitMs > 0) {
+                        wait(waitMs);
+                        waitMs = slot.getWaitMs(System.currentTimeMillis());
+                    }
+                } catch (InterruptedException e) {
+                    rateLimiter.release(slot);
+                    Thread.currentThread().interrupt();
+                    throw new IOException(request.label + " request interrupted", e);
+                }
+                if (cancelled) {
+                    rateLimiter.release(slot);
+                    throw new IOException(request.label + " request cancelled");
+                }
+            }
+        }
+
+        /**
+         * Send the request and parse the body as it streams in.
+         * With a cache key, a fresh cached response is parsed instead, and a stale one
+         * is used if the network request fails.
+         */
+        public <T> T executeJson(JsonHandler<T> handler) throws IOException {
+            if (cache == null) {
+                return executeNetworkJson(handler, null);
+            }
+
+            byte[] fresh = cache.get(request.cacheKey, false);
+            if (fresh != null) {
+                return parseCached(request, fresh, handler);
+            }
+
+            try {
+                return executeNetworkJson(handler, cache);
+            } catch (IOException e) {
+                if (isCancelled()) {
+                    throw e;
+                }
+                byte[] stale = cache.get(request.cacheKey, true);
+                if (stale == null) {
+                    throw e;
+                }
+                Log.i(TAG, request.label + " request failed (" + e.getMessage()
+                        + "), using cached response");
+                return parseCached(request, stale, handler);
+            }
+        }
+
+        private <T> T executeNetworkJson(JsonHandler<T> handler, HttpResponseCache cache)
+                throws IOException {
+            try (Response response = execute()) {
+                InputStream body = response.getBody();
+                CapturingInputStream capture = null;
+                if (cache != null) {
+                    capture = new CapturingInputStream(body, MAX_CACHED_BODY_BYTES);
+                    body = capture;
+                }
+
+                T result = handler.parse(new JsonReader(
+                        new InputStreamReader(body, StandardCharsets.UTF_8)));
+
+                // Handlers may stop early; read the rest so the cached copy is complete
+                if (capture != null && capture.readToEnd()) {
+                    cache.put(request.cacheKey, capture.getCaptured());
+                }
+                return result;
+            } catch (IOException e) {
+                if (isCancelled()) {
+                    throw new IOException(request.label + " request cancelled", e);
+                }
+                throw e;
+            } catch (IllegalStateException | NumberFormatException e) {
+                // JsonReader reports unexpected tokens as IllegalStateException
+                throw new IOException(request.label + " response malformed: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Abort the call: a rate-limit wait, blocked connect or read fails immediately.
+         */
+        public void cancel() {
+            HttpURLConnection conn;
+            synchronized (this) {
+                cancelled = true;
+                conn = connection;
+                notifyAll();
+            }
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * An open response body. Closing it drains what's left so the socket can be reused.
+     */
+    public static class Response implements Closeable {
+        private final Call call;
+        private final HttpURLConnection connection;
+        private final int statusCode;
+        private final InputStream body;
+
+        private Response(Call call, HttpURLConnection connection, int statusCode, InputStream body) {
+            this.call = call;
+            this.connection = connection;
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        /**
+         * 200, or 206 when a range request was honored.
+         */
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public InputStream getBody() {
+            return body;
+        }
+
+        /**
+         * Body length in bytes, or -1 if unknown (chunked or gzip).
+         */
+        public long getContentLength() {
+            return connection.getContentLengthLong();
+        }
+
+        public String getHeader(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        @Override
+        public void close() {
+            if (call.isCancelled()) {
+                connection.disconnect();
+                return;
+            }
+            drainAndClose(body);
+        }
+    }
+
+    private static <T> T parseCached(Request request, byte[] body, JsonHandler<T> handler)
+            throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+            return handler.parse(reader);
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException(request.label + " cached response malformed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copies the bytes read through it, up to a limit, for the response cache.
+     */
+    private static class CapturingInputStream extends FilterInputStream {
+        private final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        private final int limit;
+        private boolean overflowed = false;
+
+        CapturingInputStream(InputStream in, int limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                capture(new byte[] { (byte) b }, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                capture(buffer, offset, read);
+            }
+            return read;
+        }
+
+        private void capture(byte[] buffer, int offset, int length) {
+            if (overflowed) {
+                return;
+            }
+            if (captured.size() + length > limit) {
+                overflowed = true;
+                captured.reset();
+                return;
+            }
+            captured.write(buffer, offset, length);
+        }
+
+        /**
+         * Consume the rest of the body.
+         *
+         * @return true if the whole body was captured
+         */
+        boolean readToEnd() throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!overflowed && read(buffer, 0, buffer.length) != -1) {
+                // Captured as a side effect of read()
+            }
+            return !overflowed;
+        }
+
+        byte[] getCaptured() {
+            return captured.toByteArray();
+        }
+    }
+
+    /**
+     * Read a small remainder to the end and close the stream, so the platform
+     * returns the socket to its keep-alive pool.
+     */
+    private static void drainAndClose(InputStream stream) {
+        if (stream == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int drained = 0;
+            int read;
+            while (drained < MAX_DRAIN_BYTES && (read = stream.read(buffer)) != -1) {
+                drained += read;
+            }
+        } catch (IOException e) {
+            Log.d(TAG, "Could not drain response: " + e.getMessage());
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException ignored) {}
+        }
+    }
+}
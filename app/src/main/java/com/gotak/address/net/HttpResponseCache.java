@@ -0,0 +1,304 @@
+package com.gotak.address.net;
+
+import android.content.SharedPreferences;
+
+import com.atakmap.coremap.log.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Disk cache of online JSON responses (Photon, Nominatim, Overpass, reverse geocoding).
+ *
+ * Entries are keyed by a normalized query or tile chosen by the caller, stored gzipped
+ * under a hash of the key, and survive ATAK restarts. Fresh entries (younger than the
+ * TTL) are served instead of going to the network; stale entries are kept and served
+ * when the network request fails, so searches repeated on a degraded link (SATCOM,
+ * mesh) or with no link at all still answer.
+ *
+ * Size is bounded by total bytes on disk with LRU eviction. Recency is the file's
+ * modification time, which is bumped on every hit, so LRU order survives restarts too.
+ *
+ * Only the index is guarded by the cache's lock; entry files are compressed, written and
+ * read outside it, so a small lookup never waits behind a large Overpass write.
+ */
+public class HttpResponseCache {
+    private static final String TAG = "HttpResponseCache";
+
+    public static final String PREF_CACHE_SIZE_MB = "address_response_cache_size_mb";
+    public static final String PREF_CACHE_TTL_HOURS = "address_response_cache_ttl_hours";
+    public static final int DEFAULT_CACHE_SIZE_MB = 20;
+    public static final int DEFAULT_CACHE_TTL_HOURS = 168; // 1 week
+
+    private static final String ENTRY_SUFFIX = ".cache";
+    private static final int FORMAT_VERSION = 1;
+
+    private final File directory;
+    private long maxBytes;
+    private long ttlMs;
+
+    // File name -> size, in access order (least recently used first)
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes = 0;
+    private boolean loaded = false;
+    private long hits = 0;
+    private long staleHits = 0;
+    private long misses = 0;
+
+    public HttpResponseCache(File directory, long maxBytes, long ttlMs) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Create a cache sized from the plugin preferences.
+     */
+    public static HttpResponseCache fromPreferences(File directory, SharedPreferences prefs) {
+        HttpResponseCache cache = new HttpResponseCache(directory, 0, 0);
+        cache.applyPreferences(prefs);
+        return cache;
+    }
+
+    /**
+     * Re-read the size and TTL preferences, evicting if the cache is now over its limit.
+     */
+    public synchronized void applyPreferences(SharedPreferences prefs) {
+        int sizeMb = readInt(prefs, PREF_CACHE_SIZE_MB, DEFAULT_CACHE_SIZE_MB);
+        int ttlHours = readInt(prefs, PREF_CACHE_TTL_HOURS, DEFAULT_CACHE_TTL_HOURS);
+        this.maxBytes = Math.max(0, sizeMb) * 1024L * 1024L;
+        this.ttlMs = Math.max(0, ttlHours) * 60L * 60L * 1000L;
+        Log.d(TAG, "Response cache limits: " + sizeMb + "MB, TTL " + ttlHours + "h");
+        if (loaded) {
+            trimToSize();
+        }
+    }
+
+    /**
+     * Look up a response body.
+     *
+     * @param key Normalized cache key
+     * @param allowStale True to return an entry older than the TTL (network failed)
+     * @return The body, or null if there is no usable entry
+     */
+    public byte[] get(String key, boolean allowStale) {
+        String fileName = fileName(key);
+        long ttl;
+        synchronized (this) {
+            loadIfNeeded();
+            // Also marks the entry most recently used
+            if (entries.get(fileName) == null) {
+                misses++;
+                return null;
+            }
+            ttl = ttlMs;
+        }
+
+        // A concurrent put replaces the file by rename, so this stream keeps reading
+        // the entry it opened
+        File file = new File(directory, fileName);
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown cache entry format");
+            }
+            long storedAt = in.readLong();
+            String storedKey = in.readUTF();
+            if (!storedKey.equals(key)) {
+                // Hash collision - treat as a miss
+                countMiss();
+                return null;
+            }
+
+            boolean fresh = System.currentTimeMillis() - storedAt <= ttl;
+            if (!fresh && !allowStale) {
+                countMiss();
+                return null;
+            }
+
+            byte[] body = readAll(new GZIPInputStream(in));
+            file.setLastModified(System.currentTimeMillis());
+            synchronized (this) {
+                if (fresh) {
+                    hits++;
+                } else {
+                    staleHits++;
+                }
+            }
+            if (!fresh) {
+                Log.i(TAG, "Serving stale response for " + key);
+            }
+            return body;
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable cache entry: " + e.getMessage());
+            synchronized (this) {
+                removeEntry(fileName);
+                misses++;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Store a response body, evicting least recently used entries as needed.
+     */
+    public void put(String key, byte[] body) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create cache directory: " + directory.getPath());
+            return;
+        }
+
+        String fileName = fileName(key);
+        File file = new File(directory, fileName);
+        File tempFile = null;
+        long size;
+        try {
+            // Unique temp name, as several threads may store the same key at once
+            tempFile = File.createTempFile(fileName, ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeUTF(key);
+                GZIPOutputStream gzip = new GZIPOutputStream(out);
+                gzip.write(body);
+                gzip.finish();
+            }
+            size = tempFile.length();
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Failed to rename cache entry");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache response for " + key + ": " + e.getMessage());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            return;
+        }
+
+        synchronized (this) {
+            loadIfNeeded();
+            Long previous = entries.put(fileName, size);
+            if (previous != null) {
+                totalBytes -= previous;
+            }
+            totalBytes += size;
+            trimToSize();
+        }
+    }
+
+    /**
+     * Delete every cached response. Does file I/O; call off the UI thread.
+     */
+    public void clear() {
+        List<String> fileNames;
+        synchronized (this) {
+            loadIfNeeded();
+            fileNames = new ArrayList<>(entries.keySet());
+            entries.clear();
+            totalBytes = 0;
+        }
+        for (String fileName : fileNames) {
+            new File(directory, fileName).delete();
+        }
+        Log.i(TAG, "Response cache cleared");
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "entries=" + entries.size() + " size=" + totalBytes / 1024 + "KB hits=" + hits
+                + " staleHits=" + staleHits + " misses=" + misses;
+    }
+
+    private synchronized void countMiss() {
+        misses++;
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            new File(directory, eldest.getKey()).delete();
+        }
+    }
+
+    private void removeEntry(String fileName) {
+        Long size = entries.remove(fileName);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        new File(directory, fileName).delete();
+    }
+
+    /**
+     * Index the directory once, oldest access first.
+     */
+    private void loadIfNeeded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            entries.put(file.getName(), file.length());
+            totalBytes += file.length();
+        }
+        Log.d(TAG, "Loaded response cache: " + this);
+        trimToSize();
+    }
+
+    private static String fileName(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.append(ENTRY_SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is always available on Android
+            return Integer.toHexString(key.hashCode()) + ENTRY_SUFFIX;
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static int readInt(SharedPreferences prefs, String key, int defaultValue) {
+        try {
+            return Integer.parseInt(prefs.getString(key, String.valueOf(defaultValue)));
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.gotak.address.net;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+
+/**
+ * Helpers for reading streamed JSON with JsonReader.
+ *
+ * Parsers walk the large outer arrays themselves and only materialize the small
+ * per-item objects (tags, properties) that existing code reads as JSONObject.
+ */
+public final class JsonStreams {
+
+    private JsonStreams() {
+    }
+
+    /**
+     * Read the next string, accepting numbers and booleans as text.
+     * @return The value, or fallback if it is null
+     */
+    public static String nextString(JsonReader reader, String fallback) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return fallback;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return fallback;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Read the next number, accepting numeric strings (Nominatim quotes lat/lon).
+     * @return The value, or fallback if it is null or not a number
+     */
+    public static double nextDouble(JsonReader reader, double fallback) throws IOException {
+        String value = nextString(reader, null);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Read the next integer, accepting numeric strings.
+     * @return The value, or fallback if it is null or not a number
+     */
+    public static long nextLong(JsonReader reader, long fallback) throws IOException {
+        String value = nextString(reader, null);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Materialize the next object as a JSONObject (for small per-item objects only).
+     */
+    public static JSONObject readObject(JsonReader reader) throws IOException {
+        JSONObject object = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            try {
+                object.put(name, readValue(reader));
+            } catch (JSONException e) {
+                throw new IOException("Invalid JSON value for " + name, e);
+            }
+        }
+        reader.endObject();
+        return object;
+    }
+
+    private static JSONArray readArray(JsonReader reader) throws IOException {
+        JSONArray array = new JSONArray();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            array.put(readValue(reader));
+        }
+        reader.endArray();
+        return array;
+    }
+
+    private static Object readValue(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(reader);
+            case BEGIN_ARRAY:
+                return readArray(reader);
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NUMBER:
+                String number = reader.nextString();
+                try {
+                    return Long.parseLong(number);
+                } catch (NumberFormatException e) {
+                    return Double.parseDouble(number);
+                }
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            default:
+                return reader.nextString();
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.gotak.address.sched;
+
+import android.os.Process;
+
+import com.atakmap.coremap.log.Log;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plugin-wide background scheduler.
+ *
+ * All background work runs on three shared lanes instead of per-class executors and
+ * threads: IO (network requests, file copies, downloads), DB (SQLite queries) and CPU
+ * (marker building and other in-memory work). Each lane is a bounded pool of named
+ * threads that are started on demand and exit when idle, so an idle plugin holds no
+ * threads at all.
+ *
+ * Within a lane, queued tasks run in priority order - interactive search, then
+ * background geocoding, then bulk work such as downloads - and in submission order
+ * within a priority, so background work never sits ahead of a search the user is
+ * waiting on. Bulk tasks are also capped per lane, so long downloads can never occupy
+ * every thread. Each lane keeps queue-depth and wait/run latency counters (getStats).
+ */
+public class PluginScheduler {
+    private static final String TAG = "PluginScheduler";
+
+    public enum Lane {
+        IO(6, 3),
+        DB(4, 2),
+        CPU(2, 1);
+
+        final int threads;
+        // Most BULK tasks admitted to the pool at once; the rest wait their turn
+        final int maxBulk;
+
+        Lane(int threads, int maxBulk) {
+            this.threads = threads;
+            this.maxBulk = maxBulk;
+        }
+    }
+
+    /**
+     * Task priority, highest first.
+     */
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND,
+        BULK
+    }
+
+    // Non-interactive submissions are rejected once this many tasks are queued in a lane
+    private static final int MAX_QUEUED_NON_INTERACTIVE = 64;
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 30;
+    // Interactive tasks that waited longer than this for a thread are logged
+    private static final long SLOW_INTERACTIVE_WAIT_MS = 500;
+
+    private static PluginScheduler instance;
+
+    private final Map<Lane, LaneExecutor> lanes = new EnumMap<>(Lane.class);
+    private final ScheduledThreadPoolExecutor timer;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public static synchronized PluginScheduler getInstance() {
+        if (instance == null) {
+            instance = new PluginScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Stop every lane, dropping queued work and interrupting running tasks (plugin unload).
+     */
+    public static synchronized void shutdown() {
+        if (instance == null) {
+            return;
+        }
+        for (LaneExecutor lane : instance.lanes.values()) {
+            Log.i(TAG, "Shutting down: " + lane.stats());
+            lane.shutdownNow();
+        }
+        instance.timer.shutdownNow();
+        instance = null;
+    }
+
+    private PluginScheduler() {
+        for (Lane lane : Lane.values()) {
+            lanes.put(lane, new LaneExecutor(lane));
+        }
+        // Only hands delayed and periodic tasks over to a lane; never runs work itself
+        timer = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("Address-timer"));
+        timer.setKeepAliveTime(IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        timer.allowCoreThreadTimeOut(true);
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Queue a task whose result or failure the caller collects from the Future.
+     *
+     * @throws RejectedExecutionException if the lane is shut down, or its queue is full
+     *         and the task is not interactive
+     */
+    public <T> Future<T> submit(Lane lane, Priority priority, Callable<T> task) {
+        PrioritizedTask<T> futureTask = new PrioritizedTask<>(task, priority, sequence.incrementAndGet());
+        lanes.get(lane).enqueue(futureTask);
+        return futureTask;
+    }
+
+    public Future<?> submit(Lane lane, Priority priority, Runnable task) {
+        return submit(lane, priority, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Queue a fire-and-forget task. Exceptions it throws are logged.
+     */
+    public void execute(Lane lane, Priority priority, Runnable task) {
+        submit(lane, priority, () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Uncaught exception in " + lane + " task: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Executor view of a lane at a fixed priority (e.g. for an ExecutorCompletionService).
+     */
+    public Executor executor(Lane lane, Priority priority) {
+        return command -> execute(lane, priority, command);
+    }
+
+    /**
+     * New executor that runs its tasks one at a time, in order, on a lane. Gives a
+     * class the semantics of its own single-thread executor without owning a thread.
+     */
+    public SerialExecutor newSerialExecutor(Lane lane, Priority priority) {
+        return new SerialExecutor(this, lane, priority);
+    }
+
+    /**
+     * Queue a fire-and-forget task on a lane after delayMs.
+     *
+     * @throws RejectedExecutionException if the scheduler is shut down
+     */
+    public void schedule(Lane lane, Priority priority, Runnable task, long delayMs) {
+        timer.schedule(() -> {
+            try {
+                execute(lane, priority, task);
+            } catch (RejectedExecutionException e) {
+                Log.w(TAG, "Dropped delayed " + lane + " task: " + e.getMessage());
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run a task on a lane repeatedly, waiting delayMs after each run completes.
+     */
+    public PeriodicTask scheduleWithFixedDelay(Lane lane, Priority priority, Runnable task,
+                                               long initialDelayMs, long delayMs) {
+        PeriodicTask periodic = new PeriodicTask(this, lane, priority, task, delayMs);
+        periodic.scheduleNext(initialDelayMs);
+        return periodic;
+    }
+
+    /**
+     * Snapshot of a lane's queue depth and latency counters.
+     */
+    public LaneStats getStats(Lane lane) {
+        return lanes.get(lane).stats();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (LaneExecutor lane : lanes.values()) {
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(lane.stats());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Queue-depth and latency counters for one lane.
+     */
+    public static class LaneStats {
+        public Lane lane;
+        public int threads;         // Live worker threads
+        public int active;          // Workers currently running a task
+        public int queued;          // Tasks waiting for a worker, including held bulk tasks
+        public long completed;
+        public long rejected;
+        public long maxWaitMs;
+        public long totalRunMs;
+        public final long[] completedByPriority = new long[Priority.values().length];
+        public final long[] totalWaitMsByPriority = new long[Priority.values().length];
+
+        public long getAverageWaitMs(Priority priority) {
+            long count = completedByPriority[priority.ordinal()];
+            return count > 0 ? totalWaitMsByPriority[priority.ordinal()] / count : 0;
+        }
+
+        public long getAverageRunMs() {
+            return completed > 0 ? totalRunMs / completed : 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "%s threads=%d active=%d queued=%d completed=%d rejected=%d avgRun=%dms maxWait=%dms",
+                    lane, threads, active, queued, completed, rejected, getAverageRunMs(), maxWaitMs));
+            for (Priority priority : Priority.values()) {
+                if (completedByPriority[priority.ordinal()] > 0) {
+                    sb.append(' ').append(priority.name().toLowerCase(Locale.US))
+                            .append("Wait=").append(getAverageWaitMs(priority)).append("ms");
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Runs tasks one at a time, in submission order, on a shared lane.
+     */
+    public static class SerialExecutor implements Executor {
+        private final PluginScheduler scheduler;
+        private final Lane lane;
+        private final Priority priority;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean running = false;
+
+        private SerialExecutor(PluginScheduler scheduler, Lane lane, Priority priority) {
+            this.scheduler = scheduler;
+            this.lane = lane;
+            this.priority = priority;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.offer(task);
+            if (!running) {
+                runNext();
+            }
+        }
+
+        /**
+         * Drop tasks that have not started yet.
+         */
+        public synchronized void clear() {
+            tasks.clear();
+        }
+
+        private synchronized void runNext() {
+            Runnable next = tasks.poll();
+            running = next != null;
+            if (next == null) {
+                return;
+            }
+            try {
+                scheduler.execute(lane, priority, () -> {
+                    try {
+                        next.run();
+                    } finally {
+                        runNext();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                Log.w(TAG, "Serial " + lane + " executor dropped " + (tasks.size() + 1) + " tasks: " + e.getMessage());
+                tasks.clear();
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * Handle for a task started with scheduleWithFixedDelay.
+     */
+    public static class PeriodicTask {
+        private final PluginScheduler scheduler;
+        private final Lane lane;
+        private final Priority priority;
+        private final Runnable task;
+        private final long delayMs;
+        private volatile boolean cancelled = false;
+        private ScheduledFuture<?> pending;
+
+        private PeriodicTask(PluginScheduler scheduler, Lane lane, Priority priority,
+                             Runnable task, long delayMs) {
+            this.scheduler = scheduler;
+            this.lane = lane;
+            this.priority = priority;
+            this.task = task;
+            this.delayMs = delayMs;
+        }
+
+        /**
+         * Stop future runs. A run already in progress finishes.
+         */
+        public synchronized void cancel() {
+            cancelled = true;
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+        }
+
+        private synchronized void scheduleNext(long delay) {
+            if (cancelled) {
+                return;
+            }
+            try {
+                pending = scheduler.timer.schedule(this::dispatch, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                cancelled = true;
+            }
+        }
+
+        private void dispatch() {
+            try {
+                scheduler.execute(lane, priority, () -> {
+                    try {
+                        if (!cancelled) {
+                            task.run();
+                        }
+                    } finally {
+                        scheduleNext(delayMs);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Lane queue full - try again next period
+                scheduleNext(delayMs);
+            }
+        }
+    }
+
+    /**
+     * FutureTask ordered by priority, then submission order.
+     */
+    private static class PrioritizedTask<T> extends FutureTask<T> implements Comparable<PrioritizedTask<?>> {
+        final Priority priority;
+        final long sequence;
+        final long enqueuedAtNanos = System.nanoTime();
+        long startedAtNanos;
+
+        PrioritizedTask(Callable<T> callable, Priority priority, long sequence) {
+            super(callable);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * One lane: a fixed-size pool over a priority queue, with metrics.
+     * BULK tasks beyond the lane's maxBulk are held back until an admitted one finishes.
+     */
+    private static class LaneExecutor extends ThreadPoolExecutor {
+        private final Lane lane;
+        private final ArrayDeque<PrioritizedTask<?>> heldBulk = new ArrayDeque<>();
+        private int admittedBulk = 0;
+        private long completed = 0;
+        private long rejected = 0;
+        private long maxWaitNanos = 0;
+        private long totalRunNanos = 0;
+        private final long[] completedByPriority = new long[Priority.values().length];
+        private final long[] totalWaitNanosByPriority = new long[Priority.values().length];
+
+        LaneExecutor(Lane lane) {
+            super(lane.threads, lane.threads, IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                    new PriorityBlockingQueue<>(),
+                    new NamedThreadFactory("Address-" + lane.name().toLowerCase(Locale.US)));
+            this.lane = lane;
+            allowCoreThreadTimeOut(true);
+        }
+
+        void enqueue(PrioritizedTask<?> task) {
+            synchronized (this) {
+                if (task.priority != Priority.INTERACTIVE
+                        && getQueue().size() + heldBulk.size() >= MAX_QUEUED_NON_INTERACTIVE) {
+                    rejected++;
+                    throw new RejectedExecutionException(lane + " lane queue is full");
+                }
+                if (task.priority == Priority.BULK) {
+                    if (isShutdown()) {
+                        throw new RejectedExecutionException(lane + " lane is shut down");
+                    }
+                    if (admittedBulk >= lane.maxBulk) {
+                        heldBulk.offer(task);
+                        return;
+                    }
+                    admittedBulk++;
+                }
+            }
+            execute(task);
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable runnable) {
+            super.beforeExecute(thread, runnable);
+            PrioritizedTask<?> task = (PrioritizedTask<?>) runnable;
+            task.startedAtNanos = System.nanoTime();
+            Process.setThreadPriority(task.priority == Priority.INTERACTIVE
+                    ? Process.THREAD_PRIORITY_DEFAULT : Process.THREAD_PRIORITY_BACKGROUND);
+
+            long waitNanos = task.startedAtNanos - task.enqueuedAtNanos;
+            if (task.priority == Priority.INTERACTIVE
+                    && waitNanos > TimeUnit.MILLISECONDS.toNanos(SLOW_INTERACTIVE_WAIT_MS)) {
+                Log.w(TAG, "Interactive " + lane + " task waited "
+                        + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms for a thread");
+            }
+        }
+
+        @Override
+        protected void afterExecute(Runnable runnable, Throwable throwable) {
+            super.afterExecute(runnable, throwable);
+            PrioritizedTask<?> task = (PrioritizedTask<?>) runnable;
+            long waitNanos = task.startedAtNanos - task.enqueuedAtNanos;
+            long runNanos = System.nanoTime() - task.startedAtNanos;
+            synchronized (this) {
+                completed++;
+                completedByPriority[task.priority.ordinal()]++;
+                totalWaitNanosByPriority[task.priority.ordinal()] += waitNanos;
+                maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+                totalRunNanos += runNanos;
+            }
+            if (task.priority == Priority.BULK) {
+                admitNextBulk();
+            }
+        }
+
+        private void admitNextBulk() {
+            PrioritizedTask<?> next;
+            synchronized (this) {
+                next = heldBulk.poll();
+                if (next == null) {
+                    admittedBulk--;
+                    return;
+                }
+            }
+            try {
+                execute(next);
+            } catch (RejectedExecutionException e) {
+                // Shut down; held tasks are dropped with the rest of the queue
+                synchronized (this) {
+                    heldBulk.clear();
+                }
+            }
+        }
+
+        synchronized LaneStats stats() {
+            LaneStats stats = new LaneStats();
+            stats.lane = lane;
+            stats.threads = getPoolSize();
+            stats.active = getActiveCount();
+            stats.queued = getQueue().size() + heldBulk.size();
+            stats.completed = completed;
+            stats.rejected = rejected;
+            stats.maxWaitMs = TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+            stats.totalRunMs = TimeUnit.NANOSECONDS.toMillis(totalRunNanos);
+            for (int i = 0; i < completedByPriority.length; i++) {
+                stats.completedByPriority[i] = completedByPriority[i];
+                stats.totalWaitMsByPriority[i] = TimeUnit.NANOSECONDS.toMillis(totalWaitNanosByPriority[i]);
+            }
+            return stats;
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, prefix + "-" + count.incrementAndGet());
+        }
+    }
+}
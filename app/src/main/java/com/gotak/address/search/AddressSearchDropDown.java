@@ -7,6 +7,7 @@ import android.content.SharedPreferences;
 import android.net.Uri;
 import android.content.res.Configuration;
 import android.graphics.Color;
+import android.os.CancellationSignal;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.Editable;
@@ -35,7 +36,10 @@ import com.atakmap.android.dropdown.DropDownReceiver;
 import com.atakmap.android.ipc.AtakBroadcast;
 import com.atakmap.android.maps.MapGroup;
 import com.atakmap.android.maps.Marker;
+import com.gotak.address.net.CotBroadcastQueue;
 import com.gotak.address.plugin.R;
+import com.gotak.address.sched.PluginScheduler;
+import com.gotak.address.search.nearby.BulkMarkerInserter;
 import com.gotak.address.search.nearby.IconsetHelper;
 import com.gotak.address.search.nearby.NearbyResultsAdapter;
 import com.gotak.address.search.nearby.OverpassApiClient;
@@ -44,9 +48,8 @@ import com.gotak.address.search.nearby.PointOfInterestType;
 import com.gotak.address.search.views.SavedView;
 import com.gotak.address.search.views.ViewsAdapter;
 import com.gotak.address.search.views.ViewsManager;
+import com.gotak.address.selfgeo.ReverseGeocodeCache;
 import com.atakmap.android.maps.MapView;
-import com.atakmap.android.cot.CotMapComponent;
-import com.atakmap.coremap.cot.event.CotEvent;
 import com.atakmap.coremap.log.Log;
 import com.atakmap.coremap.maps.coords.GeoPoint;
 
@@ -58,9 +61,12 @@ import android.graphics.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Future;
 
 /**
  * DropDown receiver for the address search panel.
@@ -106,6 +112,7 @@ public class AddressSearchDropDown extends DropDownReceiver implements
     private final OverpassApiClient overpassClient;
     private final IconsetHelper iconsetHelper;
     private final Handler mainHandler;
+    private BulkMarkerInserter markerInserter;
     private final SearchHistoryManager historyManager;
     private final SharedPreferences prefs;
 
@@ -170,6 +177,18 @@ public class AddressSearchDropDown extends DropDownReceiver implements
     // Debounce handling
     private final Runnable searchRunnable;
     private String pendingQuery = "";
+    
+    // Generation token for address searches (UI thread only) - results from
+    // searches started before the latest keystroke are dropped
+    private int searchGeneration = 0;
+    // Generation of the Nearby tab search; stale partial results are dropped
+    private int nearbySearchGeneration = 0;
+    // Location and category searches in flight (UI thread only), cancelled when superseded
+    private Future<?> locationSearch;
+    // Interrupts the location search's running SQLite queries, which a thread interrupt does not stop
+    private CancellationSignal locationSearchSignal;
+    private OverpassApiClient.Search categorySearch;
+    private OverpassApiClient.Search nearbySearch;
 
     public AddressSearchDropDown(MapView mapView, Context pluginContext) {
         super(mapView);
@@ -356,6 +375,7 @@ public class AddressSearchDropDown extends DropDownReceiver implements
                 tabNearby.setTextColor(activeColor);
                 tabNearby.setTypeface(null, android.graphics.Typeface.BOLD);
                 tabIndicatorNearby.setBackgroundColor(activeColor);
+                nearbyResultsAdapter.prewarmIcons();
                 break;
             case 2:
                 tabViews.setTextColor(activeColor);
@@ -517,7 +537,7 @@ public class AddressSearchDropDown extends DropDownReceiver implements
                 // Persist the new order
                 viewsManager.moveView(fromPosition, toPosition);
             }
-        });
+        }, viewsManager.getThumbnailStore());
         // Use 2-column grid for square thumbnails
         viewsRecyclerView.setLayoutManager(new androidx.recyclerview.widget.GridLayoutManager(pluginContext, 2));
         viewsRecyclerView.setAdapter(viewsAdapter);
@@ -674,20 +694,28 @@ public class AddressSearchDropDown extends DropDownReceiver implements
         final Bitmap thumbnail = captureMapThumbnail();
         
         // Do geocoding on background thread
-        new Thread(() -> {
+        PluginScheduler.getInstance().execute(PluginScheduler.Lane.IO, PluginScheduler.Priority.BACKGROUND, () -> {
             try {
                 String address = geocodeLocation(lat, lon);
                 String name = viewsManager.generateDefaultName();
                 
                 // Create the view - store raw mapScale for exact restoration
                 SavedView view = SavedView.capture(name, lat, lon, mapScale, 
-                    altitude, tilt, rotation, is3D, thumbnail, address);
+                    altitude, tilt, rotation, is3D, address);
+                if (thumbnail != null) {
+                    viewsManager.saveThumbnail(view, thumbnail);
+                }
                 
                 Log.i(TAG, "Created SavedView: " + view.toString() + 
                       " zoom=" + view.getZoom() + " tilt=" + view.getTilt() + " rot=" + view.getRotation());
                 
                 mainHandler.post(() -> {
-                    viewsManager.addView(view);
+                    // Views may have been saved meanwhile; a rejected view's thumbnail is removed
+                    if (!viewsManager.addView(view)) {
+                        android.widget.Toast.makeText(pluginContext, 
+                            R.string.max_views_reached, android.widget.Toast.LENGTH_SHORT).show();
+                        return;
+                    }
                     refreshViewsList();
                     android.widget.Toast.makeText(pluginContext, 
                         R.string.view_saved, android.widget.Toast.LENGTH_SHORT).show();
@@ -698,7 +726,7 @@ public class AddressSearchDropDown extends DropDownReceiver implements
                 mainHandler.post(() -> android.widget.Toast.makeText(pluginContext, 
                     "Error saving view", android.widget.Toast.LENGTH_SHORT).show());
             }
-        }, "SaveViewThread").start();
+        });
     }
     
     /**
@@ -794,8 +822,15 @@ public class AddressSearchDropDown extends DropDownReceiver implements
     
     /**
      * Geocode a location to get an address string.
+     * Shares results with the address widgets through ReverseGeocodeCache.
      */
     private String geocodeLocation(double lat, double lon) {
+        GeoPoint point = new GeoPoint(lat, lon);
+        android.location.Address cached = ReverseGeocodeCache.getInstance().getAtakAddress(point);
+        if (cached != null) {
+            return formatViewAddress(cached);
+        }
+        
         try {
             // Use ATAK's geocoder if available
             com.atakmap.android.user.geocode.GeocodeManager geocodeManager = 
@@ -803,40 +838,12 @@ public class AddressSearchDropDown extends DropDownReceiver implements
             com.atakmap.android.user.geocode.GeocodeManager.Geocoder geocoder = geocodeManager.getSelectedGeocoder();
             
             if (geocoder != null && geocoder.testServiceAvailable()) {
-                GeoPoint point = new GeoPoint(lat, lon);
                 java.util.List<android.location.Address> addresses = geocoder.getLocation(point);
                 
                 if (addresses != null && !addresses.isEmpty()) {
                     android.location.Address addr = addresses.get(0);
-                    StringBuilder sb = new StringBuilder();
-                    
-                    // Build full address - street number and name first
-                    String streetAddress = addr.getAddressLine(0);
-                    if (streetAddress != null && !streetAddress.isEmpty()) {
-                        // Use the first address line which typically has the full address
-                        return streetAddress;
-                    }
-                    
-                    // Fallback: build address from components
-                    if (addr.getSubThoroughfare() != null) {
-                        sb.append(addr.getSubThoroughfare()).append(" ");
-                    }
-                    if (addr.getThoroughfare() != null) {
-                        sb.append(addr.getThoroughfare());
-                    }
-                    if (addr.getLocality() != null) {
-                        if (sb.length() > 0) sb.append(", ");
-                        sb.append(addr.getLocality());
-                    } else if (addr.getSubAdminArea() != null) {
-                        if (sb.length() > 0) sb.append(", ");
-                        sb.append(addr.getSubAdminArea());
-                    }
-                    if (addr.getAdminArea() != null) {
-                        if (sb.length() > 0) sb.append(", ");
-                        sb.append(addr.getAdminArea());
-                    }
-                    
-                    return sb.length() > 0 ? sb.toString() : null;
+                    ReverseGeocodeCache.getInstance().putAtakAddress(point, addr);
+                    return formatViewAddress(addr);
                 }
             }
         } catch (Exception e) {
@@ -845,6 +852,41 @@ public class AddressSearchDropDown extends DropDownReceiver implements
         return null;
     }
     
+    /**
+     * Format a geocoded address for a saved view.
+     */
+    private static String formatViewAddress(android.location.Address addr) {
+        StringBuilder sb = new StringBuilder();
+        
+        // Build full address - street number and name first
+        String streetAddress = addr.getAddressLine(0);
+        if (streetAddress != null && !streetAddress.isEmpty()) {
+            // Use the first address line which typically has the full address
+            return streetAddress;
+        }
+        
+        // Fallback: build address from components
+        if (addr.getSubThoroughfare() != null) {
+            sb.append(addr.getSubThoroughfare()).append(" ");
+        }
+        if (addr.getThoroughfare() != null) {
+            sb.append(addr.getThoroughfare());
+        }
+        if (addr.getLocality() != null) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(addr.getLocality());
+        } else if (addr.getSubAdminArea() != null) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(addr.getSubAdminArea());
+        }
+        if (addr.getAdminArea() != null) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(addr.getAdminArea());
+        }
+        
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+    
     /**
      * Navigate to a saved view.
      */
@@ -1228,17 +1270,36 @@ public class AddressSearchDropDown extends DropDownReceiver implements
         nearbyResultsHeaderContainer.setVisibility(View.GONE);
         nearbyResultsRecyclerView.setVisibility(View.GONE);
 
-        // Perform search
+        // Perform search; results appear progressively while the online response streams in
+        final int generation = ++nearbySearchGeneration;
+        if (nearbySearch != null) {
+            nearbySearch.cancel();
+        }
+        nearbyResultsAdapter.clear();
         List<PointOfInterestType> typesList = new ArrayList<>(selectedCategories);
-        overpassClient.searchNearby(lat, lon, radiusKm, typesList, new OverpassApiClient.SearchCallback() {
+        nearbySearch = overpassClient.searchNearby(lat, lon, radiusKm, typesList, new OverpassApiClient.StreamingSearchCallback() {
+            @Override
+            public void onPartialResults(List<OverpassSearchResult> results) {
+                if (generation != nearbySearchGeneration || results.isEmpty()) {
+                    return;
+                }
+                showNearbyPartialResults(results);
+            }
+
             @Override
             public void onSuccess(List<OverpassSearchResult> results) {
+                if (generation != nearbySearchGeneration) {
+                    return;
+                }
                 Log.i(TAG, "Nearby search got " + results.size() + " results");
                 showNearbyResults(results);
             }
 
             @Override
             public void onError(String errorMessage) {
+                if (generation != nearbySearchGeneration) {
+                    return;
+                }
                 Log.e(TAG, "Nearby search error: " + errorMessage);
                 showNearbyError(errorMessage);
             }
@@ -1270,11 +1331,24 @@ public class AddressSearchDropDown extends DropDownReceiver implements
             nearbyResultsRecyclerView.setVisibility(View.VISIBLE);
             // Show result count in header
             nearbyResultsHeader.setText(String.valueOf(results.size()));
-            updateAddToMapButton(0);
-            nearbyResultsAdapter.setResults(results);
+            // Keeps anything selected while partial results were showing
+            nearbyResultsAdapter.updateResults(results);
+            updateAddToMapButton(nearbyResultsAdapter.getSelectedCount());
         }
     }
 
+    /**
+     * Show the closest results found so far; the spinner stays up until the search completes.
+     */
+    private void showNearbyPartialResults(List<OverpassSearchResult> results) {
+        nearbyStatus.setVisibility(View.GONE);
+        nearbyResultsHeaderContainer.setVisibility(View.VISIBLE);
+        nearbyResultsRecyclerView.setVisibility(View.VISIBLE);
+        nearbyResultsHeader.setText(String.valueOf(results.size()));
+        nearbyResultsAdapter.updateResults(results);
+        updateAddToMapButton(nearbyResultsAdapter.getSelectedCount());
+    }
+
     private void showNearbyError(String message) {
         setNearbySearching(false);
         String errorText = pluginContext.getString(R.string.nearby_search_error) + ": " + message;
@@ -1285,6 +1359,10 @@ public class AddressSearchDropDown extends DropDownReceiver implements
     }
 
     private void updateAddToMapButton(int selectedCount) {
+        if (markerInserter != null && markerInserter.isRunning()) {
+            // Showing insertion progress
+            return;
+        }
         if (selectedCount > 0) {
             addToMapButton.setText(pluginContext.getString(R.string.add_to_map) + " (" + selectedCount + ")");
         } else {
@@ -1293,6 +1371,12 @@ public class AddressSearchDropDown extends DropDownReceiver implements
     }
 
     private void addSelectedToMap() {
+        // While markers are being added the button cancels the insertion
+        if (markerInserter != null && markerInserter.isRunning()) {
+            markerInserter.cancel();
+            return;
+        }
+
         List<OverpassSearchResult> selected = nearbyResultsAdapter.getSelectedResults();
         if (selected.isEmpty()) {
             // If nothing selected, show message
@@ -1317,9 +1401,8 @@ public class AddressSearchDropDown extends DropDownReceiver implements
         return prefs.getBoolean("nearby_use_custom_icons", true);
     }
 
-    // Batch size for adding markers (to prevent UI thread overload)
-    private static final int MARKER_BATCH_SIZE = 25;
-    private static final long MARKER_BATCH_DELAY_MS = 50;
+    // Show a toast when adding more markers than this
+    private static final int MARKER_PROGRESS_TOAST_THRESHOLD = 25;
 
     private void addAllSelectedWithAutoType(List<OverpassSearchResult> results, boolean broadcastToNetwork) {
         MapGroup rootGroup = getMapView().getRootGroup();
@@ -1333,12 +1416,11 @@ public class AddressSearchDropDown extends DropDownReceiver implements
             userObjects = rootGroup.addGroup("User Objects");
         }
 
-        final MapGroup finalUserObjects = userObjects;
         final boolean useCustomIcons = isCustomIconsEnabled();
         final int totalCount = results.size();
         
         // Show progress for large batches
-        if (totalCount > MARKER_BATCH_SIZE) {
+        if (totalCount > MARKER_PROGRESS_TOAST_THRESHOLD) {
             android.widget.Toast.makeText(pluginContext, 
                 "Adding " + totalCount + " markers...", 
                 android.widget.Toast.LENGTH_SHORT).show();
@@ -1346,87 +1428,58 @@ public class AddressSearchDropDown extends DropDownReceiver implements
         
         // Clear selection immediately for better UX
         nearbyResultsAdapter.deselectAll();
-        updateAddToMapButton(0);
-        
-        // Process markers in batches on a background thread
-        new Thread(() -> {
-            int successCount = 0;
-            int skippedCount = 0;
-            
-            for (int i = 0; i < results.size(); i++) {
-                final OverpassSearchResult result = results.get(i);
-                final int index = i;
-                
-                try {
-                    // Generate consistent UID based on OSM ID to prevent duplicates
-                    String uid = generatePoiUid(result);
-                    
-                    // Check if marker already exists
-                    if (getMapView().getRootGroup().deepFindUID(uid) != null) {
-                        Log.d(TAG, "Marker already exists, skipping: " + uid);
-                        skippedCount++;
-                        continue;
-                    }
-                    
-                    // Create marker (can be done on background thread)
-                    Marker marker = createMarkerForResult(result, useCustomIcons, uid);
-                    
-                    // Add to map on UI thread
-                    mainHandler.post(() -> {
-                        try {
-                            finalUserObjects.addItem(marker);
-                            
-                            // Only refresh every few markers to reduce UI load
-                            if (index % 10 == 0 || index == results.size() - 1) {
-                                marker.refresh(getMapView().getMapEventDispatcher(), null, AddressSearchDropDown.class);
-                            }
-                            
-                            // Broadcast if requested (throttled)
-                            if (broadcastToNetwork) {
+
+        // Consistent UIDs based on OSM ID prevent duplicates, including within this batch
+        Map<String, OverpassSearchResult> resultsByUid = new LinkedHashMap<>();
+        for (OverpassSearchResult result : results) {
+            resultsByUid.put(generatePoiUid(result), result);
+        }
+        final int duplicatesInBatch = totalCount - resultsByUid.size();
+
+        markerInserter = new BulkMarkerInserter(getMapView(), userObjects,
+                (result, uid) -> createMarkerForResult(result, useCustomIcons, uid),
+                new BulkMarkerInserter.Listener() {
+                    @Override
+                    public void onMarkersAdded(List<Marker> markers) {
+                        if (broadcastToNetwork) {
+                            for (Marker marker : markers) {
                                 broadcastMarker(marker);
                             }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error adding marker to map: " + e.getMessage());
                         }
-                    });
-                    
-                    successCount++;
-                    
-                    // Yield between batches to prevent overwhelming the system
-                    if ((i + 1) % MARKER_BATCH_SIZE == 0 && i < results.size() - 1) {
-                        try {
-                            Thread.sleep(MARKER_BATCH_DELAY_MS);
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
+                    }
+
+                    @Override
+                    public void onProgress(int added, int skipped, int total) {
+                        addToMapButton.setText("Adding " + (added + skipped) + "/" + total + "... (tap to cancel)");
+                    }
+
+                    @Override
+                    public void onFinished(int added, int skipped, boolean cancelled) {
+                        updateAddToMapButton(nearbyResultsAdapter.getSelectedResults().size());
+                        int finalSkipped = skipped + duplicatesInBatch;
+                        Log.i(TAG, "Added " + added + " POI markers to map" + (broadcastToNetwork ? " (broadcasted)" : "") + 
+                              (finalSkipped > 0 ? ", skipped " + finalSkipped + " duplicates" : ""));
+                        String message;
+                        if (cancelled) {
+                            message = "Stopped after adding " + added + " of " + totalCount + " markers";
+                        } else if (finalSkipped > 0 && added == 0) {
+                            message = "All " + finalSkipped + " markers already on map";
+                        } else if (finalSkipped > 0) {
+                            message = "Added " + added + " markers (" + finalSkipped + " already on map)";
+                        } else if (broadcastToNetwork) {
+                            message = String.format(pluginContext.getString(R.string.added_markers_broadcast), added);
+                            int queued = CotBroadcastQueue.getInstance().getQueueDepth();
+                            if (queued > 0) {
+                                message += " (" + queued + " still being sent)";
+                            }
+                        } else {
+                            message = String.format(pluginContext.getString(R.string.added_markers), added);
                         }
+                        android.widget.Toast.makeText(pluginContext, message, android.widget.Toast.LENGTH_SHORT).show();
                     }
-                    
-                } catch (Exception e) {
-                    Log.e(TAG, "Error creating marker: " + e.getMessage());
-                }
-            }
-            
-            // Show completion toast on UI thread
-            final int finalCount = successCount;
-            final int finalSkipped = skippedCount;
-            mainHandler.post(() -> {
-                Log.i(TAG, "Added " + finalCount + " POI markers to map" + (broadcastToNetwork ? " (broadcasted)" : "") + 
-                      (finalSkipped > 0 ? ", skipped " + finalSkipped + " duplicates" : ""));
-                String message;
-                if (finalSkipped > 0 && finalCount == 0) {
-                    message = "All " + finalSkipped + " markers already on map";
-                } else if (finalSkipped > 0) {
-                    message = "Added " + finalCount + " markers (" + finalSkipped + " already on map)";
-                } else if (broadcastToNetwork) {
-                    message = String.format(pluginContext.getString(R.string.added_markers_broadcast), finalCount);
-                } else {
-                    message = String.format(pluginContext.getString(R.string.added_markers), finalCount);
-                }
-                android.widget.Toast.makeText(pluginContext, message, android.widget.Toast.LENGTH_SHORT).show();
-            });
-            
-        }, "AddMarkersThread").start();
+                });
+        addToMapButton.setText("Adding " + totalCount + " markers... (tap to cancel)");
+        markerInserter.start(resultsByUid);
     }
     
     /**
@@ -1520,90 +1573,17 @@ public class AddressSearchDropDown extends DropDownReceiver implements
     
     /**
      * Broadcast a marker to the TAK network.
-     * Uses the same approach as RIDAR - dispatch to both internal and external dispatchers.
+     * Persists it locally, then queues it on the rate-limited CoT broadcast queue.
      */
     private void broadcastMarker(Marker marker) {
         try {
             // Persist locally first
             marker.persist(getMapView().getMapEventDispatcher(), null, AddressSearchDropDown.class);
-            
-            // Build CotEvent manually from marker properties (like RIDAR does)
-            CotEvent cotEvent = createCotEventFromMarker(marker);
-            if (cotEvent != null && cotEvent.isValid()) {
-                CotMapComponent.getInternalDispatcher().dispatch(cotEvent);
-                CotMapComponent.getExternalDispatcher().dispatch(cotEvent);
-                Log.d(TAG, "Broadcasted marker to internal + external: " + marker.getUID());
-            }
+            CotBroadcastQueue.getInstance().enqueue(marker);
         } catch (Exception e) {
             Log.e(TAG, "Error broadcasting marker: " + e.getMessage());
         }
     }
-    
-    /**
-     * Create a CotEvent from a Marker (similar to how RIDAR generates CoT events).
-     */
-    private CotEvent createCotEventFromMarker(Marker marker) {
-        try {
-            CotEvent event = new CotEvent();
-            
-            // Set UID and type
-            event.setUID(marker.getUID());
-            event.setType(marker.getType());
-            
-            // Set times
-            com.atakmap.coremap.maps.time.CoordinatedTime now = new com.atakmap.coremap.maps.time.CoordinatedTime();
-            com.atakmap.coremap.maps.time.CoordinatedTime stale = new com.atakmap.coremap.maps.time.CoordinatedTime(
-                now.getMilliseconds() + (60 * 60 * 1000)); // 1 hour stale
-            event.setTime(now);
-            event.setStart(now);
-            event.setStale(stale);
-            event.setHow("h-g-i-g-o");
-            
-            // Set point
-            GeoPoint point = marker.getPoint();
-            com.atakmap.coremap.cot.event.CotPoint cotPoint = new com.atakmap.coremap.cot.event.CotPoint(
-                point.getLatitude(), point.getLongitude(), point.getAltitude(),
-                com.atakmap.coremap.cot.event.CotPoint.UNKNOWN, 
-                com.atakmap.coremap.cot.event.CotPoint.UNKNOWN);
-            event.setPoint(cotPoint);
-            
-            // Build detail
-            com.atakmap.coremap.cot.event.CotDetail detail = new com.atakmap.coremap.cot.event.CotDetail("detail");
-            
-            // Add contact (callsign/title)
-            com.atakmap.coremap.cot.event.CotDetail contact = new com.atakmap.coremap.cot.event.CotDetail("contact");
-            contact.setAttribute("callsign", marker.getTitle() != null ? marker.getTitle() : marker.getUID());
-            detail.addChild(contact);
-            
-            // Add remarks
-            String remarks = marker.getMetaString("remarks", "");
-            if (!remarks.isEmpty()) {
-                com.atakmap.coremap.cot.event.CotDetail remarksDetail = new com.atakmap.coremap.cot.event.CotDetail("remarks");
-                remarksDetail.setInnerText(remarks);
-                detail.addChild(remarksDetail);
-            }
-            
-            // Add usericon if present
-            String usericon = marker.getMetaString("usericon", null);
-            if (usericon != null) {
-                com.atakmap.coremap.cot.event.CotDetail useridDetail = new com.atakmap.coremap.cot.event.CotDetail("usericon");
-                useridDetail.setAttribute("iconsetpath", usericon);
-                detail.addChild(useridDetail);
-            }
-            
-            // Add status
-            com.atakmap.coremap.cot.event.CotDetail status = new com.atakmap.coremap.cot.event.CotDetail("status");
-            status.setAttribute("readiness", "true");
-            detail.addChild(status);
-            
-            event.setDetail(detail);
-            
-            return event;
-        } catch (Exception e) {
-            Log.e(TAG, "Error creating CotEvent from marker: " + e.getMessage());
-            return null;
-        }
-    }
 
     // NearbyResultsAdapter.OnResultClickListener implementation
     @Override
@@ -1786,8 +1766,9 @@ public class AddressSearchDropDown extends DropDownReceiver implements
                 // Show/hide clear button
                 clearButton.setVisibility(text.isEmpty() ? View.GONE : View.VISIBLE);
 
-                // Cancel any pending search
+                // Cancel any pending search and abandon the one in flight
                 mainHandler.removeCallbacks(searchRunnable);
+                cancelInFlightSearch();
 
                 if (text.length() >= MIN_QUERY_LENGTH) {
                     // Hide history when searching
@@ -1851,8 +1832,30 @@ public class AddressSearchDropDown extends DropDownReceiver implements
     // Maximum results for location-specific searches
     private static final int LOCATION_SEARCH_LIMIT = 50;
 
+    /**
+     * Supersede the current address search so its work stops and its results are ignored.
+     * Covers the online/offline address search as well as location and category searches.
+     */
+    private void cancelInFlightSearch() {
+        apiClient.cancelSearch();
+        if (locationSearch != null) {
+            locationSearch.cancel(true);
+            locationSearch = null;
+        }
+        if (locationSearchSignal != null) {
+            locationSearchSignal.cancel();
+            locationSearchSignal = null;
+        }
+        if (categorySearch != null) {
+            categorySearch.cancel();
+            categorySearch = null;
+        }
+        searchGeneration++;
+    }
+
     private void performSearch(String query) {
         Log.i(TAG, "Searching for: " + query);
+        cancelInFlightSearch();
         
         // Check if this is a category/POI search (e.g., "gas station near me", "gas arkansas")
         CategoryMatcher.MatchResult categoryMatch = CategoryMatcher.detectCategory(query);
@@ -1883,8 +1886,16 @@ public class AddressSearchDropDown extends DropDownReceiver implements
             showSearching();
         }
 
-        // Standard address search
-        apiClient.search(query, new NominatimApiClient.SearchCallback() {
+        // Standard address search - offline results stream in as each state answers
+        apiClient.search(query, new NominatimApiClient.StreamingSearchCallback() {
+            @Override
+            public void onPartialResults(List<NominatimSearchResult> results, String stateId) {
+                Log.d(TAG, "Got " + results.size() + " partial results after " + stateId);
+                if (!results.isEmpty()) {
+                    showResults(results);
+                }
+            }
+
             @Override
             public void onSuccess(List<NominatimSearchResult> results) {
                 Log.i(TAG, "Got " + results.size() + " results");
@@ -1946,7 +1957,10 @@ public class AddressSearchDropDown extends DropDownReceiver implements
         final String locationFilter = extractLocationFilter(searchTerm, match.hasMatch() ? match.getCategory() : null);
         
         // Run search on background thread
-        new Thread(() -> {
+        final int generation = searchGeneration;
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        locationSearchSignal = cancellationSignal;
+        locationSearch = PluginScheduler.getInstance().submit(PluginScheduler.Lane.DB, PluginScheduler.Priority.INTERACTIVE, () -> {
             List<NominatimSearchResult> results = new ArrayList<>();
             
             if (match.hasMatch()) {
@@ -1956,7 +1970,7 @@ public class AddressSearchDropDown extends DropDownReceiver implements
                 categories.add(category);
                 
                 List<OverpassSearchResult> poiResults = offlineDb.searchStatePOIsByCategory(
-                        stateId, categories, LOCATION_SEARCH_LIMIT);
+                        stateId, categories, LOCATION_SEARCH_LIMIT, cancellationSignal);
                 
                 // Filter by location if specified (e.g., "norfolk" in "gas norfolk virginia")
                 if (locationFilter != null && !locationFilter.isEmpty()) {
@@ -1999,15 +2013,18 @@ public class AddressSearchDropDown extends DropDownReceiver implements
                           " found " + results.size() + " results");
             } else {
                 // Name search (e.g., "walmart arkansas") - search by name in places and POIs
-                results = offlineDb.searchStateByName(stateId, searchTerm);
+                results = offlineDb.searchStateByName(stateId, searchTerm, cancellationSignal);
                 Log.i(TAG, "Offline name search for '" + searchTerm + "' in " + stateId + 
                           " found " + results.size() + " results");
             }
             
             final List<NominatimSearchResult> finalResults = results;
             
-            // Show results on UI thread
+            // Show results on UI thread unless a newer search has started
             mainHandler.post(() -> {
+                if (generation != searchGeneration) {
+                    return;
+                }
                 if (finalResults.isEmpty()) {
                     String categoryName = match.hasMatch() ? 
                             CategoryMatcher.getCategoryDisplayName(match.getCategory()) : searchTerm;
@@ -2021,7 +2038,7 @@ public class AddressSearchDropDown extends DropDownReceiver implements
                     showResults(finalResults);
                 }
             });
-        }, "LocationSearchThread").start();
+        });
     }
     
     /**
@@ -2136,17 +2153,24 @@ public class AddressSearchDropDown extends DropDownReceiver implements
         searchStatus.setVisibility(View.VISIBLE);
         
         // Perform the POI search
+        final int generation = searchGeneration;
         List<PointOfInterestType> types = Collections.singletonList(category);
-        overpassClient.searchNearby(lat, lon, CATEGORY_SEARCH_RADIUS_KM, types, 
+        categorySearch = overpassClient.searchNearby(lat, lon, CATEGORY_SEARCH_RADIUS_KM, types, 
             new OverpassApiClient.SearchCallback() {
                 @Override
                 public void onSuccess(List<OverpassSearchResult> results) {
+                    if (generation != searchGeneration) {
+                        return;
+                    }
                     Log.i(TAG, "Category search got " + results.size() + " results for " + categoryName);
                     showCategoryResults(results, category);
                 }
 
                 @Override
                 public void onError(String errorMessage) {
+                    if (generation != searchGeneration) {
+                        return;
+                    }
                     Log.e(TAG, "Category search error: " + errorMessage);
                     showError(errorMessage);
                 }
@@ -2499,6 +2523,7 @@ public class AddressSearchDropDown extends DropDownReceiver implements
 
     private void cleanup() {
         mainHandler.removeCallbacks(searchRunnable);
+        cancelInFlightSearch();
         if (resultsAdapter != null) {
             resultsAdapter.clear();
         }
@@ -2596,6 +2621,10 @@ public class AddressSearchDropDown extends DropDownReceiver implements
     @Override
     protected void disposeImpl() {
         cleanup();
+        if (markerInserter != null) {
+            markerInserter.cancel();
+        }
+        // Queued broadcasts keep draining; the queue is only dropped on plugin unload
         apiClient.shutdown();
         overpassClient.shutdown();
     }
@@ -0,0 +1,214 @@
+package com.gotak.address.search;
+
+import com.atakmap.coremap.log.Log;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of open state databases, budgeted by page-cache memory.
+ *
+ * Each cached connection is charged the memory its page cache can grow to: the
+ * smaller of the database file size and the profile's per-connection cache size.
+ * Least recently used connections are evicted once the total exceeds the budget, so
+ * many small state databases can stay open together while a few large ones share
+ * the same memory.
+ *
+ * Callers get leases rather than connections. An evicted or removed pool stops handing
+ * out new leases and closes its connection when the last outstanding lease is returned.
+ */
+public class DatabaseConnectionCache {
+    private static final String TAG = "DatabaseConnectionCache";
+
+    // Schema, compiled statements and connection bookkeeping outside the page cache
+    private static final long CONNECTION_OVERHEAD_BYTES = 64L * 1024;
+
+    private final SQLiteTuningProfile profile;
+    private final long budgetBytes;
+    private final LinkedHashMap<String, CachedPool> pools = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private static class CachedPool {
+        final StatementPool pool;
+        final long costBytes;
+
+        CachedPool(StatementPool pool, long costBytes) {
+            this.pool = pool;
+            this.costBytes = costBytes;
+        }
+    }
+
+    /**
+     * Snapshot of cache usage counters.
+     */
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final int openConnections;
+        public final long usedBytes;
+        public final long budgetBytes;
+
+        Stats(long hits, long misses, long evictions, int openConnections,
+              long usedBytes, long budgetBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.openConnections = openConnections;
+            this.usedBytes = usedBytes;
+            this.budgetBytes = budgetBytes;
+        }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "hits=%d misses=%d evictions=%d hitRate=%.2f open=%d used=%dKB budget=%dKB",
+                    hits, misses, evictions, getHitRate(), openConnections,
+                    usedBytes / 1024, budgetBytes / 1024);
+        }
+    }
+
+    /**
+     * @param profile Settings each connection is opened with; also sets the memory budget
+     */
+    public DatabaseConnectionCache(SQLiteTuningProfile profile) {
+        this.profile = profile;
+        this.budgetBytes = profile.getConnectionBudgetBytes();
+    }
+
+    /**
+     * Lease a state's database, opening it if it is not cached.
+     *
+     * @param stateId The state database ID
+     * @param dbFile The state's database file
+     * @return The lease, or null if the database doesn't exist or can't be opened
+     */
+    public StatementPool.Lease acquire(String stateId, File dbFile) {
+        // Check cache first (this also updates access order for LRU)
+        synchronized (this) {
+            StatementPool.Lease lease = leaseCached(stateId);
+            if (lease != null) {
+                hits++;
+                return lease;
+            }
+            misses++;
+        }
+
+        // Open outside the lock so other states stay available meanwhile
+        if (!dbFile.exists()) {
+            Log.w(TAG, "Database not found: " + dbFile.getPath());
+            return null;
+        }
+
+        StatementPool newPool;
+        try {
+            newPool = new StatementPool(stateId, profile.open(dbFile));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to open database: " + stateId + " - " + e.getMessage(), e);
+            return null;
+        }
+
+        synchronized (this) {
+            // Another thread may have opened the same state meanwhile - prefer the cached one
+            StatementPool.Lease lease = leaseCached(stateId);
+            if (lease != null) {
+                newPool.release();
+                return lease;
+            }
+
+            // Lease before caching so an immediate eviction can't close it
+            lease = newPool.acquire();
+            long cost = estimateCost(dbFile);
+            pools.put(stateId, new CachedPool(newPool, cost));
+            usedBytes += cost;
+            Log.i(TAG, "Opened and cached database: " + stateId + " (" + cost / 1024 + "KB)");
+
+            evictToBudget(stateId);
+            return lease;
+        }
+    }
+
+    /**
+     * Drop a state from the cache (e.g. before its file is deleted).
+     * The connection closes once any outstanding leases are returned.
+     */
+    public synchronized void remove(String stateId) {
+        CachedPool cached = pools.remove(stateId);
+        if (cached != null) {
+            usedBytes -= cached.costBytes;
+            cached.pool.release();
+        }
+    }
+
+    /**
+     * Release every cached connection.
+     */
+    public synchronized void clear() {
+        for (Map.Entry<String, CachedPool> entry : pools.entrySet()) {
+            entry.getValue().pool.release();
+            Log.d(TAG, "Closed cached database: " + entry.getKey());
+        }
+        pools.clear();
+        usedBytes = 0;
+        Log.i(TAG, "Connection cache cleared: " + getStats());
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, pools.size(), usedBytes, budgetBytes);
+    }
+
+    /**
+     * Lease the cached pool for a state, dropping the entry if it can no longer be leased.
+     */
+    private StatementPool.Lease leaseCached(String stateId) {
+        CachedPool cached = pools.get(stateId);
+        if (cached == null) {
+            return null;
+        }
+
+        StatementPool.Lease lease = cached.pool.acquire();
+        if (lease == null) {
+            // Remove stale entry if database was closed
+            pools.remove(stateId);
+            usedBytes -= cached.costBytes;
+        }
+        return lease;
+    }
+
+    /**
+     * Evict least recently used connections until the cache fits its budget.
+     * The connection just opened is never evicted, even if it alone exceeds the budget.
+     */
+    private void evictToBudget(String keepStateId) {
+        Iterator<Map.Entry<String, CachedPool>> it = pools.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, CachedPool> eldest = it.next();
+            if (eldest.getKey().equals(keepStateId)) {
+                continue;
+            }
+            it.remove();
+            usedBytes -= eldest.getValue().costBytes;
+            eldest.getValue().pool.release();
+            evictions++;
+            Log.d(TAG, "Evicted database from cache: " + eldest.getKey() + " - " + getStats());
+        }
+    }
+
+    /**
+     * Page-cache memory a connection can grow to: it never caches more pages than the file has.
+     * Memory-mapped pages are shared with the OS page cache and aren't charged.
+     */
+    private long estimateCost(File dbFile) {
+        return Math.min(dbFile.length(), profile.getPageCacheBytes()) + CONNECTION_OVERHEAD_BYTES;
+    }
+}
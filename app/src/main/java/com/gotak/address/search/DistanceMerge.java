@@ -0,0 +1,42 @@
+package com.gotak.address.search;
+
+import com.gotak.address.search.nearby.OverpassSearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * K-way merge of per-state POI lists that are each ordered nearest first.
+ */
+final class DistanceMerge {
+
+    private DistanceMerge() {
+    }
+
+    /**
+     * Merge distance-ordered lists, stopping once limit rows are taken.
+     */
+    static List<OverpassSearchResult> merge(List<List<OverpassSearchResult>> lists, int limit) {
+        // Heap of {list index, position}, ordered by the distance of the row at that position
+        PriorityQueue<int[]> heap = new PriorityQueue<>(Math.max(1, lists.size()), (a, b) -> Double.compare(
+                lists.get(a[0]).get(a[1]).getDistanceMeters(),
+                lists.get(b[0]).get(b[1]).getDistanceMeters()));
+        for (int i = 0; i < lists.size(); i++) {
+            if (!lists.get(i).isEmpty()) {
+                heap.add(new int[]{i, 0});
+            }
+        }
+
+        List<OverpassSearchResult> merged = new ArrayList<>();
+        while (!heap.isEmpty() && merged.size() < limit) {
+            int[] head = heap.poll();
+            List<OverpassSearchResult> list = lists.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (head[1] + 1 < list.size()) {
+                heap.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return merged;
+    }
+}
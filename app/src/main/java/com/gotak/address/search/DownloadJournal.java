@@ -0,0 +1,194 @@
+package com.gotak.address.search;
+
+import com.atakmap.coremap.log.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Progress record for a resumable state database download.
+ *
+ * The database is fetched with HTTP Range requests into a part file of its final size.
+ * The file is split into segments, and the journal records how many bytes of each
+ * segment have been written. It is saved next to the part file, so after a dropped
+ * connection or a plugin restart only the missing byte ranges are requested again.
+ *
+ * The server's validator (ETag or Last-Modified) is kept and sent as If-Range, so a
+ * database republished between attempts restarts the download instead of splicing two
+ * versions together.
+ */
+public class DownloadJournal {
+    private static final String TAG = "DownloadJournal";
+
+    private final String url;
+    private final long totalBytes;
+    private final String validator;
+    private final List<Segment> segments;
+
+    /**
+     * One byte range of the file, end inclusive.
+     */
+    public static class Segment {
+        public final long start;
+        public final long end;
+        long written;
+
+        Segment(long start, long end, long written) {
+            this.start = start;
+            this.end = end;
+            this.written = written;
+        }
+
+        public long length() {
+            return end - start + 1;
+        }
+
+        /**
+         * Offset of the first byte still missing.
+         */
+        public synchronized long nextOffset() {
+            return start + written;
+        }
+
+        public synchronized boolean isComplete() {
+            return written >= length();
+        }
+
+        synchronized void addWritten(long bytes) {
+            written += bytes;
+        }
+
+        synchronized long getWritten() {
+            return written;
+        }
+    }
+
+    private DownloadJournal(String url, long totalBytes, String validator, List<Segment> segments) {
+        this.url = url;
+        this.totalBytes = totalBytes;
+        this.validator = validator;
+        this.segments = segments;
+    }
+
+    /**
+     * New journal for a file of totalBytes split into segmentCount equal ranges.
+     */
+    public static DownloadJournal create(String url, long totalBytes, String validator, int segmentCount) {
+        int count = (int) Math.max(1, Math.min(segmentCount, totalBytes));
+        long segmentSize = (totalBytes + count - 1) / count;
+        List<Segment> segments = new ArrayList<>();
+        for (long start = 0; start < totalBytes; start += segmentSize) {
+            segments.add(new Segment(start, Math.min(totalBytes, start + segmentSize) - 1, 0));
+        }
+        return new DownloadJournal(url, totalBytes, validator, segments);
+    }
+
+    /**
+     * Read a saved journal.
+     *
+     * @return The journal, or null if there is none or it is unreadable
+     */
+    public static DownloadJournal load(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+
+            JSONObject root = new JSONObject(sb.toString());
+            List<Segment> segments = new ArrayList<>();
+            JSONArray segmentsJson = root.getJSONArray("segments");
+            for (int i = 0; i < segmentsJson.length(); i++) {
+                JSONObject segment = segmentsJson.getJSONObject(i);
+                segments.add(new Segment(segment.getLong("start"), segment.getLong("end"),
+                        segment.getLong("written")));
+            }
+            return new DownloadJournal(root.getString("url"), root.getLong("total"),
+                    root.optString("validator", null), segments);
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Ignoring unreadable download journal " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the journal, replacing the previous copy atomically.
+     */
+    public synchronized void save(File file) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            JSONArray segmentsJson = new JSONArray();
+            for (Segment segment : segments) {
+                segmentsJson.put(new JSONObject()
+                        .put("start", segment.start)
+                        .put("end", segment.end)
+                        .put("written", segment.getWritten()));
+            }
+            JSONObject root = new JSONObject()
+                    .put("url", url)
+                    .put("total", totalBytes)
+                    .put("validator", validator)
+                    .put("segments", segmentsJson);
+
+            try (FileWriter writer = new FileWriter(tempFile)) {
+                writer.write(root.toString());
+            }
+        } catch (JSONException e) {
+            throw new IOException("Could not encode download journal: " + e.getMessage(), e);
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Failed to save download journal");
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * ETag or Last-Modified of the file being downloaded, or null if the server sent neither.
+     */
+    public String getValidator() {
+        return validator;
+    }
+
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    public long getDownloadedBytes() {
+        long downloaded = 0;
+        for (Segment segment : segments) {
+            downloaded += Math.min(segment.getWritten(), segment.length());
+        }
+        return downloaded;
+    }
+
+    public boolean isComplete() {
+        for (Segment segment : segments) {
+            if (!segment.isComplete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
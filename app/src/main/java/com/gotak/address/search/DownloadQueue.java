@@ -0,0 +1,477 @@
+package com.gotak.address.search;
+
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+
+import com.atakmap.android.maps.MapView;
+import com.atakmap.coremap.log.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Queue of state database downloads, run a few at a time.
+ *
+ * Queued states are saved to download_queue.json in the database directory, so a queue
+ * interrupted by an ATAK restart picks up again when the plugin loads; each download
+ * itself resumes from its DownloadJournal. Failed states stay failed across restarts
+ * until they are retried or removed. Tracks per-state progress and the combined
+ * transfer rate and time remaining for the whole queue.
+ *
+ * Not thread-safe: call from the main thread. OfflineDataManager delivers its download
+ * callbacks there, and so does the queue's Listener.
+ */
+public class DownloadQueue {
+    private static final String TAG = "DownloadQueue";
+
+    public static final String PREF_CONCURRENCY = "address_download_concurrency";
+    private static final int DEFAULT_CONCURRENCY = 2;
+    private static final int MAX_CONCURRENCY = 3;
+
+    private static final String QUEUE_FILE = "download_queue.json";
+    // Transfer rate is averaged over this window
+    private static final long RATE_WINDOW_MS = 5000;
+
+    public enum Status {
+        QUEUED,
+        DOWNLOADING,
+        FAILED
+    }
+
+    /**
+     * One state in the queue.
+     */
+    public static class Item {
+        public final String stateId;
+        public final String name;
+        public final String filename;
+        Status status = Status.QUEUED;
+        long downloadedBytes;
+        long totalBytes;
+        String error;
+
+        Item(String stateId, String name, String filename, long totalBytes) {
+            this.stateId = stateId;
+            this.name = name;
+            this.filename = filename;
+            this.totalBytes = totalBytes;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getDownloadedBytes() {
+            return downloadedBytes;
+        }
+
+        /**
+         * Size from the manifest until the server reports it, 0 if unknown.
+         */
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public int getPercent() {
+            return totalBytes > 0 ? (int) (downloadedBytes * 100 / totalBytes) : 0;
+        }
+
+        /**
+         * Why the last attempt failed, for FAILED items.
+         */
+        public String getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Queue events, delivered on the main thread.
+     */
+    public interface Listener {
+        /** Items were added, removed, or changed status. */
+        void onQueueChanged();
+        void onItemProgress(Item item);
+        void onItemComplete(Item item, File dbFile);
+        void onItemFailed(Item item, String error);
+    }
+
+    private final OfflineDataManager dataManager;
+    private final File queueFile;
+    private final List<Item> items = new ArrayList<>();
+    private Listener listener;
+    private boolean shutdown = false;
+
+    // (time, bytes) samples of recent progress, for the transfer rate
+    private final ArrayDeque<long[]> rateSamples = new ArrayDeque<>();
+
+    public DownloadQueue(OfflineDataManager dataManager, File databaseDir) {
+        this.dataManager = dataManager;
+        this.queueFile = new File(databaseDir, QUEUE_FILE);
+        load();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Start downloading the saved queue, if any (plugin load).
+     */
+    public void resume() {
+        int queued = countWithStatus(Status.QUEUED);
+        if (queued > 0) {
+            Log.i(TAG, "Resuming " + queued + " queued downloads");
+        }
+        startNext();
+    }
+
+    /**
+     * Add a state to the end of the queue, or retry it if its download failed.
+     *
+     * @return false if the state is already queued or downloading
+     */
+    public boolean enqueue(OfflineDataManager.StateInfo state) {
+        Item existing = getItem(state.id);
+        if (existing != null) {
+            if (existing.status != Status.FAILED) {
+                return false;
+            }
+            existing.status = Status.QUEUED;
+            existing.error = null;
+        } else {
+            Item item = new Item(state.id, state.name, state.filename, state.size);
+            item.downloadedBytes = dataManager.getResumableBytes(state.id);
+            items.add(item);
+        }
+        save();
+        notifyQueueChanged();
+        startNext();
+        return true;
+    }
+
+    /**
+     * Remove a state from the queue, cancelling its download if it is running.
+     * Also dismisses a failed download.
+     */
+    public void cancel(String stateId) {
+        Item item = getItem(stateId);
+        if (item == null) {
+            return;
+        }
+        if (item.status == Status.DOWNLOADING) {
+            // Removed when the download reports it was cancelled
+            dataManager.cancelDownload(stateId);
+            return;
+        }
+        items.remove(item);
+        save();
+        notifyQueueChanged();
+    }
+
+    /**
+     * Cancel every download and empty the queue.
+     */
+    public void cancelAll() {
+        for (Item item : new ArrayList<>(items)) {
+            cancel(item.stateId);
+        }
+    }
+
+    /**
+     * Stop running downloads without dequeuing them; they resume on the next plugin load.
+     */
+    public void shutdown() {
+        shutdown = true;
+        dataManager.shutdown();
+    }
+
+    public List<Item> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public Item getItem(String stateId) {
+        for (Item item : items) {
+            if (item.stateId.equals(stateId)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public int countWithStatus(Status status) {
+        int count = 0;
+        for (Item item : items) {
+            if (item.status == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Combined download rate over the last few seconds, in bytes per second.
+     */
+    public long getBytesPerSecond() {
+        trimRateSamples(SystemClock.elapsedRealtime());
+        if (rateSamples.size() < 2) {
+            return 0;
+        }
+        long bytes = 0;
+        for (long[] sample : rateSamples) {
+            bytes += sample[1];
+        }
+        // The first sample's bytes arrived before the window being measured
+        bytes -= rateSamples.peekFirst()[1];
+        long elapsedMs = rateSamples.peekLast()[0] - rateSamples.peekFirst()[0];
+        return elapsedMs > 0 ? bytes * 1000 / elapsedMs : 0;
+    }
+
+    /**
+     * Estimated seconds until every queued and running download finishes, or -1 if unknown.
+     */
+    public long getEtaSeconds() {
+        long bytesPerSecond = getBytesPerSecond();
+        if (bytesPerSecond <= 0) {
+            return -1;
+        }
+        long remaining = 0;
+        for (Item item : items) {
+            if (item.status == Status.FAILED) {
+                continue;
+            }
+            if (item.totalBytes <= 0) {
+                return -1;
+            }
+            remaining += Math.max(0, item.totalBytes - item.downloadedBytes);
+        }
+        return remaining / bytesPerSecond;
+    }
+
+    /**
+     * Overall completion of the queued and running downloads, 0-100.
+     */
+    public int getOverallPercent() {
+        long total = 0;
+        long downloaded = 0;
+        for (Item item : items) {
+            if (item.status != Status.FAILED) {
+                total += item.totalBytes;
+                downloaded += item.downloadedBytes;
+            }
+        }
+        return total > 0 ? (int) (downloaded * 100 / total) : 0;
+    }
+
+    /**
+     * One-line report, e.g. "45% • 3.2 MB/s • 4 min left".
+     */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getOverallPercent()).append('%');
+        long bytesPerSecond = getBytesPerSecond();
+        if (bytesPerSecond > 0) {
+            sb.append(String.format(Locale.US, " • %.1f MB/s", bytesPerSecond / (1024.0 * 1024.0)));
+        }
+        long eta = getEtaSeconds();
+        if (eta >= 0) {
+            sb.append(" • ");
+            if (eta < 60) {
+                sb.append(eta).append(" s left");
+            } else if (eta < 3600) {
+                sb.append(eta / 60).append(" min left");
+            } else {
+                sb.append(String.format(Locale.US, "%.1f h left", eta / 3600.0));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Start queued items until the concurrency limit is reached.
+     */
+    private void startNext() {
+        if (shutdown) {
+            return;
+        }
+        int concurrency = getConcurrency();
+        for (Item item : items) {
+            if (countWithStatus(Status.DOWNLOADING) >= concurrency) {
+                break;
+            }
+            if (item.status == Status.QUEUED) {
+                start(item);
+            }
+        }
+    }
+
+    private void start(Item item) {
+        Log.i(TAG, "Starting download of " + item.stateId);
+        item.status = Status.DOWNLOADING;
+        notifyQueueChanged();
+
+        dataManager.downloadState(item.stateId, item.filename, new OfflineDataManager.DownloadCallback() {
+            @Override
+            public void onProgress(int percent, long downloadedBytes, long totalBytes) {
+                if (shutdown) {
+                    return;
+                }
+                recordTransfer(downloadedBytes - item.downloadedBytes);
+                item.downloadedBytes = downloadedBytes;
+                item.totalBytes = totalBytes;
+                if (listener != null) {
+                    listener.onItemProgress(item);
+                }
+            }
+
+            @Override
+            public void onComplete(File dbFile) {
+                if (shutdown) {
+                    return;
+                }
+                items.remove(item);
+                save();
+                if (listener != null) {
+                    listener.onItemComplete(item, dbFile);
+                }
+                notifyQueueChanged();
+                startNext();
+            }
+
+            @Override
+            public void onError(String error) {
+                if (shutdown) {
+                    return;
+                }
+                item.status = Status.FAILED;
+                item.error = error;
+                save();
+                if (listener != null) {
+                    listener.onItemFailed(item, error);
+                }
+                notifyQueueChanged();
+                startNext();
+            }
+
+            @Override
+            public void onCancelled() {
+                if (shutdown) {
+                    return;
+                }
+                items.remove(item);
+                save();
+                notifyQueueChanged();
+                startNext();
+            }
+        });
+    }
+
+    private void recordTransfer(long bytes) {
+        long now = SystemClock.elapsedRealtime();
+        if (bytes > 0) {
+            rateSamples.addLast(new long[]{now, bytes});
+        }
+        trimRateSamples(now);
+    }
+
+    private void trimRateSamples(long now) {
+        while (!rateSamples.isEmpty() && now - rateSamples.peekFirst()[0] > RATE_WINDOW_MS) {
+            rateSamples.removeFirst();
+        }
+    }
+
+    private void notifyQueueChanged() {
+        if (listener != null) {
+            listener.onQueueChanged();
+        }
+    }
+
+    private static int getConcurrency() {
+        try {
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(MapView.getMapView().getContext());
+            int concurrency = Integer.parseInt(prefs.getString(PREF_CONCURRENCY, String.valueOf(DEFAULT_CONCURRENCY)));
+            return Math.max(1, Math.min(MAX_CONCURRENCY, concurrency));
+        } catch (Exception e) {
+            return DEFAULT_CONCURRENCY;
+        }
+    }
+
+    private void load() {
+        if (!queueFile.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(queueFile))) {
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+
+            JSONArray queued = new JSONArray(sb.toString());
+            for (int i = 0; i < queued.length(); i++) {
+                JSONObject json = queued.getJSONObject(i);
+                String stateId = json.getString("id");
+                Item item = new Item(stateId, json.optString("name", stateId),
+                        json.optString("filename", stateId + ".db"), json.optLong("size", 0));
+                item.downloadedBytes = dataManager.getResumableBytes(stateId);
+                // Anything that was running is queued again; failed items wait for a retry
+                if (Status.FAILED.name().equals(json.optString("status"))) {
+                    item.status = Status.FAILED;
+                    item.error = json.optString("error", null);
+                }
+                items.add(item);
+            }
+            Log.d(TAG, "Loaded " + items.size() + " queued downloads");
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Error reading download queue: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the queue, replacing the previous copy atomically.
+     */
+    private void save() {
+        File tempFile = new File(queueFile.getPath() + ".tmp");
+        try {
+            JSONArray queued = new JSONArray();
+            for (Item item : items) {
+                queued.put(new JSONObject()
+                        .put("id", item.stateId)
+                        .put("name", item.name)
+                        .put("filename", item.filename)
+                        .put("size", item.totalBytes)
+                        .put("status", item.status.name())
+                        .put("error", item.error));
+            }
+
+            try (FileWriter writer = new FileWriter(tempFile)) {
+                writer.write(queued.toString());
+            }
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Error writing download queue: " + e.getMessage());
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(queueFile)) {
+            tempFile.delete();
+            Log.w(TAG, "Error replacing download queue file");
+        }
+    }
+}
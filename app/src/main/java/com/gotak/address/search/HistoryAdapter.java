@@ -1,7 +1,6 @@
 package com.gotak.address.search;
 
 import android.content.Context;
-import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,21 +9,28 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.gotak.address.plugin.R;
+import com.gotak.address.sched.PluginScheduler;
 import com.gotak.address.search.nearby.IconsetHelper;
 import com.gotak.address.search.nearby.PointOfInterestType;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * RecyclerView adapter for displaying search history with remove buttons.
  */
 public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.ViewHolder> {
 
-    private final List<NominatimSearchResult> items = new ArrayList<>();
+    private final AsyncListDiffer<NominatimSearchResult> differ;
+    private final StableIds<NominatimSearchResult> stableIds = new StableIds<>(HistoryAdapter::keyOf);
     private final HistoryItemListener listener;
     private final Context context;
     private final IconsetHelper iconsetHelper;
@@ -43,25 +49,27 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.ViewHold
         this.context = context;
         this.listener = listener;
         this.iconsetHelper = new IconsetHelper(context);
+        // Diffs are computed off the main thread, so removing one entry only animates that row
+        this.differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                        .setBackgroundThreadExecutor(PluginScheduler.getInstance().executor(
+                                PluginScheduler.Lane.CPU, PluginScheduler.Priority.INTERACTIVE))
+                        .build());
+        setHasStableIds(true);
     }
 
     /**
      * Update the list of history items.
      */
     public void setItems(List<NominatimSearchResult> newItems) {
-        items.clear();
-        if (newItems != null) {
-            items.addAll(newItems);
-        }
-        notifyDataSetChanged();
+        differ.submitList(newItems != null ? new ArrayList<>(newItems) : new ArrayList<>());
     }
 
     /**
      * Clear all items.
      */
     public void clear() {
-        items.clear();
-        notifyDataSetChanged();
+        differ.submitList(null);
     }
 
     @NonNull
@@ -74,15 +82,39 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.ViewHold
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        NominatimSearchResult item = items.get(position);
+        NominatimSearchResult item = differ.getCurrentList().get(position);
         holder.bind(item, listener, iconsetHelper);
     }
 
     @Override
     public int getItemCount() {
-        return items.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.getId(differ.getCurrentList(), position);
     }
 
+    private static String keyOf(NominatimSearchResult item) {
+        return item.getPlaceId() + ":" + item.getOsmType() + "-" + item.getOsmId();
+    }
+
+    private static final DiffUtil.ItemCallback<NominatimSearchResult> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<NominatimSearchResult>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull NominatimSearchResult oldItem, @NonNull NominatimSearchResult newItem) {
+            return keyOf(oldItem).equals(keyOf(newItem));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull NominatimSearchResult oldItem, @NonNull NominatimSearchResult newItem) {
+            return Objects.equals(oldItem.getDisplayName(), newItem.getDisplayName())
+                    && Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getType(), newItem.getType());
+        }
+    };
+
     /**
      * ViewHolder for history items.
      */
@@ -110,22 +142,13 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.ViewHold
             nameText.setText(item.getName());
             addressText.setText(item.getDisplayName());
 
-            // Try to get POI icon first (for POI search results that were saved to history)
-            Drawable poiIcon = null;
-            String type = item.getType();
-            if (type != null && iconHelper != null) {
-                PointOfInterestType poiType = mapTypeToPoiType(type);
-                if (poiType != null) {
-                    poiIcon = iconHelper.getIconDrawable(poiType);
-                }
-            }
-            
-            if (poiIcon != null) {
-                // Use POI-specific icon (same as Nearby tab)
-                iconView.setImageDrawable(poiIcon);
+            // Use POI-specific icon (same as Nearby tab) for POI search results that were
+            // saved to history, falling back to the location type icon (city, country, etc.)
+            PointOfInterestType poiType = mapTypeToPoiType(item.getType());
+            LocationType locationType = LocationType.fromResult(item);
+            if (iconHelper != null) {
+                iconHelper.bindListIcon(iconView, poiType, locationType.getIconRes());
             } else {
-                // Fall back to location type icon (city, country, etc.)
-                LocationType locationType = LocationType.fromResult(item);
                 iconView.setImageResource(locationType.getIconRes());
             }
 
@@ -3,26 +3,28 @@ package com.gotak.address.search;
 import android.content.Context;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
+import android.os.CancellationSignal;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.LruCache;
 
 import com.atakmap.coremap.log.Log;
+import com.gotak.address.net.HttpEngine;
+import com.gotak.address.net.JsonStreams;
+import com.gotak.address.sched.PluginScheduler;
 
-import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Locale;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * HTTP client for geocoding APIs with fuzzy search support.
@@ -44,12 +46,11 @@ public class NominatimApiClient {
     // Nominatim API - fallback if Photon fails
     private static final String NOMINATIM_URL = "https://nominatim.openstreetmap.org/search";
     
-    private static final String USER_AGENT = "ATAK-AddressPlugin/1.0";
     private static final int CONNECT_TIMEOUT = 10000; // 10 seconds
     private static final int READ_TIMEOUT = 15000; // 15 seconds
     private static final int DEFAULT_LIMIT = 10;
 
-    private final ExecutorService executor;
+    private final PluginScheduler.SerialExecutor executor;
     private final Handler mainHandler;
     
     // LRU cache for recent searches (50 entries max)
@@ -61,9 +62,18 @@ public class NominatimApiClient {
     private Context context;
     private OfflineAddressDatabase offlineDatabase;
     private boolean offlineOnly = false;
+    
+    // Generation token for searches - each new search supersedes all earlier ones.
+    // Callbacks are only delivered for the current generation.
+    private final AtomicLong searchGeneration = new AtomicLong();
+    private final Object inFlightLock = new Object();
+    private Future<?> inFlightSearch;
+    private CancellationSignal inFlightSignal;
+    private HttpEngine.Call inFlightCall;
 
     public NominatimApiClient() {
-        this.executor = Executors.newSingleThreadExecutor();
+        this.executor = PluginScheduler.getInstance().newSerialExecutor(
+                PluginScheduler.Lane.IO, PluginScheduler.Priority.INTERACTIVE);
         this.mainHandler = new Handler(Looper.getMainLooper());
     }
     
@@ -73,7 +83,7 @@ public class NominatimApiClient {
     public NominatimApiClient(Context context) {
         this();
         this.context = context;
-        this.offlineDatabase = new OfflineAddressDatabase(context);
+        this.offlineDatabase = OfflineAddressDatabase.getInstance(context);
     }
     
     /**
@@ -116,6 +126,20 @@ public class NominatimApiClient {
         void onSuccess(List<NominatimSearchResult> results);
         void onError(String errorMessage);
     }
+    
+    /**
+     * Search callback that also receives offline results as each state database
+     * answers, before the final onSuccess/onError.
+     */
+    public interface StreamingSearchCallback extends SearchCallback {
+        /**
+         * Called on the main thread with the best offline results merged so far.
+         * 
+         * @param results Partial results, ordered best-first
+         * @param stateId The state database whose answer produced this update
+         */
+        void onPartialResults(List<NominatimSearchResult> results, String stateId);
+    }
 
     /**
      * Search for places matching the query with fuzzy matching.
@@ -125,28 +149,49 @@ public class NominatimApiClient {
      * 0. LRU cache (instant for repeated queries)
      * 1. Offline databases (instant, works without internet)
      * 2. Online APIs (Photon, then Nominatim as fallback)
+     * 
+     * If the callback is a StreamingSearchCallback, offline results are also
+     * delivered incrementally while a multi-state search is running.
      */
     public void search(String query, SearchCallback callback) {
         // Normalize query for cache key
         final String cacheKey = query.toLowerCase().trim();
         
+        // Any search in flight is now stale
+        final long generation = cancelSearch();
+        
         // Step 0: Check LRU cache first (instant return for repeated queries)
         List<NominatimSearchResult> cached = searchCache.get(cacheKey);
         if (cached != null) {
             Log.d(TAG, "Cache hit for: " + query + " (" + cached.size() + " results)");
             // Return a copy to prevent modification of cached data
-            mainHandler.post(() -> callback.onSuccess(new ArrayList<>(cached)));
+            postIfCurrent(generation, () -> callback.onSuccess(new ArrayList<>(cached)));
             return;
         }
         
-        executor.execute(() -> {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        FutureTask<?> future = new FutureTask<>(() -> {
+            if (generation != searchGeneration.get()) {
+                return;
+            }
+
             List<NominatimSearchResult> results = new ArrayList<>();
             
             // Step 1: Try offline database first (instant results)
             if (offlineDatabase != null && !offlineDatabase.getDownloadedStates().isEmpty()) {
                 try {
                     Log.d(TAG, "Searching offline databases...");
-                    results = offlineDatabase.searchAllStates(query);
+                    OfflineAddressDatabase.PartialResultsListener partialListener = null;
+                    if (callback instanceof StreamingSearchCallback) {
+                        StreamingSearchCallback streamingCallback = (StreamingSearchCallback) callback;
+                        partialListener = (partial, stateId) -> postIfCurrent(generation,
+                                () -> streamingCallback.onPartialResults(partial, stateId));
+                    }
+                    results = offlineDatabase.searchAllStates(query, partialListener, cancellationSignal);
+                    if (cancellationSignal.isCanceled()) {
+                        Log.d(TAG, "Search superseded during offline phase: " + query);
+                        return;
+                    }
                     Log.i(TAG, "Offline search found " + results.size() + " results");
                     
                     // If offline-only mode or we have good results, return them
@@ -154,7 +199,7 @@ public class NominatimApiClient {
                         final List<NominatimSearchResult> finalResults = results;
                         // Cache the results
                         searchCache.put(cacheKey, new ArrayList<>(finalResults));
-                        mainHandler.post(() -> callback.onSuccess(finalResults));
+                        postIfCurrent(generation, () -> callback.onSuccess(finalResults));
                         return;
                     }
                 } catch (Exception e) {
@@ -169,33 +214,40 @@ public class NominatimApiClient {
                 if (!finalResults.isEmpty()) {
                     searchCache.put(cacheKey, new ArrayList<>(finalResults));
                 }
-                mainHandler.post(() -> callback.onSuccess(finalResults));
+                postIfCurrent(generation, () -> callback.onSuccess(finalResults));
                 return;
             }
             
             // Step 3: Check network availability
             if (!isNetworkAvailable()) {
-                Log.w(TAG, "No network available, returning offline results only");
+                Log.w(TAG, "No network available, returning offline and cached online results");
+                List<NominatimSearchResult> replayed = readCachedOnlineResults(query);
+                if (replayed != null && !replayed.isEmpty()) {
+                    results = replayed;
+                }
                 final List<NominatimSearchResult> finalResults = results;
                 if (results.isEmpty()) {
-                    mainHandler.post(() -> callback.onError("No network connection and no offline data"));
+                    postIfCurrent(generation, () -> callback.onError("No network connection and no offline data"));
                 } else {
                     // Cache offline results
                     searchCache.put(cacheKey, new ArrayList<>(finalResults));
-                    mainHandler.post(() -> callback.onSuccess(finalResults));
+                    postIfCurrent(generation, () -> callback.onSuccess(finalResults));
                 }
                 return;
             }
             
             // Step 4: Try online APIs
+            if (generation != searchGeneration.get()) {
+                return;
+            }
             try {
                 // Try Photon first (better fuzzy matching)
-                List<NominatimSearchResult> onlineResults = performPhotonSearch(query);
+                List<NominatimSearchResult> onlineResults = performPhotonSearch(query, generation);
                 
                 // If Photon returns no results, try Nominatim as fallback
                 if (onlineResults.isEmpty()) {
                     Log.d(TAG, "Photon returned no results, trying Nominatim fallback");
-                    onlineResults = performNominatimSearch(query);
+                    onlineResults = performNominatimSearch(query, generation);
                 }
                 
                 // Merge with offline results (prefer online for fresher data)
@@ -208,13 +260,17 @@ public class NominatimApiClient {
                 if (!finalResults.isEmpty()) {
                     searchCache.put(cacheKey, new ArrayList<>(finalResults));
                 }
-                mainHandler.post(() -> callback.onSuccess(finalResults));
+                postIfCurrent(generation, () -> callback.onSuccess(finalResults));
             } catch (Exception e) {
+                if (generation != searchGeneration.get()) {
+                    Log.d(TAG, "Search superseded during online phase: " + query);
+                    return;
+                }
                 Log.e(TAG, "Online search error: " + e.getMessage(), e);
                 
                 // Try Nominatim as fallback on any error
                 try {
-                    List<NominatimSearchResult> nominatimResults = performNominatimSearch(query);
+                    List<NominatimSearchResult> nominatimResults = performNominatimSearch(query, generation);
                     if (!nominatimResults.isEmpty()) {
                         results = nominatimResults;
                     }
@@ -223,20 +279,107 @@ public class NominatimApiClient {
                     if (!finalResults.isEmpty()) {
                         searchCache.put(cacheKey, new ArrayList<>(finalResults));
                     }
-                    mainHandler.post(() -> callback.onSuccess(finalResults));
+                    postIfCurrent(generation, () -> callback.onSuccess(finalResults));
                 } catch (Exception e2) {
+                    if (generation != searchGeneration.get()) {
+                        return;
+                    }
                     Log.e(TAG, "Fallback search also failed: " + e2.getMessage(), e2);
                     // Return offline results if we have any
                     if (!results.isEmpty()) {
                         final List<NominatimSearchResult> finalResults = results;
                         // Cache even fallback offline results
                         searchCache.put(cacheKey, new ArrayList<>(finalResults));
-                        mainHandler.post(() -> callback.onSuccess(finalResults));
+                        postIfCurrent(generation, () -> callback.onSuccess(finalResults));
                     } else {
-                        mainHandler.post(() -> callback.onError(e.getMessage()));
+                        postIfCurrent(generation, () -> callback.onError(e.getMessage()));
                     }
                 }
             }
+        }, null);
+        executor.execute(future);
+        
+        synchronized (inFlightLock) {
+            if (generation == searchGeneration.get()) {
+                inFlightSearch = future;
+                inFlightSignal = cancellationSignal;
+            } else {
+                // Superseded while being submitted
+                future.cancel(true);
+                cancellationSignal.cancel();
+            }
+        }
+    }
+    
+    /**
+     * Cancel the search in flight, if any, so a new query never queues behind it.
+     * Disconnects any open HTTP request, interrupts the running offline SQLite
+     * queries and the search thread, and drops any callbacks still pending.
+     * 
+     * @return The new search generation
+     */
+    public long cancelSearch() {
+        long generation = searchGeneration.incrementAndGet();
+        
+        Future<?> future;
+        CancellationSignal signal;
+        HttpEngine.Call call;
+        synchronized (inFlightLock) {
+            future = inFlightSearch;
+            signal = inFlightSignal;
+            call = inFlightCall;
+            inFlightSearch = null;
+            inFlightSignal = null;
+            inFlightCall = null;
+        }
+        
+        if (signal != null) {
+            signal.cancel();
+        }
+        if (call != null) {
+            call.cancel();
+        }
+        if (future != null) {
+            future.cancel(true);
+        }
+        return generation;
+    }
+    
+    /**
+     * Run an HTTP request for a search, registered as the in-flight call so
+     * cancelSearch() can disconnect it. The registration and the generation check
+     * happen under the same lock as cancelSearch(), so a search superseded in
+     * between is cancelled here instead of running to its timeout.
+     */
+    private <T> T executeForSearch(long generation, HttpEngine.Request request,
+                                   HttpEngine.JsonHandler<T> handler) throws IOException {
+        HttpEngine.Call call = HttpEngine.getInstance().newCall(request);
+        synchronized (inFlightLock) {
+            if (generation != searchGeneration.get()) {
+                call.cancel();
+            } else {
+                inFlightCall = call;
+            }
+        }
+        try {
+            return call.executeJson(handler);
+        } finally {
+            synchronized (inFlightLock) {
+                if (inFlightCall == call) {
+                    inFlightCall = null;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Post a callback to the main thread if its search is still the current one.
+     */
+    private void postIfCurrent(long generation, Runnable runnable) {
+        mainHandler.post(() -> {
+            if (generation == searchGeneration.get()) {
+                runnable.run();
+            }
         });
     }
     
@@ -249,92 +392,133 @@ public class NominatimApiClient {
     }
 
     /**
-     * Perform Photon API search - has built-in fuzzy/typo-tolerant matching.
+     * Key for the disk response cache: case and whitespace don't change the results.
      */
-    private List<NominatimSearchResult> performPhotonSearch(String query) throws IOException, JSONException {
-        String encodedQuery = URLEncoder.encode(query, "UTF-8");
-        String urlString = PHOTON_URL + "?q=" + encodedQuery + "&limit=" + DEFAULT_LIMIT;
-
-        Log.d(TAG, "Photon search: " + urlString);
+    private static String responseCacheKey(String service, String query) {
+        return service + ":" + DEFAULT_LIMIT + ":"
+                + query.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
 
-        HttpURLConnection connection = null;
+    /**
+     * Replay a previous Photon or Nominatim response for this query from the disk cache.
+     *
+     * @return Cached results, or null if neither service has a response cached
+     */
+    private List<NominatimSearchResult> readCachedOnlineResults(String query) {
+        HttpEngine engine = HttpEngine.getInstance();
         try {
-            URL url = new URL(urlString);
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", USER_AGENT);
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setConnectTimeout(CONNECT_TIMEOUT);
-            connection.setReadTimeout(READ_TIMEOUT);
+            List<NominatimSearchResult> results = engine.readCached(photonRequest(query), this::parsePhotonResults);
+            if (results == null || results.isEmpty()) {
+                results = engine.readCached(nominatimRequest(query), this::parseNominatimResults);
+            }
+            if (results != null) {
+                Log.i(TAG, "Replayed " + results.size() + " cached online results for: " + query);
+            }
+            return results;
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
-            int responseCode = connection.getResponseCode();
-            Log.d(TAG, "Photon response code: " + responseCode);
+    private HttpEngine.Request photonRequest(String query) throws IOException {
+        String encodedQuery = URLEncoder.encode(query, "UTF-8");
+        String urlString = PHOTON_URL + "?q=" + encodedQuery + "&limit=" + DEFAULT_LIMIT;
+        return HttpEngine.Request.get(urlString)
+                .setLabel("Photon")
+                .setHeader("Accept", "application/json")
+                .setTimeouts(CONNECT_TIMEOUT, READ_TIMEOUT)
+                .setCacheKey(responseCacheKey("photon", query));
+    }
 
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                throw new IOException("Photon HTTP error: " + responseCode);
-            }
+    /**
+     * Perform Photon API search - has built-in fuzzy/typo-tolerant matching.
+     */
+    private List<NominatimSearchResult> performPhotonSearch(String query, long generation)
+            throws IOException {
+        HttpEngine.Request request = photonRequest(query);
+        Log.d(TAG, "Photon search: " + request.getUrl());
+
+        List<NominatimSearchResult> results = executeForSearch(generation, request, this::parsePhotonResults);
+        Log.i(TAG, "Photon found " + results.size() + " results for: " + query);
+        return results;
+    }
 
-            // Read response
-            StringBuilder response = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
+    /**
+     * Parse GeoJSON response from Photon as it streams in.
+     */
+    private List<NominatimSearchResult> parsePhotonResults(JsonReader reader) throws IOException {
+        List<NominatimSearchResult> parsed = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"features".equals(reader.nextName())) {
+                reader.skipValue();
+                continue;
             }
-
-            // Parse GeoJSON response from Photon
-            JSONObject jsonResponse = new JSONObject(response.toString());
-            JSONArray features = jsonResponse.getJSONArray("features");
-            List<NominatimSearchResult> results = new ArrayList<>();
-            
-            for (int i = 0; i < features.length(); i++) {
-                NominatimSearchResult result = parsePhotonFeature(features.getJSONObject(i));
+            reader.beginArray();
+            while (reader.hasNext()) {
+                NominatimSearchResult result = parsePhotonFeature(reader);
                 if (result != null) {
-                    results.add(result);
+                    parsed.add(result);
                 }
             }
-
-            Log.i(TAG, "Photon found " + results.size() + " results for: " + query);
-            return results;
-
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
+            reader.endArray();
         }
+        reader.endObject();
+        return parsed;
     }
 
     /**
-     * Parse a Photon GeoJSON feature into our result format.
+     * Parse a streamed Photon GeoJSON feature into our result format.
+     * Only the small properties object is materialized.
      */
-    private NominatimSearchResult parsePhotonFeature(JSONObject feature) {
-        try {
-            JSONObject geometry = feature.getJSONObject("geometry");
-            JSONArray coordinates = geometry.getJSONArray("coordinates");
-            double longitude = coordinates.getDouble(0);
-            double latitude = coordinates.getDouble(1);
-
-            JSONObject properties = feature.getJSONObject("properties");
-            
-            long osmId = properties.optLong("osm_id", 0);
-            String osmType = properties.optString("osm_type", null);
-            String name = properties.optString("name", null);
-            String type = properties.optString("type", null);
-            
-            // Build display name from address components
-            String displayName = buildDisplayName(properties);
-            
-            // Use OSM ID as place ID (Photon doesn't have separate place_id)
-            long placeId = osmId;
+    private NominatimSearchResult parsePhotonFeature(JsonReader reader) throws IOException {
+        double longitude = Double.NaN;
+        double latitude = Double.NaN;
+        JSONObject properties = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if ("geometry".equals(field) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("coordinates".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        reader.beginArray();
+                        if (reader.hasNext()) longitude = JsonStreams.nextDouble(reader, Double.NaN);
+                        if (reader.hasNext()) latitude = JsonStreams.nextDouble(reader, Double.NaN);
+                        while (reader.hasNext()) reader.skipValue();
+                        reader.endArray();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if ("properties".equals(field) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                properties = JsonStreams.readObject(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-            return new NominatimSearchResult(placeId, latitude, longitude,
-                    displayName, name, type, osmType, osmId);
-        } catch (JSONException e) {
-            Log.e(TAG, "Error parsing Photon feature", e);
+        if (properties == null || Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            Log.e(TAG, "Skipping Photon feature without geometry or properties");
             return null;
         }
+        
+        long osmId = properties.optLong("osm_id", 0);
+        String osmType = properties.optString("osm_type", null);
+        String name = properties.optString("name", null);
+        String type = properties.optString("type", null);
+        
+        // Build display name from address components
+        String displayName = buildDisplayName(properties);
+        
+        // Use OSM ID as place ID (Photon doesn't have separate place_id)
+        long placeId = osmId;
+
+        return new NominatimSearchResult(placeId, latitude, longitude,
+                displayName, name, type, osmType, osmId);
     }
 
     /**
@@ -395,70 +579,48 @@ public class NominatimApiClient {
     /**
      * Perform Nominatim search as fallback (less fuzzy but more comprehensive).
      */
-    private List<NominatimSearchResult> performNominatimSearch(String query) throws IOException, JSONException {
+    private List<NominatimSearchResult> performNominatimSearch(String query, long generation)
+            throws IOException {
+        HttpEngine.Request request = nominatimRequest(query);
+        Log.d(TAG, "Nominatim search: " + request.getUrl());
+
+        List<NominatimSearchResult> results = executeForSearch(generation, request, this::parseNominatimResults);
+        Log.i(TAG, "Nominatim found " + results.size() + " results for: " + query);
+        return results;
+    }
+
+    private HttpEngine.Request nominatimRequest(String query) throws IOException {
         String encodedQuery = URLEncoder.encode(query, "UTF-8");
         String urlString = NOMINATIM_URL + "?q=" + encodedQuery 
                 + "&format=json"
                 + "&addressdetails=1"
                 + "&limit=" + DEFAULT_LIMIT;
+        return HttpEngine.Request.get(urlString)
+                .setLabel("Nominatim")
+                .setHeader("Accept", "application/json")
+                .setTimeouts(CONNECT_TIMEOUT, READ_TIMEOUT)
+                .setCacheKey(responseCacheKey("nominatim", query));
+    }
 
-        Log.d(TAG, "Nominatim search: " + urlString);
-
-        HttpURLConnection connection = null;
-        try {
-            URL url = new URL(urlString);
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", USER_AGENT);
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setConnectTimeout(CONNECT_TIMEOUT);
-            connection.setReadTimeout(READ_TIMEOUT);
-
-            int responseCode = connection.getResponseCode();
-            Log.d(TAG, "Nominatim response code: " + responseCode);
-
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                throw new IOException("Nominatim HTTP error: " + responseCode);
-            }
-
-            // Read response
-            StringBuilder response = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-            }
-
-            // Parse JSON array of results
-            JSONArray jsonArray = new JSONArray(response.toString());
-            List<NominatimSearchResult> results = new ArrayList<>();
-            
-            for (int i = 0; i < jsonArray.length(); i++) {
-                NominatimSearchResult result = NominatimSearchResult.fromJson(
-                        jsonArray.getJSONObject(i));
-                results.add(result);
-            }
-
-            Log.i(TAG, "Nominatim found " + results.size() + " results for: " + query);
-            return results;
-
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
+    /**
+     * Stream the JSON array of results straight into result objects.
+     */
+    private List<NominatimSearchResult> parseNominatimResults(JsonReader reader) throws IOException {
+        List<NominatimSearchResult> parsed = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            parsed.add(NominatimSearchResult.readJson(reader));
         }
+        reader.endArray();
+        return parsed;
     }
 
     /**
-     * Shutdown the executor service and close offline database.
+     * Drop queued searches. The shared offline database is closed on plugin unload.
      */
     public void shutdown() {
-        executor.shutdown();
-        if (offlineDatabase != null) {
-            offlineDatabase.close();
-        }
+        cancelSearch();
+        executor.clear();
     }
 }
 
@@ -1,8 +1,14 @@
 package com.gotak.address.search;
 
+import android.util.JsonReader;
+
+import com.gotak.address.net.JsonStreams;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * Data model for Nominatim API search results.
  * Maps to the JSON response from https://nominatim.openstreetmap.org/search
@@ -56,6 +62,41 @@ public class NominatimSearchResult {
                 displayName, name, type, osmType, osmId);
     }
 
+    /**
+     * Read a NominatimSearchResult from a streamed JSON object, skipping fields
+     * we don't keep (e.g. the addressdetails object).
+     */
+    public static NominatimSearchResult readJson(JsonReader reader) throws IOException {
+        long placeId = 0;
+        double latitude = 0.0;
+        double longitude = 0.0;
+        String displayName = "";
+        String name = null;
+        String type = null;
+        String osmType = null;
+        long osmId = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "place_id": placeId = JsonStreams.nextLong(reader, 0); break;
+                // Lat/lon come as strings in the API response
+                case "lat": latitude = JsonStreams.nextDouble(reader, 0.0); break;
+                case "lon": longitude = JsonStreams.nextDouble(reader, 0.0); break;
+                case "display_name": displayName = JsonStreams.nextString(reader, ""); break;
+                case "name": name = JsonStreams.nextString(reader, null); break;
+                case "type": type = JsonStreams.nextString(reader, null); break;
+                case "osm_type": osmType = JsonStreams.nextString(reader, null); break;
+                case "osm_id": osmId = JsonStreams.nextLong(reader, 0); break;
+                default: reader.skipValue(); break;
+            }
+        }
+        reader.endObject();
+
+        return new NominatimSearchResult(placeId, latitude, longitude,
+                displayName, name, type, osmType, osmId);
+    }
+
     public long getPlaceId() {
         return placeId;
     }
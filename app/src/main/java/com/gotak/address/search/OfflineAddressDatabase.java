@@ -3,20 +3,23 @@ package com.gotak.address.search;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.location.Address;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 
 import com.atakmap.coremap.log.Log;
 import com.gotak.address.search.nearby.OverpassSearchResult;
 import com.gotak.address.search.nearby.PointOfInterestType;
+import com.gotak.address.sched.PluginScheduler;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -29,62 +32,68 @@ import java.util.concurrent.TimeUnit;
  * - places_fts: FTS5 virtual table for full-text search
  * - pois: POI table with category, name, address, etc.
  * - pois_rtree: R*Tree spatial index for radius queries
+ * - places_rtree: R*Tree spatial index over places for reverse geocoding (v3)
+ * 
+ * One instance is shared by the whole plugin (getInstance), so every search client,
+ * the reverse geocoder and the offline data screen draw on a single connection cache
+ * and memory budget, and a deleted or replaced state is dropped for all of them.
  */
 public class OfflineAddressDatabase {
     private static final String TAG = "OfflineAddressDatabase";
     private static final int DEFAULT_LIMIT = 10;
     private static final int POI_LIMIT = 100;
     
-    // Maximum number of database connections to keep open
-    // Keeps recently used databases open to avoid repeated open/close overhead
-    private static final int MAX_OPEN_DATABASES = 5;
-    
-    // Number of threads for parallel state searches
-    private static final int SEARCH_THREAD_POOL_SIZE = 4;
+    // Reverse geocoding looks for the nearest place within this distance
+    private static final double REVERSE_RADIUS_METERS = 250.0;
+    // Nearest candidates read per state, so a street address can win over a closer unnamed point
+    private static final int REVERSE_CANDIDATES = 20;
     
     // Timeout for parallel searches (seconds)
     private static final int SEARCH_TIMEOUT_SECONDS = 3;
     
     private final File databaseDir;
-    private SQLiteDatabase currentDb;
-    private String currentState;
+    private final StateBoundsIndex boundsIndex;
     
-    // LRU cache of open database connections - avoids repeated open/close overhead
-    // Access order = true means least recently used entries are evicted first
-    private final LinkedHashMap<String, SQLiteDatabase> databaseCache = 
-        new LinkedHashMap<String, SQLiteDatabase>(MAX_OPEN_DATABASES, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, SQLiteDatabase> eldest) {
-                if (size() > MAX_OPEN_DATABASES) {
-                    // Close the evicted database connection
-                    try {
-                        SQLiteDatabase db = eldest.getValue();
-                        if (db != null && db.isOpen()) {
-                            db.close();
-                            Log.d(TAG, "Evicted database from cache: " + eldest.getKey());
-                        }
-                    } catch (Exception e) {
-                        Log.w(TAG, "Error closing evicted database: " + e.getMessage());
-                    }
-                    return true;
-                }
-                return false;
-            }
-        };
+    // LRU cache of open database connections, each carrying the compiled statements
+    // for that database's hot queries. Callers hold a lease while querying, so
+    // eviction defers the close until it returns. Sized by the device's tuning profile.
+    private final DatabaseConnectionCache connectionCache;
+    
+    // Last complete result set, used to answer as-you-type refinements in memory
+    private final PrefixRefinementCache refinementCache = new PrefixRefinementCache();
     
-    // Executor for parallel state searches
-    private final ExecutorService searchExecutor = Executors.newFixedThreadPool(SEARCH_THREAD_POOL_SIZE);
     
     // Use ATAK's tools directory for easy access
-    private static final String ATAK_ADDRESS_DIR = "/sdcard/atak/tools/address";
+    public static final String ATAK_ADDRESS_DIR = "/sdcard/atak/tools/address";
+    
+    private static OfflineAddressDatabase instance;
+    
+    public static synchronized OfflineAddressDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new OfflineAddressDatabase(context);
+        }
+        return instance;
+    }
+    
+    /**
+     * Close the shared database connections (plugin unload).
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
     
-    public OfflineAddressDatabase(Context context) {
+    private OfflineAddressDatabase(Context context) {
         // Store databases in ATAK's tools directory for easy file management
         this.databaseDir = new File(ATAK_ADDRESS_DIR);
         if (!databaseDir.exists()) {
             boolean created = databaseDir.mkdirs();
             Log.d(TAG, "Created database directory: " + databaseDir.getPath() + " success=" + created);
         }
+        this.boundsIndex = new StateBoundsIndex(databaseDir);
+        this.connectionCache = new DatabaseConnectionCache(SQLiteTuningProfile.forContext(context));
     }
     
     /**
@@ -127,24 +136,9 @@ public class OfflineAddressDatabase {
      * Delete a downloaded state database.
      */
     public boolean deleteState(String stateId) {
-        // Remove from cache and close if open
-        synchronized (databaseCache) {
-            SQLiteDatabase cachedDb = databaseCache.remove(stateId);
-            if (cachedDb != null && cachedDb.isOpen()) {
-                try {
-                    cachedDb.close();
-                } catch (Exception e) {
-                    Log.w(TAG, "Error closing database during delete: " + e.getMessage());
-                }
-            }
-        }
-        
-        // Clear current state if it matches
-        if (stateId.equals(currentState)) {
-            currentDb = null;
-            currentState = null;
-        }
+        invalidateState(stateId);
         
+        // Unlinking is safe even if a lease still holds the connection open
         File dbFile = getDatabaseFile(stateId);
         if (dbFile.exists()) {
             return dbFile.delete();
@@ -153,200 +147,236 @@ public class OfflineAddressDatabase {
     }
     
     /**
-     * Open a state's database for searching.
-     * Uses connection pooling to avoid repeated open/close overhead.
+     * Forget everything cached for a state whose database file was deleted or replaced
+     * (download or import). The open connection is dropped - it closes once in-flight
+     * leases return - so the next query opens the current file.
      */
-    public boolean openState(String stateId) {
-        // Check if already the current database
-        if (stateId.equals(currentState) && currentDb != null && currentDb.isOpen()) {
-            return true;
-        }
+    public void invalidateState(String stateId) {
+        connectionCache.remove(stateId);
         
-        // Check if in cache (this also updates access order for LRU)
-        synchronized (databaseCache) {
-            SQLiteDatabase cachedDb = databaseCache.get(stateId);
-            if (cachedDb != null && cachedDb.isOpen()) {
-                currentDb = cachedDb;
-                currentState = stateId;
-                Log.d(TAG, "Using cached database: " + stateId);
-                return true;
-            }
-            
-            // Remove stale entry if database was closed
-            if (cachedDb != null) {
-                databaseCache.remove(stateId);
-            }
-        }
-        
-        // Database not in cache, need to open it
-        File dbFile = getDatabaseFile(stateId);
-        if (!dbFile.exists()) {
-            Log.w(TAG, "Database not found: " + dbFile.getPath());
-            return false;
-        }
-        
-        try {
-            SQLiteDatabase newDb = SQLiteDatabase.openDatabase(
-                    dbFile.getPath(),
-                    null,
-                    SQLiteDatabase.OPEN_READONLY
-            );
-            
-            // Add to cache (may evict oldest entry)
-            synchronized (databaseCache) {
-                databaseCache.put(stateId, newDb);
-            }
-            
-            currentDb = newDb;
-            currentState = stateId;
-            Log.i(TAG, "Opened and cached database: " + stateId);
-            return true;
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to open database: " + e.getMessage(), e);
-            return false;
-        }
+        // Cached results may include rows from the old file
+        refinementCache.clear();
+        boundsIndex.remove(stateId);
     }
     
     /**
-     * Get a database connection for a specific state (thread-safe for parallel searches).
-     * Returns null if the state database doesn't exist or can't be opened.
+     * Compute and persist a state's bounds now, so the first spatial search after a
+     * download or import doesn't have to. Blocks on SQLite; call off the main thread.
      */
-    private SQLiteDatabase getDatabaseForState(String stateId) {
-        // Check cache first
-        synchronized (databaseCache) {
-            SQLiteDatabase cachedDb = databaseCache.get(stateId);
-            if (cachedDb != null && cachedDb.isOpen()) {
-                return cachedDb;
-            }
-            
-            // Remove stale entry
-            if (cachedDb != null) {
-                databaseCache.remove(stateId);
-            }
-        }
-        
-        // Open new connection
-        File dbFile = getDatabaseFile(stateId);
-        if (!dbFile.exists()) {
-            return null;
-        }
-        
-        try {
-            SQLiteDatabase newDb = SQLiteDatabase.openDatabase(
-                    dbFile.getPath(),
-                    null,
-                    SQLiteDatabase.OPEN_READONLY
-            );
-            
-            synchronized (databaseCache) {
-                databaseCache.put(stateId, newDb);
-            }
-            
-            return newDb;
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to open database for parallel search: " + stateId + " - " + e.getMessage());
-            return null;
-        }
+    public void indexStateBounds(String stateId) {
+        boundsIndex.getBounds(stateId);
+    }
+    
+    /**
+     * Acquire a per-call handle on a state's database (thread-safe).
+     * Uses connection pooling to avoid repeated open/close overhead: the database is
+     * opened and its hot queries compiled only if it is not already cached.
+     * 
+     * Close the lease when done (try-with-resources); the database can't be closed
+     * by LRU eviction or deletion while a lease is outstanding.
+     * 
+     * @return The lease, or null if the state database doesn't exist or can't be opened
+     */
+    public StatementPool.Lease acquireState(String stateId) {
+        return connectionCache.acquire(stateId, getDatabaseFile(stateId));
+    }
+    
+    /**
+     * Get hit/miss/eviction counters for the open database cache.
+     */
+    public DatabaseConnectionCache.Stats getConnectionCacheStats() {
+        return connectionCache.getStats();
     }
     
     /**
      * Search all downloaded states for matching places.
-     * Uses parallel execution for multi-state searches and early termination
-     * when good results are found to improve performance.
+     * Uses parallel execution for multi-state searches, ranked across states by
+     * BM25 score, and early termination for the single-state path.
      */
     public List<NominatimSearchResult> searchAllStates(String query) {
+        return searchAllStates(query, null, null);
+    }
+    
+    /**
+     * Listener for results delivered while a multi-state search is still running.
+     * Called on the searching thread each time a state's answer changes the
+     * current best results.
+     */
+    public interface PartialResultsListener {
+        /**
+         * @param results The best results merged so far, ordered best-first
+         * @param stateId The state whose answer produced this update
+         */
+        void onPartialResults(List<NominatimSearchResult> results, String stateId);
+    }
+    
+    /**
+     * Search all downloaded states, reporting the merged best results to the
+     * listener as each state database answers.
+     * 
+     * Cancelling the signal interrupts every running SQLite query and cancels
+     * the outstanding state tasks, so a superseded search stops promptly.
+     * 
+     * @param query The search query
+     * @param listener Listener for partial results, or null
+     * @param cancellationSignal Signal to abandon the search, or null
+     * @return The final merged results (empty or partial if cancelled)
+     */
+    public List<NominatimSearchResult> searchAllStates(String query, PartialResultsListener listener,
+                                                       CancellationSignal cancellationSignal) {
         List<String> states = getDownloadedStates();
+        String ftsQuery = sanitizeFtsQuery(query);
         
-        // If only one state, no need for parallel execution
+        // If the query only extends the last prefix, filter the previous results in memory
+        List<NominatimSearchResult> refined = refinementCache.refine(ftsQuery, states);
+        if (refined != null) {
+            Log.d(TAG, "Refined '" + query + "' in memory: " + refined.size() + " results");
+            return refined;
+        }
+        
+        TopResults topResults;
         if (states.size() <= 1) {
-            return searchAllStatesSequential(query, states);
+            // If only one state, no need for parallel execution
+            topResults = searchAllStatesSequential(query, states, cancellationSignal);
+        } else {
+            // Parallel search for multiple states
+            topResults = searchAllStatesParallel(query, states, listener, cancellationSignal);
         }
         
-        // Parallel search for multiple states
-        return searchAllStatesParallel(query, states);
+        List<NominatimSearchResult> results = topResults.toList();
+        if (cancellationSignal == null || !cancellationSignal.isCanceled()) {
+            refinementCache.store(ftsQuery, states, results, topResults.searchTexts(),
+                    topResults.isTruncated());
+        }
+        return results;
     }
     
     /**
      * Sequential search for single-state scenarios (avoids thread overhead).
      */
-    private List<NominatimSearchResult> searchAllStatesSequential(String query, List<String> states) {
-        List<NominatimSearchResult> allResults = new ArrayList<>();
+    private TopResults searchAllStatesSequential(String query, List<String> states,
+                                                 CancellationSignal cancellationSignal) {
+        TopResults topResults = new TopResults(DEFAULT_LIMIT);
         String queryLower = query.toLowerCase().trim();
         
-        for (String state : states) {
-            if (openState(state)) {
-                List<NominatimSearchResult> stateResults = search(query, DEFAULT_LIMIT);
-                allResults.addAll(stateResults);
-                
-                // Early termination: if we found exact/good matches, stop searching
-                if (stateResults.size() >= DEFAULT_LIMIT || hasGoodMatch(stateResults, queryLower)) {
-                    Log.d(TAG, "Early termination: found " + stateResults.size() + " results in " + state);
-                    break;
+        for (int i = 0; i < states.size(); i++) {
+            String state = states.get(i);
+            if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                topResults.markTruncated();
+                break;
+            }
+            List<ScoredResult> stateResults = searchStateWithDb(state, query, DEFAULT_LIMIT, cancellationSignal);
+            topResults.addAll(stateResults);
+            
+            // Early termination: if we found exact/good matches, stop searching
+            if (stateResults.size() >= DEFAULT_LIMIT || hasGoodMatch(topResults.toList(), queryLower)) {
+                Log.d(TAG, "Early termination: found " + stateResults.size() + " results in " + state);
+                if (i < states.size() - 1) {
+                    topResults.markTruncated();
                 }
+                break;
             }
         }
         
-        if (allResults.size() > DEFAULT_LIMIT) {
-            return allResults.subList(0, DEFAULT_LIMIT);
-        }
-        
-        return allResults;
+        return topResults;
     }
     
     /**
      * Parallel search across multiple states for faster results.
-     * Submits all searches simultaneously and collects results with early termination.
+     * Submits all searches simultaneously and merges each state's rows into a bounded
+     * heap by BM25 score as they complete, so ranking doesn't depend on which state
+     * answers first. States that miss the shared deadline are cancelled.
+     * The listener (if any) receives the merged results whenever a state improves them.
      */
-    private List<NominatimSearchResult> searchAllStatesParallel(String query, List<String> states) {
-        String queryLower = query.toLowerCase().trim();
+    private TopResults searchAllStatesParallel(String query, List<String> states,
+                                               PartialResultsListener listener,
+                                               CancellationSignal cancellationSignal) {
+        CompletionService<StateSearchResult> completionService =
+                new ExecutorCompletionService<>(PluginScheduler.getInstance().executor(
+                        PluginScheduler.Lane.DB, PluginScheduler.Priority.INTERACTIVE));
         List<Future<StateSearchResult>> futures = new ArrayList<>();
         
+        // Each state query gets its own signal since a signal can only interrupt one connection
+        List<CancellationSignal> stateSignals = new ArrayList<>();
+        for (int i = 0; i < states.size(); i++) {
+            stateSignals.add(new CancellationSignal());
+        }
+        if (cancellationSignal != null) {
+            cancellationSignal.setOnCancelListener(() -> cancelAll(stateSignals));
+        }
+        
         // Submit search tasks for all states in parallel
-        for (String state : states) {
+        for (int i = 0; i < states.size(); i++) {
+            String state = states.get(i);
+            CancellationSignal stateSignal = stateSignals.get(i);
             Callable<StateSearchResult> task = () -> {
-                List<NominatimSearchResult> results = searchStateWithDb(state, query, DEFAULT_LIMIT);
+                List<ScoredResult> results = searchStateWithDb(state, query, DEFAULT_LIMIT, stateSignal);
                 return new StateSearchResult(state, results);
             };
-            futures.add(searchExecutor.submit(task));
+            futures.add(completionService.submit(task));
         }
         
-        // Collect results with early termination
-        List<NominatimSearchResult> allResults = new ArrayList<>();
-        boolean foundGoodMatch = false;
+        // Merge results in completion order, keeping only the best DEFAULT_LIMIT rows
+        TopResults topResults = new TopResults(DEFAULT_LIMIT);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SEARCH_TIMEOUT_SECONDS);
+        int answered = 0;
         
-        for (Future<StateSearchResult> future : futures) {
-            // Skip remaining futures if we already have good results
-            if (foundGoodMatch && allResults.size() >= DEFAULT_LIMIT) {
-                future.cancel(true);
-                continue;
-            }
-            
+        for (int completed = 0; completed < futures.size(); completed++) {
             try {
-                StateSearchResult stateResult = future.get(SEARCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                long remaining = deadline - System.nanoTime();
+                if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                    Log.d(TAG, "Parallel search cancelled after " + completed + "/" + futures.size() + " states");
+                    break;
+                }
+                Future<StateSearchResult> future = completionService.poll(remaining, TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    Log.w(TAG, "Parallel search timed out after " + completed + "/" + futures.size() + " states");
+                    break;
+                }
                 
-                if (stateResult != null && stateResult.results != null && !stateResult.results.isEmpty()) {
-                    allResults.addAll(stateResult.results);
+                StateSearchResult stateResult = future.get();
+                answered++;
+                if (stateResult != null && stateResult.results != null) {
+                    boolean changed = topResults.addAll(stateResult.results);
+                    Log.d(TAG, "Parallel search: merged " + stateResult.results.size() + 
+                          " results from " + stateResult.stateId);
                     
-                    // Check if we found a good match
-                    if (stateResult.results.size() >= DEFAULT_LIMIT || 
-                        hasGoodMatch(stateResult.results, queryLower)) {
-                        Log.d(TAG, "Parallel search: good match found in " + stateResult.stateId + 
-                              " (" + stateResult.results.size() + " results)");
-                        foundGoodMatch = true;
+                    // Stream the improved ranking unless this was the last state
+                    if (listener != null && changed && completed < futures.size() - 1) {
+                        listener.onPartialResults(topResults.toList(), stateResult.stateId);
                     }
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             } catch (Exception e) {
                 Log.w(TAG, "Parallel search task failed: " + e.getMessage());
                 // Continue with other results
             }
         }
         
-        // Sort by relevance and limit total results
-        if (allResults.size() > DEFAULT_LIMIT) {
-            return allResults.subList(0, DEFAULT_LIMIT);
+        // Cancel any states that didn't answer in time (or were superseded)
+        if (answered < futures.size()) {
+            topResults.markTruncated();
+        }
+        for (Future<StateSearchResult> future : futures) {
+            future.cancel(true);
+        }
+        cancelAll(stateSignals);
+        if (cancellationSignal != null) {
+            cancellationSignal.setOnCancelListener(null);
         }
         
-        return allResults;
+        return topResults;
+    }
+    
+    /**
+     * Interrupt every running query attached to the given signals.
+     */
+    private static void cancelAll(List<CancellationSignal> signals) {
+        for (CancellationSignal signal : signals) {
+            signal.cancel();
+        }
     }
     
     /**
@@ -354,9 +384,9 @@ public class OfflineAddressDatabase {
      */
     private static class StateSearchResult {
         final String stateId;
-        final List<NominatimSearchResult> results;
+        final List<ScoredResult> results;
         
-        StateSearchResult(String stateId, List<NominatimSearchResult> results) {
+        StateSearchResult(String stateId, List<ScoredResult> results) {
             this.stateId = stateId;
             this.results = results;
         }
@@ -366,13 +396,23 @@ public class OfflineAddressDatabase {
      * Search a specific state's database using a dedicated connection (thread-safe).
      * Used for parallel searches where each thread needs its own database access.
      */
-    private List<NominatimSearchResult> searchStateWithDb(String stateId, String query, int limit) {
-        List<NominatimSearchResult> results = new ArrayList<>();
-        
-        SQLiteDatabase db = getDatabaseForState(stateId);
-        if (db == null || !db.isOpen()) {
-            return results;
+    private List<ScoredResult> searchStateWithDb(String stateId, String query, int limit,
+                                                 CancellationSignal cancellationSignal) {
+        try (StatementPool.Lease lease = acquireState(stateId)) {
+            if (lease == null) {
+                return new ArrayList<>();
+            }
+            return searchPool(lease.getPool(), query, limit, cancellationSignal);
         }
+    }
+    
+    /**
+     * FTS search of one leased pool, falling back to LIKE if the FTS query fails.
+     */
+    private List<ScoredResult> searchPool(StatementPool pool, String query, int limit,
+                                          CancellationSignal cancellationSignal) {
+        List<ScoredResult> results = new ArrayList<>();
+        String stateId = pool.getStateId();
         
         // Sanitize query for FTS5
         String ftsQuery = sanitizeFtsQuery(query);
@@ -382,30 +422,29 @@ public class OfflineAddressDatabase {
         
         Cursor cursor = null;
         try {
-            String sql = 
-                "SELECT p.id, p.osm_id, p.osm_type, p.lat, p.lon, " +
-                "       p.name, p.display_name, p.type " +
-                "FROM places_fts " +
-                "JOIN places p ON places_fts.rowid = p.id " +
-                "WHERE places_fts MATCH ? " +
-                "ORDER BY bm25(places_fts) " +
-                "LIMIT ?";
-            
-            cursor = db.rawQuery(sql, new String[]{ftsQuery, String.valueOf(limit)});
+            cursor = pool.queryFts(ftsQuery, limit, cancellationSignal);
+            int scoreIndex = cursor.getColumnIndexOrThrow("score");
             
             while (cursor.moveToNext()) {
                 NominatimSearchResult result = cursorToResult(cursor);
                 if (result != null) {
-                    results.add(result);
+                    results.add(new ScoredResult(result, cursor.getDouble(scoreIndex),
+                            indexedText(cursor)));
                 }
             }
             
             Log.d(TAG, "Parallel search '" + query + "' in " + stateId + " found " + results.size() + " results");
             
+        } catch (OperationCanceledException e) {
+            Log.d(TAG, "Parallel search cancelled in " + stateId);
+            results.clear();
         } catch (Exception e) {
             Log.e(TAG, "Parallel search error in " + stateId + ": " + e.getMessage(), e);
-            // Try LIKE fallback
-            results = searchWithLikeOnDb(db, query, limit);
+            // Try LIKE fallback - unranked rows sort after every FTS match
+            results.clear();
+            for (NominatimSearchResult result : searchWithLike(pool, query, limit, cancellationSignal)) {
+                results.add(new ScoredResult(result, Double.MAX_VALUE, null));
+            }
         } finally {
             if (cursor != null) {
                 cursor.close();
@@ -416,45 +455,17 @@ public class OfflineAddressDatabase {
     }
     
     /**
-     * LIKE search fallback for a specific database (thread-safe).
+     * Join the FTS-indexed columns of a row (name, display_name, street, city, postcode).
      */
-    private List<NominatimSearchResult> searchWithLikeOnDb(SQLiteDatabase db, String query, int limit) {
-        List<NominatimSearchResult> results = new ArrayList<>();
-        
-        if (db == null || !db.isOpen()) {
-            return results;
-        }
-        
-        Cursor cursor = null;
-        try {
-            String likeQuery = "%" + query.replace("%", "").replace("_", "") + "%";
-            
-            String sql = 
-                "SELECT id, osm_id, osm_type, lat, lon, name, display_name, type " +
-                "FROM places " +
-                "WHERE name LIKE ? OR display_name LIKE ? OR street LIKE ? OR city LIKE ? " +
-                "LIMIT ?";
-            
-            cursor = db.rawQuery(sql, new String[]{
-                    likeQuery, likeQuery, likeQuery, likeQuery, String.valueOf(limit)
-            });
-            
-            while (cursor.moveToNext()) {
-                NominatimSearchResult result = cursorToResult(cursor);
-                if (result != null) {
-                    results.add(result);
-                }
-            }
-            
-        } catch (Exception e) {
-            Log.e(TAG, "LIKE search error: " + e.getMessage(), e);
-        } finally {
-            if (cursor != null) {
-                cursor.close();
+    private static String indexedText(Cursor cursor) {
+        StringBuilder sb = new StringBuilder();
+        for (String column : new String[]{"name", "display_name", "street", "city", "postcode"}) {
+            String value = cursor.getString(cursor.getColumnIndexOrThrow(column));
+            if (value != null) {
+                sb.append(value).append(' ');
             }
         }
-        
-        return results;
+        return sb.toString();
     }
     
     /**
@@ -493,63 +504,6 @@ public class OfflineAddressDatabase {
         return false;
     }
     
-    /**
-     * Search the current database for places matching the query.
-     * Uses FTS5 full-text search with ranking.
-     */
-    public List<NominatimSearchResult> search(String query, int limit) {
-        List<NominatimSearchResult> results = new ArrayList<>();
-        
-        if (currentDb == null || !currentDb.isOpen()) {
-            Log.w(TAG, "No database open for search");
-            return results;
-        }
-        
-        // Sanitize query for FTS5
-        String ftsQuery = sanitizeFtsQuery(query);
-        if (ftsQuery.isEmpty()) {
-            return results;
-        }
-        
-        Cursor cursor = null;
-        try {
-            // Use FTS5 with BM25 ranking for relevance
-            // Match against name, display_name, street, city, postcode
-            String sql = 
-                "SELECT p.id, p.osm_id, p.osm_type, p.lat, p.lon, " +
-                "       p.name, p.display_name, p.type " +
-                "FROM places_fts " +
-                "JOIN places p ON places_fts.rowid = p.id " +
-                "WHERE places_fts MATCH ? " +
-                "ORDER BY bm25(places_fts) " +
-                "LIMIT ?";
-            
-            cursor = currentDb.rawQuery(sql, new String[]{ftsQuery, String.valueOf(limit)});
-            
-            while (cursor.moveToNext()) {
-                NominatimSearchResult result = cursorToResult(cursor);
-                if (result != null) {
-                    results.add(result);
-                }
-            }
-            
-            Log.d(TAG, "Offline search '" + query + "' found " + results.size() + " results");
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Search error: " + e.getMessage(), e);
-            
-            // Try simpler LIKE query as fallback
-            results = searchWithLike(query, limit);
-            
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
-        
-        return results;
-    }
-    
     /**
      * Search a specific state's database for places matching the query.
      * 
@@ -559,11 +513,12 @@ public class OfflineAddressDatabase {
      * @return List of matching results, or empty list if state not available
      */
     public List<NominatimSearchResult> searchState(String stateId, String query, int limit) {
-        if (!openState(stateId)) {
-            Log.w(TAG, "Could not open state database: " + stateId);
-            return new ArrayList<>();
+        List<NominatimSearchResult> results = new ArrayList<>();
+        for (ScoredResult scored : searchStateWithDb(stateId, query, limit, null)) {
+            results.add(scored.result);
         }
-        return search(query, limit);
+        Log.d(TAG, "Offline search '" + query + "' found " + results.size() + " results in " + stateId);
+        return results;
     }
     
     /**
@@ -573,23 +528,29 @@ public class OfflineAddressDatabase {
      * 
      * @param stateId The state database ID (e.g., "arkansas", "new-york")
      * @param name The name to search for (e.g., "walmart", "target")
+     * @param cancellationSignal Signal to interrupt the running queries, or null
      * @return Combined list of matching places and POIs
      */
-    public List<NominatimSearchResult> searchStateByName(String stateId, String name) {
+    public List<NominatimSearchResult> searchStateByName(String stateId, String name,
+                                                         CancellationSignal cancellationSignal) {
         List<NominatimSearchResult> results = new ArrayList<>();
         
-        if (!openState(stateId)) {
-            Log.w(TAG, "Could not open state database: " + stateId);
-            return results;
-        }
-        
-        // Search places table
-        results.addAll(search(name, DEFAULT_LIMIT));
-        
-        // Also search POIs by name if the table exists
-        if (hasPOIData()) {
-            List<NominatimSearchResult> poiResults = searchPOIsByName(name, DEFAULT_LIMIT);
-            results.addAll(poiResults);
+        try (StatementPool.Lease lease = acquireState(stateId)) {
+            if (lease == null) {
+                Log.w(TAG, "Could not open state database: " + stateId);
+                return results;
+            }
+            StatementPool pool = lease.getPool();
+            
+            // Search places table
+            for (ScoredResult scored : searchPool(pool, name, DEFAULT_LIMIT, cancellationSignal)) {
+                results.add(scored.result);
+            }
+            
+            // Also search POIs by name if the table exists
+            if (pool.hasPOIData() && (cancellationSignal == null || !cancellationSignal.isCanceled())) {
+                results.addAll(searchPOIsByName(pool, name, DEFAULT_LIMIT, cancellationSignal));
+            }
         }
         
         // Remove duplicates (based on osm_id) and limit total
@@ -607,28 +568,18 @@ public class OfflineAddressDatabase {
     }
     
     /**
-     * Search POIs by name within the current database.
+     * Search POIs by name within a leased database.
      * Used for queries like "walmart" or "starbucks" within a specific state.
      */
-    private List<NominatimSearchResult> searchPOIsByName(String name, int limit) {
+    private List<NominatimSearchResult> searchPOIsByName(StatementPool pool, String name, int limit,
+                                                         CancellationSignal cancellationSignal) {
         List<NominatimSearchResult> results = new ArrayList<>();
         
-        if (currentDb == null || !currentDb.isOpen()) {
-            return results;
-        }
-        
         Cursor cursor = null;
         try {
             String likeQuery = "%" + name.replace("%", "").replace("_", "") + "%";
             
-            String sql = 
-                "SELECT id, osm_id, osm_type, lat, lon, name, category, address " +
-                "FROM pois " +
-                "WHERE name LIKE ? " +
-                "ORDER BY name " +
-                "LIMIT ?";
-            
-            cursor = currentDb.rawQuery(sql, new String[]{likeQuery, String.valueOf(limit)});
+            cursor = pool.queryPOIsByName(likeQuery, limit, cancellationSignal);
             
             while (cursor.moveToNext()) {
                 try {
@@ -660,6 +611,9 @@ public class OfflineAddressDatabase {
             
             Log.d(TAG, "POI name search '" + name + "' found " + results.size() + " results");
             
+        } catch (OperationCanceledException e) {
+            Log.d(TAG, "POI name search cancelled in " + pool.getStateId());
+            results.clear();
         } catch (Exception e) {
             Log.e(TAG, "POI name search error: " + e.getMessage(), e);
         } finally {
@@ -678,48 +632,39 @@ public class OfflineAddressDatabase {
      * @param stateId The state database ID
      * @param categories POI categories to search for
      * @param limit Maximum number of results
+     * @param cancellationSignal Signal to interrupt the running query, or null
      * @return List of POI results
      */
     public List<OverpassSearchResult> searchStatePOIsByCategory(
-            String stateId, java.util.Set<PointOfInterestType> categories, int limit) {
+            String stateId, java.util.Set<PointOfInterestType> categories, int limit,
+            CancellationSignal cancellationSignal) {
         
         List<OverpassSearchResult> results = new ArrayList<>();
         
-        if (!openState(stateId) || !hasPOIData()) {
-            return results;
-        }
-        
         if (categories == null || categories.isEmpty()) {
             return results;
         }
         
-        // Build category filter
-        StringBuilder categoryFilter = new StringBuilder();
-        List<String> categoryNames = new ArrayList<>();
-        for (PointOfInterestType type : categories) {
-            if (categoryFilter.length() > 0) {
-                categoryFilter.append(" OR ");
+        try (StatementPool.Lease lease = acquireState(stateId)) {
+            if (lease == null || !lease.getPool().hasPOIData()) {
+                return results;
             }
-            categoryFilter.append("category = ?");
-            categoryNames.add(type.name());
+            return searchPOIsByCategory(lease.getPool(), categories, limit, cancellationSignal);
         }
+    }
+    
+    /**
+     * Category search of one leased pool.
+     */
+    private List<OverpassSearchResult> searchPOIsByCategory(
+            StatementPool pool, java.util.Set<PointOfInterestType> categories, int limit,
+            CancellationSignal cancellationSignal) {
+        
+        List<OverpassSearchResult> results = new ArrayList<>();
         
         Cursor cursor = null;
         try {
-            String sql = 
-                "SELECT id, osm_id, osm_type, lat, lon, name, category, address, phone, website, opening_hours " +
-                "FROM pois " +
-                "WHERE " + categoryFilter + " " +
-                "ORDER BY name " +
-                "LIMIT ?";
-            
-            String[] args = new String[categoryNames.size() + 1];
-            for (int i = 0; i < categoryNames.size(); i++) {
-                args[i] = categoryNames.get(i);
-            }
-            args[args.length - 1] = String.valueOf(limit);
-            
-            cursor = currentDb.rawQuery(sql, args);
+            cursor = pool.queryPOIsByCategory(categories, limit, cancellationSignal);
             
             while (cursor.moveToNext()) {
                 try {
@@ -745,8 +690,11 @@ public class OfflineAddressDatabase {
                 }
             }
             
-            Log.d(TAG, "State POI category search found " + results.size() + " results in " + stateId);
+            Log.d(TAG, "State POI category search found " + results.size() + " results in " + pool.getStateId());
             
+        } catch (OperationCanceledException e) {
+            Log.d(TAG, "State POI category search cancelled in " + pool.getStateId());
+            results.clear();
         } catch (Exception e) {
             Log.e(TAG, "State POI category search error: " + e.getMessage(), e);
         } finally {
@@ -760,29 +708,9 @@ public class OfflineAddressDatabase {
     
     // ============ POI SPATIAL SEARCH ============
     
-    /**
-     * Check if the database has POI data (schema version 2+).
-     */
-    public boolean hasPOIData() {
-        if (currentDb == null || !currentDb.isOpen()) {
-            return false;
-        }
-        
-        Cursor cursor = null;
-        try {
-            // Check if pois table exists
-            cursor = currentDb.rawQuery(
-                "SELECT name FROM sqlite_master WHERE type='table' AND name='pois'", null);
-            return cursor.moveToFirst();
-        } catch (Exception e) {
-            return false;
-        } finally {
-            if (cursor != null) cursor.close();
-        }
-    }
-    
     /**
      * Search all downloaded states for POIs within a radius.
+     * Only states whose bounding box intersects the search circle are opened.
      * 
      * @param centerLat Center latitude
      * @param centerLon Center longitude
@@ -794,46 +722,98 @@ public class OfflineAddressDatabase {
             double centerLat, double centerLon, int radiusKm, 
             Set<PointOfInterestType> categories) {
         
-        List<OverpassSearchResult> allResults = new ArrayList<>();
+        List<String> states = boundsIndex.statesIntersecting(
+                getDownloadedStates(), centerLat, centerLon, radiusKm);
+        Log.d(TAG, "POI search routed to " + states.size() + " state(s): " + states);
         
-        for (String state : getDownloadedStates()) {
-            if (openState(state) && hasPOIData()) {
-                List<OverpassSearchResult> stateResults = searchPOIs(
-                    centerLat, centerLon, radiusKm, categories);
-                allResults.addAll(stateResults);
-            }
+        if (states.isEmpty()) {
+            return new ArrayList<>();
         }
         
-        // Sort all results by distance and limit
-        allResults.sort((a, b) -> Double.compare(a.getDistanceMeters(), b.getDistanceMeters()));
+        // Single state - no need for thread overhead or merging
+        if (states.size() == 1) {
+            return searchPOIsInState(states.get(0), centerLat, centerLon, radiusKm, categories);
+        }
+        
+        return searchPOIsParallel(states, centerLat, centerLon, radiusKm, categories);
+    }
+    
+    /**
+     * Parallel POI search across several states (e.g. near a state border).
+     * Each state uses its own pooled connection and returns rows ordered by distance;
+     * the per-state lists are then k-way merged until POI_LIMIT rows are taken.
+     */
+    private List<OverpassSearchResult> searchPOIsParallel(
+            List<String> states, double centerLat, double centerLon, int radiusKm,
+            Set<PointOfInterestType> categories) {
         
-        if (allResults.size() > POI_LIMIT) {
-            return allResults.subList(0, POI_LIMIT);
+        List<Future<List<OverpassSearchResult>>> futures = new ArrayList<>();
+        for (String state : states) {
+            Callable<List<OverpassSearchResult>> task = () -> searchPOIsInState(
+                    state, centerLat, centerLon, radiusKm, categories);
+            futures.add(PluginScheduler.getInstance().submit(
+                    PluginScheduler.Lane.DB, PluginScheduler.Priority.INTERACTIVE, task));
         }
         
-        return allResults;
+        // Collect every state's distance-ordered list within the shared deadline
+        List<List<OverpassSearchResult>> stateLists = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SEARCH_TIMEOUT_SECONDS);
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                List<OverpassSearchResult> stateResults = futures.get(i).get(remaining, TimeUnit.NANOSECONDS);
+                if (stateResults != null && !stateResults.isEmpty()) {
+                    stateLists.add(stateResults);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                Log.w(TAG, "Parallel POI search failed for " + states.get(i) + ": " + e.getMessage());
+            }
+        }
+        for (Future<List<OverpassSearchResult>> future : futures) {
+            future.cancel(true);
+        }
+        
+        return DistanceMerge.merge(stateLists, POI_LIMIT);
     }
     
     /**
-     * Search current database for POIs within a radius using R*Tree spatial index.
-     * 
-     * @param centerLat Center latitude
-     * @param centerLon Center longitude
-     * @param radiusKm Radius in kilometers
-     * @param categories POI categories to search for
+     * Search one state for POIs within a radius, holding a lease for the duration.
      * @return List of POI results sorted by distance
      */
-    public List<OverpassSearchResult> searchPOIs(
-            double centerLat, double centerLon, int radiusKm,
+    private List<OverpassSearchResult> searchPOIsInState(
+            String stateId, double centerLat, double centerLon, int radiusKm,
+            Set<PointOfInterestType> categories) {
+        try (StatementPool.Lease lease = acquireState(stateId)) {
+            if (lease == null) {
+                Log.w(TAG, "Could not open state database for POI search: " + stateId);
+                return new ArrayList<>();
+            }
+            return searchPOIsInPool(lease.getPool(), centerLat, centerLon, radiusKm, categories);
+        }
+    }
+    
+    /**
+     * Search one leased pool for POIs within a radius using the R*Tree spatial index.
+     * @return List of POI results sorted by distance
+     */
+    private List<OverpassSearchResult> searchPOIsInPool(
+            StatementPool pool, double centerLat, double centerLon, int radiusKm,
             Set<PointOfInterestType> categories) {
         
         List<OverpassSearchResult> results = new ArrayList<>();
         
-        if (currentDb == null || !currentDb.isOpen()) {
+        if (pool == null || !pool.isOpen()) {
             Log.w(TAG, "No database open for POI search");
             return results;
         }
         
+        if (!pool.hasPOIData()) {
+            return results;
+        }
+        
         if (categories == null || categories.isEmpty()) {
             Log.w(TAG, "No POI categories specified");
             return results;
@@ -850,43 +830,13 @@ public class OfflineAddressDatabase {
         double minLon = centerLon - lonDelta;
         double maxLon = centerLon + lonDelta;
         
-        // Build category filter
-        StringBuilder categoryFilter = new StringBuilder();
-        List<String> categoryNames = new ArrayList<>();
-        for (PointOfInterestType type : categories) {
-            if (categoryFilter.length() > 0) {
-                categoryFilter.append(" OR ");
-            }
-            categoryFilter.append("p.category = ?");
-            categoryNames.add(type.name());
-        }
-        
         Cursor cursor = null;
         try {
             // Use R*Tree for spatial filtering, then filter by category
-            // The R*Tree dramatically reduces the search space
-            String sql = 
-                "SELECT p.id, p.osm_id, p.osm_type, p.lat, p.lon, " +
-                "       p.name, p.category, p.address, p.phone, p.website, p.opening_hours " +
-                "FROM pois p " +
-                "INNER JOIN pois_rtree r ON p.id = r.id " +
-                "WHERE r.min_lat >= ? AND r.max_lat <= ? " +
-                "  AND r.min_lon >= ? AND r.max_lon <= ? " +
-                "  AND (" + categoryFilter + ") " +
-                "LIMIT ?";
-            
-            // Build args array
-            String[] args = new String[4 + categoryNames.size() + 1];
-            args[0] = String.valueOf(minLat);
-            args[1] = String.valueOf(maxLat);
-            args[2] = String.valueOf(minLon);
-            args[3] = String.valueOf(maxLon);
-            for (int i = 0; i < categoryNames.size(); i++) {
-                args[4 + i] = categoryNames.get(i);
-            }
-            args[args.length - 1] = String.valueOf(POI_LIMIT);
-            
-            cursor = currentDb.rawQuery(sql, args);
+            // The R*Tree dramatically reduces the search space, and the query orders
+            // by distance so the limit drops the farthest rows rather than arbitrary ones
+            cursor = pool.queryPOIsInBox(minLat, maxLat, minLon, maxLon,
+                    centerLat, centerLon, categories, POI_LIMIT);
             
             double radiusMeters = radiusKm * 1000.0;
             
@@ -900,7 +850,7 @@ public class OfflineAddressDatabase {
                 }
             }
             
-            // Sort by distance
+            // Re-sort by great-circle distance (SQL ordered by the planar approximation)
             results.sort((a, b) -> Double.compare(a.getDistanceMeters(), b.getDistanceMeters()));
             
             Log.d(TAG, "Offline POI search found " + results.size() + " results within " + radiusKm + " km");
@@ -967,15 +917,97 @@ public class OfflineAddressDatabase {
         return R * c;
     }
     
+    // ============ REVERSE GEOCODING ============
+    
+    /**
+     * Find the address nearest to a point in the downloaded states, without any network.
+     * Only states whose extent contains the point are queried, through the places R*Tree
+     * (databases built before schema v3 don't have it and are skipped).
+     * The nearest place with a street wins; otherwise the nearest place of any kind.
+     * 
+     * @return The address, or null if no place is within REVERSE_RADIUS_METERS
+     */
+    public Address reverseGeocode(double lat, double lon) {
+        List<String> states = boundsIndex.statesContaining(getDownloadedStates(), lat, lon);
+        if (states.isEmpty()) {
+            return null;
+        }
+        
+        double latDelta = REVERSE_RADIUS_METERS / 111000.0;
+        double lonDelta = REVERSE_RADIUS_METERS / (111000.0 * Math.cos(Math.toRadians(lat)));
+        
+        Address bestStreet = null;
+        double bestStreetDistance = Double.MAX_VALUE;
+        Address bestAny = null;
+        double bestAnyDistance = Double.MAX_VALUE;
+        
+        for (String stateId : states) {
+            try (StatementPool.Lease lease = acquireState(stateId)) {
+                if (lease == null || !lease.getPool().hasPlacesIndex()) {
+                    continue;
+                }
+                try (Cursor cursor = lease.getPool().queryPlacesNearest(
+                        lat, lon, latDelta, lonDelta, REVERSE_CANDIDATES)) {
+                    while (cursor.moveToNext()) {
+                        double placeLat = cursor.getDouble(0);
+                        double placeLon = cursor.getDouble(1);
+                        double distance = calculateDistance(lat, lon, placeLat, placeLon);
+                        if (distance > REVERSE_RADIUS_METERS) {
+                            continue;
+                        }
+                        boolean hasStreet = !cursor.isNull(4) && !cursor.getString(4).isEmpty();
+                        if (hasStreet && distance < bestStreetDistance) {
+                            bestStreet = cursorToAddress(cursor);
+                            bestStreetDistance = distance;
+                        }
+                        if (distance < bestAnyDistance) {
+                            bestAny = cursorToAddress(cursor);
+                            bestAnyDistance = distance;
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Offline reverse geocode failed for " + stateId + ": " + e.getMessage());
+            }
+        }
+        
+        return bestStreet != null ? bestStreet : bestAny;
+    }
+    
+    /**
+     * Convert a PLACES_NEAREST_SQL row to an Address, so widgets can format it
+     * the same way as ATAK geocoder results.
+     */
+    private static Address cursorToAddress(Cursor cursor) {
+        Address address = new Address(Locale.getDefault());
+        address.setLatitude(cursor.getDouble(0));
+        address.setLongitude(cursor.getDouble(1));
+        address.setFeatureName(cursor.getString(2));
+        address.setThoroughfare(cursor.getString(4));
+        address.setSubThoroughfare(cursor.getString(5));
+        address.setLocality(cursor.getString(6));
+        address.setPostalCode(cursor.getString(7));
+        address.setAdminArea(cursor.getString(8));
+        String country = cursor.getString(9);
+        if (country != null && country.length() == 2) {
+            address.setCountryCode(country);
+        } else {
+            address.setCountryName(country);
+        }
+        return address;
+    }
+    
     // ============ EXISTING METHODS ============
     
     /**
      * Fallback search using LIKE (slower but more compatible).
+     * Safe to call from any thread since it only uses the given pool.
      */
-    private List<NominatimSearchResult> searchWithLike(String query, int limit) {
+    private List<NominatimSearchResult> searchWithLike(StatementPool pool, String query, int limit,
+                                                       CancellationSignal cancellationSignal) {
         List<NominatimSearchResult> results = new ArrayList<>();
         
-        if (currentDb == null || !currentDb.isOpen()) {
+        if (pool == null || !pool.isOpen()) {
             return results;
         }
         
@@ -983,15 +1015,7 @@ public class OfflineAddressDatabase {
         try {
             String likeQuery = "%" + query.replace("%", "").replace("_", "") + "%";
             
-            String sql = 
-                "SELECT id, osm_id, osm_type, lat, lon, name, display_name, type " +
-                "FROM places " +
-                "WHERE name LIKE ? OR display_name LIKE ? OR street LIKE ? OR city LIKE ? " +
-                "LIMIT ?";
-            
-            cursor = currentDb.rawQuery(sql, new String[]{
-                    likeQuery, likeQuery, likeQuery, likeQuery, String.valueOf(limit)
-            });
+            cursor = pool.queryLike(likeQuery, limit, cancellationSignal);
             
             while (cursor.moveToNext()) {
                 NominatimSearchResult result = cursorToResult(cursor);
@@ -1000,6 +1024,8 @@ public class OfflineAddressDatabase {
                 }
             }
             
+        } catch (OperationCanceledException e) {
+            results.clear();
         } catch (Exception e) {
             Log.e(TAG, "LIKE search error: " + e.getMessage(), e);
         } finally {
@@ -1157,40 +1183,12 @@ public class OfflineAddressDatabase {
     }
     
     /**
-     * Close all database connections and shutdown the search executor.
-     * Call this when the plugin is being destroyed.
+     * Close all database connections. Only shutdown() calls this, since the
+     * instance is shared.
      */
-    public void close() {
-        // Close current database reference
-        currentDb = null;
-        currentState = null;
-        
-        // Close all cached database connections
-        synchronized (databaseCache) {
-            for (Map.Entry<String, SQLiteDatabase> entry : databaseCache.entrySet()) {
-                try {
-                    SQLiteDatabase db = entry.getValue();
-                    if (db != null && db.isOpen()) {
-                        db.close();
-                        Log.d(TAG, "Closed cached database: " + entry.getKey());
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error closing database " + entry.getKey() + ": " + e.getMessage());
-                }
-            }
-            databaseCache.clear();
-        }
-        
-        // Shutdown the search executor
-        try {
-            searchExecutor.shutdown();
-            if (!searchExecutor.awaitTermination(2, TimeUnit.SECONDS)) {
-                searchExecutor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            searchExecutor.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
+    private void close() {
+        // Release all cached statement pools; in-flight leases close theirs on return
+        connectionCache.clear();
         
         Log.i(TAG, "OfflineAddressDatabase closed");
     }
@@ -3,6 +3,8 @@ package com.gotak.address.search;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
@@ -21,6 +23,7 @@ import com.atakmap.android.dropdown.DropDownReceiver;
 import com.atakmap.android.maps.MapView;
 import com.atakmap.coremap.log.Log;
 import com.gotak.address.plugin.R;
+import com.gotak.address.sched.PluginScheduler;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -34,15 +37,24 @@ import java.util.List;
  */
 public class OfflineDataDropDown extends DropDownReceiver implements
         DropDown.OnStateListener,
-        OfflineStateAdapter.StateActionListener {
+        OfflineStateAdapter.StateActionListener,
+        DownloadQueue.Listener {
 
     public static final String TAG = "OfflineDataDropDown";
     public static final String SHOW_OFFLINE_DATA = "com.gotak.address.SHOW_OFFLINE_DATA";
     public static final String HIDE_OFFLINE_DATA = "com.gotak.address.HIDE_OFFLINE_DATA";
+    
+    // Rate and time left are refreshed this often while downloads run, so they
+    // decay on a stalled link instead of freezing at the last progress callback
+    private static final long SUMMARY_REFRESH_MS = 1000;
 
     private final Context pluginContext;
     private final OfflineAddressDatabase database;
     private final OfflineDataManager dataManager;
+    private final DownloadQueue downloadQueue;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable summaryRefresh = this::updateQueueProgress;
+    private boolean panelOpen = false;
     
     // UI elements
     private View rootView;
@@ -62,8 +74,13 @@ public class OfflineDataDropDown extends DropDownReceiver implements
     public OfflineDataDropDown(MapView mapView, Context pluginContext) {
         super(mapView);
         this.pluginContext = pluginContext;
-        this.database = new OfflineAddressDatabase(pluginContext);
+        this.database = OfflineAddressDatabase.getInstance(pluginContext);
         this.dataManager = new OfflineDataManager(pluginContext, database);
+        
+        // Downloads queued before the last shutdown continue in the background
+        this.downloadQueue = new DownloadQueue(dataManager, database.getDatabaseDir());
+        downloadQueue.setListener(this);
+        downloadQueue.resume();
     }
 
     @Override
@@ -102,7 +119,7 @@ public class OfflineDataDropDown extends DropDownReceiver implements
             cancelDownloadButton = rootView.findViewById(R.id.cancel_download_button);
 
             // Setup RecyclerView
-            adapter = new OfflineStateAdapter(pluginContext, this);
+            adapter = new OfflineStateAdapter(pluginContext, this, downloadQueue);
             statesList.setLayoutManager(new LinearLayoutManager(pluginContext));
             statesList.setAdapter(adapter);
 
@@ -114,15 +131,17 @@ public class OfflineDataDropDown extends DropDownReceiver implements
             refreshButton.setOnClickListener(v -> loadAvailableStates());
 
             cancelDownloadButton.setOnClickListener(v -> {
-                dataManager.cancelDownload();
+                downloadQueue.cancelAll();
             });
             
             // Setup import file button
             importFileButton = rootView.findViewById(R.id.import_file_button);
             importFileButton.setOnClickListener(v -> showFileImportDialog());
 
-            // Update storage info
+            // Update storage info and any queued downloads
+            panelOpen = true;
             updateStorageInfo();
+            updateQueueProgress();
 
             // Show dropdown
             showDropDown(
@@ -267,57 +286,89 @@ public class OfflineDataDropDown extends DropDownReceiver implements
 
     @Override
     public void onDownload(OfflineDataManager.StateInfo state) {
-        if (dataManager.isDownloading()) {
-            Toast.makeText(pluginContext, "A download is already in progress", 
+        if (!downloadQueue.enqueue(state)) {
+            Toast.makeText(pluginContext, state.name + " is already queued", 
                     Toast.LENGTH_SHORT).show();
-            return;
         }
+    }
 
-        // Show download progress
-        downloadProgressContainer.setVisibility(View.VISIBLE);
-        downloadStateName.setText("Downloading " + state.name + "...");
-        downloadProgress.setProgress(0);
-        downloadProgressText.setText("0%");
+    @Override
+    public void onCancelDownload(OfflineDataManager.StateInfo state) {
+        downloadQueue.cancel(state.id);
+    }
 
-        dataManager.downloadState(state, new OfflineDataManager.DownloadCallback() {
-            @Override
-            public void onProgress(int percent, long downloadedBytes, long totalBytes) {
-                downloadProgress.setProgress(percent);
-                String progressStr = percent + "%";
-                if (totalBytes > 0) {
-                    progressStr += String.format(" (%.1f / %.1f MB)",
-                            downloadedBytes / (1024.0 * 1024.0),
-                            totalBytes / (1024.0 * 1024.0));
-                }
-                downloadProgressText.setText(progressStr);
-            }
+    @Override
+    public void onQueueChanged() {
+        if (adapter != null) {
+            adapter.updateQueueStatus();
+        }
+        updateQueueProgress();
+    }
 
-            @Override
-            public void onComplete(File dbFile) {
-                downloadProgressContainer.setVisibility(View.GONE);
-                Toast.makeText(pluginContext, state.name + " downloaded successfully!", 
-                        Toast.LENGTH_SHORT).show();
-                
-                // Update UI
-                state.downloaded = true;
-                adapter.updateState(state);
-                updateStorageInfo();
-            }
+    @Override
+    public void onItemProgress(DownloadQueue.Item item) {
+        if (adapter != null) {
+            adapter.updateDownload(item.stateId);
+        }
+        updateQueueProgress();
+    }
 
-            @Override
-            public void onError(String error) {
-                downloadProgressContainer.setVisibility(View.GONE);
-                Toast.makeText(pluginContext, "Download failed: " + error, 
-                        Toast.LENGTH_LONG).show();
-            }
+    @Override
+    public void onItemComplete(DownloadQueue.Item item, File dbFile) {
+        Toast.makeText(pluginContext, item.name + " downloaded successfully!", 
+                Toast.LENGTH_SHORT).show();
+        if (adapter == null) {
+            return;
+        }
+        
+        // Update UI
+        OfflineDataManager.StateInfo state = adapter.getState(item.stateId);
+        if (state != null) {
+            state.downloaded = true;
+            adapter.updateState(state);
+        }
+        updateStorageInfo();
+    }
 
-            @Override
-            public void onCancelled() {
-                downloadProgressContainer.setVisibility(View.GONE);
-                Toast.makeText(pluginContext, "Download cancelled", 
-                        Toast.LENGTH_SHORT).show();
+    @Override
+    public void onItemFailed(DownloadQueue.Item item, String error) {
+        Toast.makeText(pluginContext, item.name + " download failed: " + error, 
+                Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * Show combined progress, rate and time left for the download queue.
+     */
+    private void updateQueueProgress() {
+        mainHandler.removeCallbacks(summaryRefresh);
+        if (downloadProgressContainer == null) {
+            return;
+        }
+        
+        int downloading = downloadQueue.countWithStatus(DownloadQueue.Status.DOWNLOADING);
+        int queued = downloadQueue.countWithStatus(DownloadQueue.Status.QUEUED);
+        if (downloading == 0 && queued == 0) {
+            downloadProgressContainer.setVisibility(View.GONE);
+            return;
+        }
+        
+        downloadProgressContainer.setVisibility(View.VISIBLE);
+        if (downloading == 1 && queued == 0) {
+            for (DownloadQueue.Item item : downloadQueue.getItems()) {
+                if (item.getStatus() == DownloadQueue.Status.DOWNLOADING) {
+                    downloadStateName.setText("Downloading " + item.name + "...");
+                }
             }
-        });
+        } else {
+            downloadStateName.setText("Downloading " + downloading + " of " 
+                    + (downloading + queued) + " states...");
+        }
+        downloadProgress.setIndeterminate(false);
+        downloadProgress.setProgress(downloadQueue.getOverallPercent());
+        downloadProgressText.setText(downloadQueue.getSummary());
+        if (downloading > 0 && panelOpen) {
+            mainHandler.postDelayed(summaryRefresh, SUMMARY_REFRESH_MS);
+        }
     }
 
     @Override
@@ -527,13 +578,17 @@ public class OfflineDataDropDown extends DropDownReceiver implements
         downloadProgressText.setText("Copying " + (sourceFile.length() / 1024 / 1024) + " MB...");
         
         // Run copy in background
-        new Thread(() -> {
+        PluginScheduler.getInstance().execute(PluginScheduler.Lane.IO, PluginScheduler.Priority.BULK, () -> {
             try {
                 File destFile = database.getDatabaseFile(stateId);
                 Log.i(TAG, "Copying from: " + sourceFile.getAbsolutePath());
                 Log.i(TAG, "Copying to: " + destFile.getAbsolutePath());
                 
+                // The copy overwrites the file in place; drop connections to the old contents
+                database.invalidateState(stateId);
                 copyFile(sourceFile, destFile);
+                database.invalidateState(stateId);
+                database.indexStateBounds(stateId);
                 
                 Log.i(TAG, "Copy complete. Dest size: " + destFile.length());
                 
@@ -558,7 +613,7 @@ public class OfflineDataDropDown extends DropDownReceiver implements
                             Toast.LENGTH_LONG).show();
                 });
             }
-        }).start();
+        });
     }
     
     /**
@@ -584,7 +639,10 @@ public class OfflineDataDropDown extends DropDownReceiver implements
     public void onDropDownSelectionRemoved() {}
 
     @Override
-    public void onDropDownClose() {}
+    public void onDropDownClose() {
+        panelOpen = false;
+        mainHandler.removeCallbacks(summaryRefresh);
+    }
 
     @Override
     public void onDropDownSizeChanged(double width, double height) {}
@@ -594,8 +652,9 @@ public class OfflineDataDropDown extends DropDownReceiver implements
 
     @Override
     protected void disposeImpl() {
-        dataManager.shutdown();
-        database.close();
+        // Keeps the queue and partial files; downloads continue on the next load
+        mainHandler.removeCallbacks(summaryRefresh);
+        downloadQueue.shutdown();
     }
 }
 
@@ -1,33 +1,42 @@
 package com.gotak.address.search;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.util.JsonToken;
 
+import com.atakmap.android.maps.MapView;
 import com.atakmap.coremap.log.Log;
+import com.gotak.address.net.HttpEngine;
+import com.gotak.address.net.JsonStreams;
+import com.gotak.address.sched.PluginScheduler;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Manages downloading and updating offline address databases.
  * Downloads pre-built SQLite databases from GitHub releases.
+ * 
+ * Downloads use HTTP Range requests and a DownloadJournal, so an interrupted download
+ * resumes where it stopped, and large files are fetched as several ranges at once.
  */
 public class OfflineDataManager {
     private static final String TAG = "OfflineDataManager";
@@ -39,24 +48,39 @@ public class OfflineDataManager {
     private static final String BASE_URL = "https://github.com/" + GITHUB_REPO + "/releases/download/" + RELEASE_TAG + "/";
     private static final String MANIFEST_URL = BASE_URL + "manifest.json";
     
-    private static final String USER_AGENT = "ATAK-AddressPlugin/1.0";
     private static final int CONNECT_TIMEOUT = 15000;
     private static final int READ_TIMEOUT = 60000; // Longer timeout for large files
     private static final int BUFFER_SIZE = 8192;
     
+    // Downloads go to <state>.db.part, with byte-range progress in <state>.db.part.json
+    private static final String PART_SUFFIX = ".db.part";
+    private static final String JOURNAL_SUFFIX = ".db.part.json";
+    // Progress is checkpointed to the journal after this many new bytes
+    private static final long JOURNAL_SAVE_INTERVAL_BYTES = 1024 * 1024;
+    // Progress is reported at least this often, not only per percent, so slow links
+    // still give the queue enough samples for a transfer rate
+    private static final long PROGRESS_INTERVAL_MS = 500;
+    
+    // Number of byte ranges fetched concurrently; 1 disables parallel ranges
+    public static final String PREF_PARALLEL_RANGES = "address_download_parallel_ranges";
+    private static final int DEFAULT_PARALLEL_RANGES = 2;
+    // Bulk IO threads are shared by every download; more ranges per file rarely help
+    private static final int MAX_PARALLEL_RANGES = 3;
+    // Smaller files are fetched as a single range
+    private static final long MIN_PARALLEL_BYTES = 8L * 1024 * 1024;
+    
     private final Context context;
     private final OfflineAddressDatabase database;
-    private final ExecutorService executor;
     private final Handler mainHandler;
     
-    // Currently downloading state
-    private final AtomicBoolean isDownloading = new AtomicBoolean(false);
-    private final AtomicBoolean cancelRequested = new AtomicBoolean(false);
+    // Downloads in progress by state ID, each with its cancel flag
+    private final Map<String, AtomicBoolean> activeDownloads = new ConcurrentHashMap<>();
+    // Set on shutdown: interrupted downloads keep their part files and resume next time
+    private volatile boolean shuttingDown = false;
     
     public OfflineDataManager(Context context, OfflineAddressDatabase database) {
         this.context = context;
         this.database = database;
-        this.executor = Executors.newSingleThreadExecutor();
         this.mainHandler = new Handler(Looper.getMainLooper());
     }
     
@@ -114,7 +138,7 @@ public class OfflineDataManager {
      * Fetch the manifest of available states.
      */
     public void fetchAvailableStates(ManifestCallback callback) {
-        executor.execute(() -> {
+        PluginScheduler.getInstance().execute(PluginScheduler.Lane.IO, PluginScheduler.Priority.INTERACTIVE, () -> {
             try {
                 List<StateInfo> states = downloadManifest();
                 
@@ -135,195 +159,528 @@ public class OfflineDataManager {
     /**
      * Download manifest.json from the server.
      */
-    private List<StateInfo> downloadManifest() throws IOException, JSONException {
-        HttpURLConnection connection = null;
+    private List<StateInfo> downloadManifest() throws IOException {
+        HttpEngine.Request request = HttpEngine.Request.get(MANIFEST_URL)
+                .setLabel("Manifest")
+                .setTimeouts(CONNECT_TIMEOUT, READ_TIMEOUT);
+        
+        // Stream the JSON, materializing one state entry at a time
+        List<StateInfo> states = HttpEngine.getInstance().newCall(request).executeJson(reader -> {
+            List<StateInfo> parsed = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                // Support both "states" and "regions" keys for compatibility
+                if (parsed == null && ("states".equals(field) || "regions".equals(field))
+                        && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    parsed = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        parsed.add(parseStateInfo(JsonStreams.readObject(reader)));
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return parsed;
+        });
+        
+        if (states == null) {
+            throw new IOException("No 'states' or 'regions' array in manifest");
+        }
+        
+        Log.i(TAG, "Loaded manifest with " + states.size() + " states");
+        return states;
+    }
+    
+    private static StateInfo parseStateInfo(JSONObject stateJson) throws IOException {
         try {
-            URL url = new URL(MANIFEST_URL);
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", USER_AGENT);
-            connection.setConnectTimeout(CONNECT_TIMEOUT);
-            connection.setReadTimeout(READ_TIMEOUT);
-            
-            int responseCode = connection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                throw new IOException("HTTP error: " + responseCode);
+            StateInfo state = new StateInfo();
+            state.id = stateJson.getString("id");
+            state.name = stateJson.getString("name");
+            state.abbrev = stateJson.optString("abbrev", "");
+            state.size = stateJson.optLong("size", 0);
+            state.placeCount = stateJson.optInt("place_count", 0);
+            state.filename = stateJson.optString("filename", state.id + ".db");
+            return state;
+        } catch (JSONException e) {
+            throw new IOException("Invalid manifest entry: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Check if any download is currently in progress.
+     */
+    public boolean isDownloading() {
+        return !activeDownloads.isEmpty();
+    }
+    
+    public boolean isDownloading(String stateId) {
+        return activeDownloads.containsKey(stateId);
+    }
+    
+    /**
+     * Cancel every download in progress, discarding their partial files.
+     */
+    public void cancelDownload() {
+        for (AtomicBoolean cancelled : activeDownloads.values()) {
+            cancelled.set(true);
+        }
+    }
+    
+    /**
+     * Cancel one state's download, discarding its partial file.
+     */
+    public void cancelDownload(String stateId) {
+        AtomicBoolean cancelled = activeDownloads.get(stateId);
+        if (cancelled != null) {
+            cancelled.set(true);
+        }
+    }
+    
+    /**
+     * Bytes already on disk from an interrupted download of a state, or 0.
+     */
+    public long getResumableBytes(String stateId) {
+        DownloadJournal journal = DownloadJournal.load(new File(database.getDatabaseDir(), stateId + JOURNAL_SUFFIX));
+        return journal != null ? journal.getDownloadedBytes() : 0;
+    }
+    
+    /**
+     * Download a state's database.
+     */
+    public void downloadState(StateInfo state, DownloadCallback callback) {
+        downloadState(state.id, state.filename, callback);
+    }
+    
+    /**
+     * Download a state's database by ID. Different states may download concurrently.
+     */
+    public void downloadState(String stateId, String filename, DownloadCallback callback) {
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        if (activeDownloads.putIfAbsent(stateId, cancelled) != null) {
+            mainHandler.post(() -> callback.onError("This state is already downloading"));
+            return;
+        }
+        
+        // Bulk priority: queued searches and geocodes on the IO lane go first
+        try {
+            PluginScheduler.getInstance().execute(PluginScheduler.Lane.IO, PluginScheduler.Priority.BULK,
+                    () -> runDownload(stateId, filename, callback, cancelled));
+        } catch (RejectedExecutionException e) {
+            activeDownloads.remove(stateId);
+            mainHandler.post(() -> callback.onError("Download could not be started: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Download a state's database into its part file and move it into place. Runs on the IO lane.
+     * On failure the part file and journal are kept, so the next attempt resumes.
+     */
+    private void runDownload(String stateId, String filename, DownloadCallback callback,
+                             AtomicBoolean cancelled) {
+        String downloadUrl = BASE_URL + filename;
+        File partFile = new File(database.getDatabaseDir(), stateId + PART_SUFFIX);
+        File journalFile = new File(database.getDatabaseDir(), stateId + JOURNAL_SUFFIX);
+        
+        try {
+            Log.i(TAG, "Downloading: " + downloadUrl);
+            boolean complete;
+            try {
+                complete = downloadToPartFile(downloadUrl, partFile, journalFile, callback, cancelled);
+            } catch (RemoteFileChangedException e) {
+                Log.i(TAG, "Database changed on the server since the last attempt, restarting " + stateId);
+                deletePartialDownload(partFile, journalFile);
+                complete = downloadToPartFile(downloadUrl, partFile, journalFile, callback, cancelled);
             }
             
-            // Read response
-            StringBuilder response = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
+            if (!complete) {
+                onDownloadCancelled(stateId, partFile, journalFile, callback);
+                return;
             }
             
-            // Parse JSON
-            JSONObject manifest = new JSONObject(response.toString());
-            // Support both "states" and "regions" keys for compatibility
-            JSONArray statesArray = manifest.optJSONArray("states");
-            if (statesArray == null) {
-                statesArray = manifest.optJSONArray("regions");
-            }
-            if (statesArray == null) {
-                throw new JSONException("No 'states' or 'regions' array in manifest");
+            // Rename part file to final
+            File finalFile = database.getDatabaseFile(stateId);
+            if (finalFile.exists()) {
+                finalFile.delete();
             }
             
-            List<StateInfo> states = new ArrayList<>();
-            for (int i = 0; i < statesArray.length(); i++) {
-                JSONObject stateJson = statesArray.getJSONObject(i);
-                StateInfo state = new StateInfo();
-                state.id = stateJson.getString("id");
-                state.name = stateJson.getString("name");
-                state.abbrev = stateJson.optString("abbrev", "");
-                state.size = stateJson.optLong("size", 0);
-                state.placeCount = stateJson.optInt("place_count", 0);
-                state.filename = stateJson.optString("filename", state.id + ".db");
-                states.add(state);
+            if (!partFile.renameTo(finalFile)) {
+                throw new IOException("Failed to rename part file");
             }
+            journalFile.delete();
+            
+            // Searches must open the new file, not keep serving the one it replaced
+            database.invalidateState(stateId);
+            database.indexStateBounds(stateId);
             
-            Log.i(TAG, "Loaded manifest with " + states.size() + " states");
-            return states;
+            Log.i(TAG, "Download complete: " + finalFile.getPath());
+            mainHandler.post(() -> callback.onComplete(finalFile));
             
+        } catch (Exception e) {
+            if (cancelled.get()) {
+                onDownloadCancelled(stateId, partFile, journalFile, callback);
+                return;
+            }
+            Log.e(TAG, "Download failed, partial download kept for resume: " + e.getMessage(), e);
+            mainHandler.post(() -> callback.onError(e.getMessage()));
         } finally {
-            if (connection != null) {
-                connection.disconnect();
+            activeDownloads.remove(stateId);
+        }
+    }
+    
+    private void onDownloadCancelled(String stateId, File partFile, File journalFile,
+                                     DownloadCallback callback) {
+        if (shuttingDown) {
+            Log.i(TAG, "Download of " + stateId + " paused for shutdown");
+        } else {
+            Log.i(TAG, "Download of " + stateId + " cancelled");
+            deletePartialDownload(partFile, journalFile);
+        }
+        mainHandler.post(callback::onCancelled);
+    }
+    
+    /**
+     * Fill the part file, resuming from its journal when there is a matching one.
+     * 
+     * @return false if the download was cancelled
+     */
+    private boolean downloadToPartFile(String url, File partFile, File journalFile,
+                                       DownloadCallback callback, AtomicBoolean cancelled)
+            throws IOException {
+        DownloadJournal journal = DownloadJournal.load(journalFile);
+        if (journal != null && (!url.equals(journal.getUrl())
+                || partFile.length() != journal.getTotalBytes())) {
+            Log.i(TAG, "Discarding partial download that does not match " + url);
+            journal = null;
+        }
+        
+        if (journal == null) {
+            deletePartialDownload(partFile, journalFile);
+            journal = startRangeDownload(url, partFile);
+            if (journal == null) {
+                return downloadWhole(url, partFile, callback, cancelled);
             }
+            journal.save(journalFile);
+        } else {
+            Log.i(TAG, "Resuming download at " + journal.getDownloadedBytes() + " of "
+                    + journal.getTotalBytes() + " bytes");
         }
+        
+        return new RangeDownload(journal, partFile, journalFile, callback, cancelled).run();
     }
     
     /**
-     * Check if a download is currently in progress.
+     * Ask for the first byte to learn the size, validator and Range support, then
+     * allocate the part file and plan its segments.
+     * 
+     * @return The new journal, or null if the server does not support Range requests
      */
-    public boolean isDownloading() {
-        return isDownloading.get();
+    private DownloadJournal startRangeDownload(String url, File partFile) throws IOException {
+        HttpEngine.Call call = HttpEngine.getInstance().newCall(downloadRequest(url).setRange(0, 0));
+        long totalBytes;
+        String validator;
+        try (HttpEngine.Response response = call.execute()) {
+            totalBytes = parseContentRangeTotal(response.getHeader("Content-Range"));
+            if (response.getStatusCode() != HttpURLConnection.HTTP_PARTIAL || totalBytes <= 0) {
+                Log.i(TAG, "Server does not support Range requests; download will not be resumable");
+                return null;
+            }
+            // Weak ETags are not allowed in If-Range
+            validator = response.getHeader("ETag");
+            if (validator == null || validator.startsWith("W/")) {
+                validator = response.getHeader("Last-Modified");
+            }
+        }
+        
+        int segments = totalBytes >= MIN_PARALLEL_BYTES ? getParallelRanges() : 1;
+        try (RandomAccessFile output = new RandomAccessFile(partFile, "rw")) {
+            output.setLength(totalBytes);
+        }
+        Log.d(TAG, "Download size: " + totalBytes + " bytes in " + segments + " ranges");
+        return DownloadJournal.create(url, totalBytes, validator, segments);
     }
     
     /**
-     * Cancel the current download.
+     * Single-stream download for servers without Range support. Not resumable.
+     * 
+     * @return false if cancelled
      */
-    public void cancelDownload() {
-        cancelRequested.set(true);
+    private boolean downloadWhole(String url, File partFile, DownloadCallback callback,
+                                  AtomicBoolean cancelled) throws IOException {
+        HttpEngine.Call call = HttpEngine.getInstance().newCall(downloadRequest(url));
+        // Closing the response closes the body stream that input wraps
+        try (HttpEngine.Response response = call.execute();
+             FileOutputStream output = new FileOutputStream(partFile)) {
+            InputStream input = new BufferedInputStream(response.getBody(), BUFFER_SIZE);
+            long totalBytes = response.getContentLength();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long downloadedBytes = 0;
+            int bytesRead;
+            int lastProgress = -1;
+            long lastProgressTime = 0;
+            
+            while ((bytesRead = input.read(buffer)) != -1) {
+                if (cancelled.get()) {
+                    call.cancel();
+                    return false;
+                }
+                
+                output.write(buffer, 0, bytesRead);
+                downloadedBytes += bytesRead;
+                
+                if (totalBytes > 0) {
+                    int progress = (int) ((downloadedBytes * 100) / totalBytes);
+                    long now = SystemClock.elapsedRealtime();
+                    if (progress != lastProgress || now - lastProgressTime >= PROGRESS_INTERVAL_MS) {
+                        lastProgress = progress;
+                        lastProgressTime = now;
+                        final long finalDownloaded = downloadedBytes;
+                        mainHandler.post(() -> 
+                            callback.onProgress(progress, finalDownloaded, totalBytes));
+                    }
+                }
+            }
+        }
+        return true;
     }
     
     /**
-     * Download a state's database.
+     * Request for (part of) a database file. The engine follows the GitHub releases
+     * redirect; no gzip so lengths and byte offsets are those of the file itself.
      */
-    public void downloadState(StateInfo state, DownloadCallback callback) {
-        downloadState(state.id, state.filename, callback);
+    private static HttpEngine.Request downloadRequest(String url) {
+        return HttpEngine.Request.get(url)
+                .setLabel("Download")
+                .setTimeouts(CONNECT_TIMEOUT, READ_TIMEOUT)
+                .setGzip(false);
     }
     
     /**
-     * Download a state's database by ID.
+     * Total length from a "bytes 0-0/12345" Content-Range header, or -1.
      */
-    public void downloadState(String stateId, String filename, DownloadCallback callback) {
-        if (isDownloading.get()) {
-            mainHandler.post(() -> callback.onError("A download is already in progress"));
-            return;
+    private static long parseContentRangeTotal(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        try {
+            return slash >= 0 ? Long.parseLong(contentRange.substring(slash + 1).trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1; // "*" - length unknown
+        }
+    }
+    
+    /**
+     * Number of ranges to fetch concurrently, from the preferences.
+     */
+    private static int getParallelRanges() {
+        try {
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(MapView.getMapView().getContext());
+            int ranges = Integer.parseInt(prefs.getString(PREF_PARALLEL_RANGES, String.valueOf(DEFAULT_PARALLEL_RANGES)));
+            return Math.max(1, Math.min(MAX_PARALLEL_RANGES, ranges));
+        } catch (Exception e) {
+            return DEFAULT_PARALLEL_RANGES;
+        }
+    }
+    
+    private static void deletePartialDownload(File partFile, File journalFile) {
+        partFile.delete();
+        journalFile.delete();
+    }
+    
+    /**
+     * The server sent the whole file for a range request with If-Range, so it has
+     * changed since the journal was started.
+     */
+    private static class RemoteFileChangedException extends IOException {
+        RemoteFileChangedException() {
+            super("Database changed on the server");
         }
+    }
+    
+    /**
+     * Fetches a journal's incomplete segments, several at once when there are helpers.
+     * 
+     * The calling thread and any helper tasks on the IO lane claim segments from a
+     * shared cursor until none are left, so the download completes even if no helper
+     * gets a thread; a helper that starts late simply finds nothing to do.
+     */
+    private class RangeDownload {
+        private final DownloadJournal journal;
+        private final File partFile;
+        private final File journalFile;
+        private final DownloadCallback callback;
+        private final AtomicBoolean cancelled;
+        private final List<HttpEngine.Call> activeCalls = new ArrayList<>();
+        private int nextSegment = 0;
+        private int fetching = 0;
+        private IOException failure;
+        private long unsavedBytes = 0;
+        private int lastProgress = -1;
+        private long lastProgressTime = 0;
         
-        isDownloading.set(true);
-        cancelRequested.set(false);
+        RangeDownload(DownloadJournal journal, File partFile, File journalFile,
+                      DownloadCallback callback, AtomicBoolean cancelled) {
+            this.journal = journal;
+            this.partFile = partFile;
+            this.journalFile = journalFile;
+            this.callback = callback;
+            this.cancelled = cancelled;
+        }
         
-        executor.execute(() -> {
-            HttpURLConnection connection = null;
-            InputStream input = null;
-            FileOutputStream output = null;
-            File tempFile = null;
+        /**
+         * @return false if cancelled
+         */
+        boolean run() throws IOException {
+            int helpers = Math.min(journal.getSegments().size(), getParallelRanges()) - 1;
+            for (int i = 0; i < helpers; i++) {
+                try {
+                    PluginScheduler.getInstance().execute(PluginScheduler.Lane.IO,
+                            PluginScheduler.Priority.BULK, this::fetchSegments);
+                } catch (RejectedExecutionException e) {
+                    break; // This thread covers the remaining segments
+                }
+            }
+            fetchSegments();
             
-            try {
-                String downloadUrl = BASE_URL + filename;
-                Log.i(TAG, "Downloading: " + downloadUrl);
-                
-                URL url = new URL(downloadUrl);
-                connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setRequestProperty("User-Agent", USER_AGENT);
-                connection.setConnectTimeout(CONNECT_TIMEOUT);
-                connection.setReadTimeout(READ_TIMEOUT);
-                
-                // Handle redirects (GitHub releases redirect)
-                connection.setInstanceFollowRedirects(true);
-                
-                int responseCode = connection.getResponseCode();
-                if (responseCode != HttpURLConnection.HTTP_OK) {
-                    throw new IOException("HTTP error: " + responseCode);
+            synchronized (this) {
+                try {
+                    while (fetching > 0) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    cancelCalls();
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Download interrupted", e);
+                } finally {
+                    journal.save(journalFile);
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+            if (cancelled.get()) {
+                return false;
+            }
+            if (!journal.isComplete()) {
+                throw new IOException("Download incomplete");
+            }
+            return true;
+        }
+        
+        private void fetchSegments() {
+            DownloadJournal.Segment segment;
+            while ((segment = claimSegment()) != null) {
+                try {
+                    fetch(segment);
+                } catch (IOException e) {
+                    fail(e);
+                } finally {
+                    synchronized (this) {
+                        fetching--;
+                        notifyAll();
+                    }
+                }
+            }
+        }
+        
+        private synchronized DownloadJournal.Segment claimSegment() {
+            List<DownloadJournal.Segment> segments = journal.getSegments();
+            while (failure == null && !cancelled.get() && nextSegment < segments.size()) {
+                DownloadJournal.Segment segment = segments.get(nextSegment++);
+                if (!segment.isComplete()) {
+                    fetching++;
+                    return segment;
+                }
+            }
+            return null;
+        }
+        
+        private void fetch(DownloadJournal.Segment segment) throws IOException {
+            HttpEngine.Request request = downloadRequest(journal.getUrl())
+                    .setRange(segment.nextOffset(), segment.end);
+            if (journal.getValidator() != null) {
+                request.setHeader("If-Range", journal.getValidator());
+            }
+            HttpEngine.Call call = HttpEngine.getInstance().newCall(request);
+            synchronized (this) {
+                activeCalls.add(call);
+            }
+            
+            try (HttpEngine.Response response = call.execute();
+                 RandomAccessFile output = new RandomAccessFile(partFile, "rw")) {
+                if (response.getStatusCode() != HttpURLConnection.HTTP_PARTIAL) {
+                    throw new RemoteFileChangedException();
                 }
                 
-                long totalBytes = connection.getContentLengthLong();
-                Log.d(TAG, "Download size: " + totalBytes + " bytes");
-                
-                // Create temp file
-                tempFile = new File(database.getDatabaseDir(), stateId + ".db.tmp");
-                
-                input = new BufferedInputStream(connection.getInputStream());
-                output = new FileOutputStream(tempFile);
-                
+                output.seek(segment.nextOffset());
+                InputStream input = response.getBody();
                 byte[] buffer = new byte[BUFFER_SIZE];
-                long downloadedBytes = 0;
+                long remaining = segment.end + 1 - segment.nextOffset();
                 int bytesRead;
-                int lastProgress = -1;
-                
-                while ((bytesRead = input.read(buffer)) != -1) {
-                    // Check for cancellation
-                    if (cancelRequested.get()) {
-                        Log.i(TAG, "Download cancelled");
-                        mainHandler.post(callback::onCancelled);
+                while (remaining > 0
+                        && (bytesRead = input.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                    if (cancelled.get()) {
+                        call.cancel();
                         return;
                     }
-                    
                     output.write(buffer, 0, bytesRead);
-                    downloadedBytes += bytesRead;
-                    
-                    // Report progress
-                    if (totalBytes > 0) {
-                        int progress = (int) ((downloadedBytes * 100) / totalBytes);
-                        if (progress != lastProgress) {
-                            lastProgress = progress;
-                            final long finalDownloaded = downloadedBytes;
-                            mainHandler.post(() -> 
-                                callback.onProgress(progress, finalDownloaded, totalBytes));
-                        }
-                    }
+                    segment.addWritten(bytesRead);
+                    remaining -= bytesRead;
+                    onBytesWritten(bytesRead);
                 }
-                
-                output.flush();
-                output.close();
-                output = null;
-                
-                // Rename temp file to final
-                File finalFile = database.getDatabaseFile(stateId);
-                if (finalFile.exists()) {
-                    finalFile.delete();
+                if (remaining > 0) {
+                    throw new IOException("Connection closed with " + remaining + " bytes left in range");
                 }
-                
-                if (!tempFile.renameTo(finalFile)) {
-                    throw new IOException("Failed to rename temp file");
-                }
-                
-                Log.i(TAG, "Download complete: " + finalFile.getPath());
-                mainHandler.post(() -> callback.onComplete(finalFile));
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Download failed: " + e.getMessage(), e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
             } finally {
-                isDownloading.set(false);
-                
+                synchronized (this) {
+                    activeCalls.remove(call);
+                }
+            }
+        }
+        
+        /**
+         * Report progress (per percent or every PROGRESS_INTERVAL_MS) and checkpoint
+         * the journal every JOURNAL_SAVE_INTERVAL_BYTES.
+         */
+        private synchronized void onBytesWritten(int bytes) {
+            unsavedBytes += bytes;
+            if (unsavedBytes >= JOURNAL_SAVE_INTERVAL_BYTES) {
+                unsavedBytes = 0;
                 try {
-                    if (input != null) input.close();
-                    if (output != null) output.close();
-                    if (connection != null) connection.disconnect();
-                } catch (Exception ignored) {}
-                
-                // Clean up temp file on failure
-                if (tempFile != null && tempFile.exists()) {
-                    tempFile.delete();
+                    journal.save(journalFile);
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not checkpoint download: " + e.getMessage());
                 }
             }
-        });
+            
+            long downloadedBytes = journal.getDownloadedBytes();
+            long totalBytes = journal.getTotalBytes();
+            int progress = (int) ((downloadedBytes * 100) / totalBytes);
+            long now = SystemClock.elapsedRealtime();
+            if (progress != lastProgress || now - lastProgressTime >= PROGRESS_INTERVAL_MS) {
+                lastProgress = progress;
+                lastProgressTime = now;
+                mainHandler.post(() -> callback.onProgress(progress, downloadedBytes, totalBytes));
+            }
+        }
+        
+        private synchronized void fail(IOException e) {
+            if (failure == null && !cancelled.get()) {
+                failure = e;
+                // Stop the other ranges; everything written so far is kept in the journal
+                cancelCalls();
+            }
+        }
+        
+        private synchronized void cancelCalls() {
+            for (HttpEngine.Call call : activeCalls) {
+                call.cancel();
+            }
+        }
     }
     
     /**
@@ -363,11 +720,11 @@ public class OfflineDataManager {
     }
     
     /**
-     * Shutdown the executor.
+     * Stop any downloads in progress, keeping their partial files so they resume later.
      */
     public void shutdown() {
-        cancelRequested.set(true);
-        executor.shutdown();
+        shuttingDown = true;
+        cancelDownload();
     }
 }
 
@@ -9,12 +9,21 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.gotak.address.plugin.R;
+import com.gotak.address.sched.PluginScheduler;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * Adapter for displaying available states for offline download.
@@ -24,42 +33,100 @@ public class OfflineStateAdapter extends RecyclerView.Adapter<OfflineStateAdapte
     public interface StateActionListener {
         void onDownload(OfflineDataManager.StateInfo state);
         void onDelete(OfflineDataManager.StateInfo state);
+        void onCancelDownload(OfflineDataManager.StateInfo state);
     }
 
     private final Context context;
     private final StateActionListener listener;
-    private final List<OfflineDataManager.StateInfo> states = new ArrayList<>();
+    private final DownloadQueue downloadQueue;
+    private final AsyncListDiffer<OfflineDataManager.StateInfo> differ;
+    private final StableIds<OfflineDataManager.StateInfo> stableIds = new StableIds<>(state -> state.id);
+    // Queue status each row was last bound with, to rebind only rows whose status changed
+    private final Map<String, DownloadQueue.Status> boundQueueStatus = new HashMap<>();
 
-    public OfflineStateAdapter(Context context, StateActionListener listener) {
+    public OfflineStateAdapter(Context context, StateActionListener listener, DownloadQueue downloadQueue) {
         this.context = context;
         this.listener = listener;
+        this.downloadQueue = downloadQueue;
+        this.differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                        .setBackgroundThreadExecutor(PluginScheduler.getInstance().executor(
+                                PluginScheduler.Lane.CPU, PluginScheduler.Priority.INTERACTIVE))
+                        .build());
+        setHasStableIds(true);
     }
 
     public void setStates(List<OfflineDataManager.StateInfo> newStates) {
-        states.clear();
-        states.addAll(newStates);
+        List<OfflineDataManager.StateInfo> sorted = new ArrayList<>(newStates);
         
         // Sort: downloaded items first, then alphabetically by name
-        states.sort((a, b) -> {
+        Collections.sort(sorted, (a, b) -> {
             if (a.downloaded != b.downloaded) {
                 return a.downloaded ? -1 : 1;  // Downloaded first
             }
             return a.name.compareToIgnoreCase(b.name);
         });
         
-        notifyDataSetChanged();
+        differ.submitList(sorted);
     }
 
     public void updateState(OfflineDataManager.StateInfo updatedState) {
+        List<OfflineDataManager.StateInfo> states = differ.getCurrentList();
         for (int i = 0; i < states.size(); i++) {
             if (states.get(i).id.equals(updatedState.id)) {
-                states.set(i, updatedState);
+                if (states.get(i) == updatedState) {
+                    // Changed in place, so there is nothing to diff against
+                    notifyItemChanged(i);
+                } else {
+                    List<OfflineDataManager.StateInfo> updated = new ArrayList<>(states);
+                    updated.set(i, updatedState);
+                    differ.submitList(updated);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Rebind a state's row after its download progress or queue status changed.
+     */
+    public void updateDownload(String stateId) {
+        List<OfflineDataManager.StateInfo> states = differ.getCurrentList();
+        for (int i = 0; i < states.size(); i++) {
+            if (states.get(i).id.equals(stateId)) {
                 notifyItemChanged(i);
                 break;
             }
         }
     }
 
+    /**
+     * Rebind the rows whose download queue status changed since they were last bound.
+     */
+    public void updateQueueStatus() {
+        List<OfflineDataManager.StateInfo> states = differ.getCurrentList();
+        for (int i = 0; i < states.size(); i++) {
+            String stateId = states.get(i).id;
+            if (boundQueueStatus.containsKey(stateId) && boundQueueStatus.get(stateId) != getQueueStatus(stateId)) {
+                notifyItemChanged(i);
+            }
+        }
+    }
+
+    public OfflineDataManager.StateInfo getState(String stateId) {
+        for (OfflineDataManager.StateInfo state : differ.getCurrentList()) {
+            if (state.id.equals(stateId)) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    private DownloadQueue.Status getQueueStatus(String stateId) {
+        DownloadQueue.Item queued = downloadQueue != null ? downloadQueue.getItem(stateId) : null;
+        return queued != null ? queued.getStatus() : null;
+    }
+
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -70,21 +137,47 @@ public class OfflineStateAdapter extends RecyclerView.Adapter<OfflineStateAdapte
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        OfflineDataManager.StateInfo state = states.get(position);
+        OfflineDataManager.StateInfo state = differ.getCurrentList().get(position);
         holder.bind(state);
     }
 
     @Override
     public int getItemCount() {
-        return states.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.getId(differ.getCurrentList(), position);
     }
 
+    private static final DiffUtil.ItemCallback<OfflineDataManager.StateInfo> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<OfflineDataManager.StateInfo>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull OfflineDataManager.StateInfo oldItem,
+                                       @NonNull OfflineDataManager.StateInfo newItem) {
+            return oldItem.id.equals(newItem.id);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull OfflineDataManager.StateInfo oldItem,
+                                          @NonNull OfflineDataManager.StateInfo newItem) {
+            // StateInfo is mutable; the same instance may have changed since it was bound
+            return oldItem != newItem
+                    && oldItem.downloaded == newItem.downloaded
+                    && oldItem.size == newItem.size
+                    && oldItem.placeCount == newItem.placeCount
+                    && Objects.equals(oldItem.name, newItem.name);
+        }
+    };
+
     class ViewHolder extends RecyclerView.ViewHolder {
         private final TextView stateName;
         private final TextView stateAbbrev;
         private final TextView stateInfo;
         private final ImageView downloadedIcon;
         private final Button actionButton;
+        private final Button removeButton;
 
         ViewHolder(View itemView) {
             super(itemView);
@@ -93,6 +186,7 @@ public class OfflineStateAdapter extends RecyclerView.Adapter<OfflineStateAdapte
             stateInfo = itemView.findViewById(R.id.state_info);
             downloadedIcon = itemView.findViewById(R.id.downloaded_icon);
             actionButton = itemView.findViewById(R.id.action_button);
+            removeButton = itemView.findViewById(R.id.remove_button);
         }
 
         void bind(OfflineDataManager.StateInfo state) {
@@ -100,9 +194,25 @@ public class OfflineStateAdapter extends RecyclerView.Adapter<OfflineStateAdapte
             stateName.setText(state.name);
             stateAbbrev.setVisibility(View.GONE);
             
-            // Show size and place count
+            DownloadQueue.Item queued = downloadQueue != null ? downloadQueue.getItem(state.id) : null;
+            boundQueueStatus.put(state.id, queued != null ? queued.getStatus() : null);
+            
+            // Show size and place count, or download status while queued
             StringBuilder info = new StringBuilder();
-            if (state.downloaded) {
+            if (queued != null) {
+                switch (queued.getStatus()) {
+                    case DOWNLOADING:
+                        info.append("DOWNLOADING ").append(queued.getPercent()).append("% • ");
+                        break;
+                    case FAILED:
+                        info.append("FAILED: ").append(queued.getError()).append(" • ");
+                        break;
+                    default:
+                        info.append(queued.getDownloadedBytes() > 0
+                                ? "QUEUED (" + queued.getPercent() + "% done) • " : "QUEUED • ");
+                        break;
+                }
+            } else if (state.downloaded) {
                 info.append("✓ DOWNLOADED • ");
             }
             info.append(state.getSizeFormatted());
@@ -114,8 +224,32 @@ public class OfflineStateAdapter extends RecyclerView.Adapter<OfflineStateAdapte
             // Update UI based on downloaded state
             // Always hide the downloaded icon (use text indicator instead)
             downloadedIcon.setVisibility(View.GONE);
+            removeButton.setVisibility(View.GONE);
             
-            if (state.downloaded) {
+            if (queued != null && queued.getStatus() == DownloadQueue.Status.FAILED) {
+                actionButton.setText("Retry");
+                actionButton.setBackgroundResource(R.drawable.bg_button_download);
+                actionButton.setOnClickListener(v -> {
+                    if (listener != null) {
+                        listener.onDownload(state);
+                    }
+                });
+                // Dismiss a download that keeps failing
+                removeButton.setVisibility(View.VISIBLE);
+                removeButton.setOnClickListener(v -> {
+                    if (listener != null) {
+                        listener.onCancelDownload(state);
+                    }
+                });
+            } else if (queued != null) {
+                actionButton.setText("Cancel");
+                actionButton.setBackgroundResource(R.drawable.bg_button_delete);
+                actionButton.setOnClickListener(v -> {
+                    if (listener != null) {
+                        listener.onCancelDownload(state);
+                    }
+                });
+            } else if (state.downloaded) {
                 actionButton.setText("Delete");
                 actionButton.setBackgroundResource(R.drawable.bg_button_delete);
                 actionButton.setOnClickListener(v -> {
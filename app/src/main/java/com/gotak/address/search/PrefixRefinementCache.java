@@ -0,0 +1,159 @@
+package com.gotak.address.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Remembers the last offline search so as-you-type refinements can be answered in memory.
+ *
+ * When the user types "lynnh" -> "lynnha" -> "lynnhav", each new FTS query only extends
+ * the last prefix token of the previous one, so its matches are a subset of the previous
+ * matches. If the previous result set was complete (no state hit the limit, every state
+ * answered), the cached rows are filtered in memory instead of querying every state
+ * database again. Otherwise the caller falls through to SQLite.
+ *
+ * Rows are matched the way the FTS5 unicode61 tokenizer indexes them: case-folded,
+ * diacritics removed, split on anything that isn't a letter or digit.
+ */
+public class PrefixRefinementCache {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{Mn}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern BAREWORD = Pattern.compile("[\\p{L}\\p{N}]+\\*?");
+
+    private String lastFtsQuery;
+    private List<String> lastStates;
+    private List<NominatimSearchResult> lastResults;
+    private List<String> lastSearchTexts;
+
+    /**
+     * Try to answer a query from the last complete result set.
+     *
+     * @param ftsQuery Sanitized FTS query (see OfflineAddressDatabase.sanitizeFtsQuery)
+     * @param states The downloaded states the query would search
+     * @return Filtered results, or null if the query must go to SQLite
+     */
+    public synchronized List<NominatimSearchResult> refine(String ftsQuery, List<String> states) {
+        if (lastFtsQuery == null || !states.equals(lastStates) || !isRefinement(lastFtsQuery, ftsQuery)) {
+            return null;
+        }
+
+        String[] terms = ftsQuery.split(" ");
+        List<NominatimSearchResult> results = new ArrayList<>();
+        List<String> searchTexts = new ArrayList<>();
+        for (int i = 0; i < lastResults.size(); i++) {
+            if (matches(lastSearchTexts.get(i), terms)) {
+                results.add(lastResults.get(i));
+                searchTexts.add(lastSearchTexts.get(i));
+            }
+        }
+
+        // The filtered set is still complete, so the next keystroke can refine it again
+        lastFtsQuery = ftsQuery;
+        lastResults = results;
+        lastSearchTexts = searchTexts;
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Remember the result set of a query that went to SQLite.
+     * Truncated result sets are not kept since they can't answer refinements.
+     *
+     * @param searchTexts Text of the indexed FTS columns for each result
+     * @param truncated True if any state hit the limit, rows were dropped, or a state didn't answer
+     */
+    public synchronized void store(String ftsQuery, List<String> states,
+                                   List<NominatimSearchResult> results, List<String> searchTexts,
+                                   boolean truncated) {
+        if (truncated || searchTexts.contains(null)) {
+            clear();
+            return;
+        }
+        lastFtsQuery = ftsQuery;
+        lastStates = new ArrayList<>(states);
+        lastResults = new ArrayList<>(results);
+        lastSearchTexts = new ArrayList<>(searchTexts);
+    }
+
+    /**
+     * Forget the last result set, e.g. when state databases change.
+     */
+    public synchronized void clear() {
+        lastFtsQuery = null;
+        lastStates = null;
+        lastResults = null;
+        lastSearchTexts = null;
+    }
+
+    /**
+     * Check whether the new query only extends the last prefix token of the previous one.
+     */
+    static boolean isRefinement(String previous, String current) {
+        String[] prevTerms = previous.split(" ");
+        String[] currTerms = current.split(" ");
+        if (prevTerms.length != currTerms.length) {
+            return false;
+        }
+
+        int last = currTerms.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (!prevTerms[i].equals(currTerms[i])) {
+                return false;
+            }
+        }
+
+        String prevLast = prevTerms[last];
+        String currLast = currTerms[last];
+        if (!prevLast.endsWith("*") || !currLast.endsWith("*")) {
+            return false;
+        }
+        for (String term : currTerms) {
+            // Anything FTS5 would split further can't be matched reliably in memory
+            if (!BAREWORD.matcher(term).matches()) {
+                return false;
+            }
+        }
+
+        String prevPrefix = prevLast.substring(0, prevLast.length() - 1);
+        String currPrefix = currLast.substring(0, currLast.length() - 1);
+        return currPrefix.length() > prevPrefix.length()
+                && normalize(currPrefix).startsWith(normalize(prevPrefix));
+    }
+
+    /**
+     * Check whether every term matches a token of the row (prefix terms end in '*').
+     */
+    static boolean matches(String searchText, String[] terms) {
+        Set<String> tokens = new HashSet<>(Arrays.asList(SEPARATORS.split(normalize(searchText))));
+        for (String term : terms) {
+            if (term.endsWith("*")) {
+                String prefix = normalize(term.substring(0, term.length() - 1));
+                boolean found = false;
+                for (String token : tokens) {
+                    if (token.startsWith(prefix)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            } else if (!tokens.contains(normalize(term))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Case-fold and strip diacritics like the unicode61 tokenizer.
+     */
+    private static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase();
+    }
+}
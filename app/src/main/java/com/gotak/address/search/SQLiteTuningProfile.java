@@ -0,0 +1,132 @@
+package com.gotak.address.search;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.atakmap.coremap.log.Log;
+
+import java.io.File;
+
+/**
+ * Connection settings for the read-only state databases, chosen by device memory class.
+ *
+ * Databases are opened without the localized collators (nothing sorts with LOCALIZED)
+ * and tuned with:
+ * - mmap_size: large state files (California, Texas) are read through a memory map
+ *   instead of a pread() per page
+ * - cache_size: per-connection page cache, also what the connection cache budgets by
+ * - temp_store=MEMORY: sorts and temp b-trees for ORDER BY never touch storage
+ * - query_only: the connection can never write, whatever SQL reaches it
+ */
+public class SQLiteTuningProfile {
+    private static final String TAG = "SQLiteTuningProfile";
+
+    // Memory class (MB of app heap) at or above which a profile applies
+    private static final int NORMAL_MEMORY_CLASS = 128;
+    private static final int HIGH_MEMORY_CLASS = 256;
+
+    public static final SQLiteTuningProfile LOW =
+        new SQLiteTuningProfile("low", 64L * 1024 * 1024, 1000, 16L * 1024 * 1024);
+    public static final SQLiteTuningProfile NORMAL =
+        new SQLiteTuningProfile("normal", 256L * 1024 * 1024, 2000, 32L * 1024 * 1024);
+    public static final SQLiteTuningProfile HIGH =
+        new SQLiteTuningProfile("high", 512L * 1024 * 1024, 4000, 64L * 1024 * 1024);
+
+    private final String name;
+    private final long mmapSizeBytes;
+    private final int cacheSizeKib;
+    private final long connectionBudgetBytes;
+
+    public SQLiteTuningProfile(String name, long mmapSizeBytes, int cacheSizeKib,
+                               long connectionBudgetBytes) {
+        this.name = name;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.cacheSizeKib = cacheSizeKib;
+        this.connectionBudgetBytes = connectionBudgetBytes;
+    }
+
+    /**
+     * Pick the profile for this device from its memory class.
+     * Falls back to NORMAL if the memory class can't be read.
+     */
+    public static SQLiteTuningProfile forContext(Context context) {
+        try {
+            ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            if (am != null) {
+                SQLiteTuningProfile profile = am.isLowRamDevice()
+                        ? LOW : forMemoryClass(am.getMemoryClass());
+                Log.d(TAG, "Using " + profile.name + " profile (memory class "
+                        + am.getMemoryClass() + "MB)");
+                return profile;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read memory class: " + e.getMessage());
+        }
+        return NORMAL;
+    }
+
+    public static SQLiteTuningProfile forMemoryClass(int memoryClassMb) {
+        if (memoryClassMb >= HIGH_MEMORY_CLASS) {
+            return HIGH;
+        }
+        if (memoryClassMb >= NORMAL_MEMORY_CLASS) {
+            return NORMAL;
+        }
+        return LOW;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Per-connection page cache size in bytes.
+     */
+    public long getPageCacheBytes() {
+        return cacheSizeKib * 1024L;
+    }
+
+    /**
+     * Total page-cache memory the open connections may use together.
+     */
+    public long getConnectionBudgetBytes() {
+        return connectionBudgetBytes;
+    }
+
+    /**
+     * Open a state database read-only and apply this profile.
+     * A pragma that fails is logged and skipped; the connection is still usable.
+     */
+    public SQLiteDatabase open(File dbFile) {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(
+                dbFile.getPath(),
+                null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS
+        );
+
+        // Negative cache_size is in KiB rather than pages, independent of page size
+        applyPragma(db, "mmap_size = " + mmapSizeBytes);
+        applyPragma(db, "cache_size = -" + cacheSizeKib);
+        applyPragma(db, "temp_store = MEMORY");
+        applyPragma(db, "query_only = ON");
+        return db;
+    }
+
+    /**
+     * Run a pragma through rawQuery, since some (mmap_size) return a row and
+     * execSQL rejects statements that return rows.
+     */
+    private static void applyPragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("PRAGMA " + pragma, null);
+            cursor.moveToFirst();
+        } catch (Exception e) {
+            Log.w(TAG, "Could not apply PRAGMA " + pragma + ": " + e.getMessage());
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+    }
+}
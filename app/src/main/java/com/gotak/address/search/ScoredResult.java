@@ -0,0 +1,17 @@
+package com.gotak.address.search;
+
+/**
+ * A search result paired with its BM25 score (lower is better) and the text of
+ * its indexed FTS columns (null for LIKE fallback rows).
+ */
+class ScoredResult {
+    final NominatimSearchResult result;
+    final double score;
+    final String searchText;
+
+    ScoredResult(NominatimSearchResult result, double score, String searchText) {
+        this.result = result;
+        this.score = score;
+        this.searchText = searchText;
+    }
+}
@@ -9,17 +9,21 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.gotak.address.plugin.R;
+import com.gotak.address.sched.PluginScheduler;
 import com.gotak.address.search.nearby.IconsetHelper;
 import com.gotak.address.search.nearby.OverpassSearchResult;
 import com.gotak.address.search.nearby.PointOfInterestType;
 
-import android.graphics.drawable.Drawable;
-
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * RecyclerView adapter for displaying search results.
@@ -30,10 +34,10 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
     private static final int VIEW_TYPE_ADDRESS = 0;
     private static final int VIEW_TYPE_POI = 1;
 
-    private final List<Object> results = new ArrayList<>();
+    private final AsyncListDiffer<Object> differ;
+    private final StableIds<Object> stableIds = new StableIds<>(SearchResultsAdapter::keyOf);
     private final OnResultClickListener listener;
     private final Context context;
-    private int currentViewType = VIEW_TYPE_ADDRESS;
     private Context pluginContext; // For POI string resources
     private IconsetHelper iconsetHelper; // For consistent POI icons
 
@@ -49,48 +53,52 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
     public SearchResultsAdapter(Context context, OnResultClickListener listener) {
         this.context = context;
         this.listener = listener;
+        // Diffs are computed off the main thread; a newer list supersedes one still being diffed
+        this.differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                        .setBackgroundThreadExecutor(PluginScheduler.getInstance().executor(
+                                PluginScheduler.Lane.CPU, PluginScheduler.Priority.INTERACTIVE))
+                        .build());
+        setHasStableIds(true);
     }
 
     /**
      * Update the list of address results displayed.
+     * Only the rows that changed are rebound, so results streamed in while typing
+     * don't redraw the whole list.
      */
     public void setResults(List<NominatimSearchResult> newResults) {
-        results.clear();
-        currentViewType = VIEW_TYPE_ADDRESS;
-        if (newResults != null) {
-            results.addAll(newResults);
-        }
-        notifyDataSetChanged();
+        differ.submitList(newResults != null ? new ArrayList<>(newResults) : new ArrayList<>());
     }
 
     /**
      * Update the list of POI results displayed.
      */
     public void setPoiResults(List<OverpassSearchResult> poiResults, Context pluginCtx) {
-        results.clear();
-        currentViewType = VIEW_TYPE_POI;
         this.pluginContext = pluginCtx;
         // Initialize IconsetHelper for consistent POI icons (same as Nearby tab)
         if (this.iconsetHelper == null) {
             this.iconsetHelper = new IconsetHelper(pluginCtx);
         }
-        if (poiResults != null) {
-            results.addAll(poiResults);
-        }
-        notifyDataSetChanged();
+        differ.submitList(poiResults != null ? new ArrayList<>(poiResults) : new ArrayList<>());
     }
 
     /**
      * Clear all results.
      */
     public void clear() {
-        results.clear();
-        notifyDataSetChanged();
+        differ.submitList(null);
     }
 
     @Override
     public int getItemViewType(int position) {
-        return currentViewType;
+        return differ.getCurrentList().get(position) instanceof OverpassSearchResult
+                ? VIEW_TYPE_POI : VIEW_TYPE_ADDRESS;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.getId(differ.getCurrentList(), position);
     }
 
     @NonNull
@@ -103,7 +111,7 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Object item = results.get(position);
+        Object item = differ.getCurrentList().get(position);
         if (item instanceof NominatimSearchResult) {
             holder.bindAddress((NominatimSearchResult) item, listener);
         } else if (item instanceof OverpassSearchResult) {
@@ -113,9 +121,50 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
 
     @Override
     public int getItemCount() {
-        return results.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Identity of a result: place and OSM ID for addresses, OSM element for POIs.
+     */
+    private static String keyOf(Object item) {
+        if (item instanceof OverpassSearchResult) {
+            return "poi:" + ((OverpassSearchResult) item).getUniqueId();
+        }
+        NominatimSearchResult result = (NominatimSearchResult) item;
+        return "address:" + result.getPlaceId() + ":" + result.getOsmType() + "-" + result.getOsmId();
     }
 
+    /**
+     * Diff callback for address and POI results, matched by place and OSM ID.
+     */
+    private static final DiffUtil.ItemCallback<Object> DIFF_CALLBACK = new DiffUtil.ItemCallback<Object>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            return keyOf(oldItem).equals(keyOf(newItem));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof NominatimSearchResult && newItem instanceof NominatimSearchResult) {
+                NominatimSearchResult a = (NominatimSearchResult) oldItem;
+                NominatimSearchResult b = (NominatimSearchResult) newItem;
+                return Objects.equals(a.getDisplayName(), b.getDisplayName())
+                        && Objects.equals(a.getName(), b.getName())
+                        && Objects.equals(a.getType(), b.getType());
+            }
+            if (oldItem instanceof OverpassSearchResult && newItem instanceof OverpassSearchResult) {
+                OverpassSearchResult a = (OverpassSearchResult) oldItem;
+                OverpassSearchResult b = (OverpassSearchResult) newItem;
+                return Objects.equals(a.getDisplayName(), b.getDisplayName())
+                        && Objects.equals(a.getAddress(), b.getAddress())
+                        && Objects.equals(a.getFormattedDistance(), b.getFormattedDistance())
+                        && a.getPoiType() == b.getPoiType();
+            }
+            return false;
+        }
+    };
+
     /**
      * ViewHolder for search result items.
      */
@@ -143,6 +192,7 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
 
             // Set icon based on location type
             LocationType locationType = LocationType.fromResult(result);
+            iconView.setTag(null);
             iconView.setImageResource(locationType.getIconRes());
 
             clickableArea.setOnClickListener(v -> {
@@ -184,13 +234,8 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<SearchResultsAdap
             addressText.setText(subtitle.toString());
 
             // Set icon based on POI type - use IconsetHelper for consistency with Nearby tab
-            if (poiType != null && iconHelper != null) {
-                Drawable icon = iconHelper.getIconDrawable(poiType);
-                if (icon != null) {
-                    iconView.setImageDrawable(icon);
-                } else {
-                    iconView.setImageResource(R.drawable.ic_location_pin);
-                }
+            if (iconHelper != null) {
+                iconHelper.bindListIcon(iconView, poiType, R.drawable.ic_location_pin);
             } else {
                 iconView.setImageResource(R.drawable.ic_location_pin);
             }
@@ -0,0 +1,73 @@
+package com.gotak.address.search;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RecyclerView stable IDs for a list whose items are identified by a string key.
+ *
+ * An item keeps its ID for as long as its key stays in the list, so diffed updates
+ * move and rebind existing rows instead of recreating them. A key that occurs more than
+ * once in the list (the same place from two state databases, say) gets a separate ID
+ * for each occurrence. IDs of keys no longer in the list are forgotten.
+ *
+ * Not thread-safe: call from the main thread, as RecyclerView does.
+ */
+public class StableIds<T> {
+
+    public interface KeyFunction<T> {
+        String keyOf(T item);
+    }
+
+    private final KeyFunction<T> keyFunction;
+    private Map<String, Long> idsByKey = new HashMap<>();
+    private List<T> assignedList;
+    private long[] ids = new long[0];
+    private long nextId = 0;
+
+    public StableIds(KeyFunction<T> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * ID of the item at position in list. IDs are reassigned when a different list
+     * instance is passed, or after invalidate().
+     */
+    public long getId(List<T> list, int position) {
+        if (list != assignedList) {
+            assign(list);
+        }
+        return ids[position];
+    }
+
+    /**
+     * Reassign IDs on the next call, for lists changed in place.
+     */
+    public void invalidate() {
+        assignedList = null;
+    }
+
+    private void assign(List<T> list) {
+        Map<String, Long> assigned = new HashMap<>();
+        Map<String, Integer> occurrences = new HashMap<>();
+        ids = new long[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            String key = keyFunction.keyOf(list.get(i));
+            Integer seen = occurrences.get(key);
+            occurrences.put(key, seen == null ? 1 : seen + 1);
+            if (seen != null) {
+                key = key + "#" + seen;
+            }
+
+            Long id = idsByKey.get(key);
+            if (id == null) {
+                id = nextId++;
+            }
+            assigned.put(key, id);
+            ids[i] = id;
+        }
+        idsByKey = assigned;
+        assignedList = list;
+    }
+}
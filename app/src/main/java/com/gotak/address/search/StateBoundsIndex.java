@@ -0,0 +1,338 @@
+package com.gotak.address.search;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.atakmap.coremap.log.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of each state database's bounding box, used to route spatial
+ * queries only to the states whose extent they can touch.
+ *
+ * Bounds come from the metadata table (min_lat/max_lat/min_lon/max_lon, written by
+ * build_state_db.py) or, for older databases, are computed once from the R*Tree and
+ * places table. Either way they are persisted in a sidecar file next to the databases,
+ * keyed by file size and modification time, so no database is opened just to route
+ * a query after the first time. Downloads and imports compute a new state's bounds
+ * straight away, and a database is only ever read outside the index lock, so a slow
+ * scan never holds up routing for other states.
+ */
+public class StateBoundsIndex {
+    private static final String TAG = "StateBoundsIndex";
+    private static final String INDEX_FILENAME = "state_bounds.json";
+
+    private final File databaseDir;
+    private final File indexFile;
+    private final Map<String, Bounds> boundsByState = new HashMap<>();
+    // {file size, modification time} of databases whose bounds could not be read, so
+    // they are not reopened on every query until the file changes
+    private final Map<String, long[]> unreadableByState = new HashMap<>();
+    private boolean loaded = false;
+
+    /**
+     * Geographic extent of one state database.
+     */
+    public static class Bounds {
+        public final double minLat;
+        public final double maxLat;
+        public final double minLon;
+        public final double maxLon;
+        final long fileSize;
+        final long fileModified;
+
+        Bounds(double minLat, double maxLat, double minLon, double maxLon,
+               long fileSize, long fileModified) {
+            this.minLat = minLat;
+            this.maxLat = maxLat;
+            this.minLon = minLon;
+            this.maxLon = maxLon;
+            this.fileSize = fileSize;
+            this.fileModified = fileModified;
+        }
+
+        /**
+         * Check if a bounding box overlaps this extent.
+         */
+        public boolean intersects(double otherMinLat, double otherMaxLat,
+                                  double otherMinLon, double otherMaxLon) {
+            return otherMinLat <= maxLat && otherMaxLat >= minLat
+                    && otherMinLon <= maxLon && otherMaxLon >= minLon;
+        }
+
+        /**
+         * Check if a point lies within this extent.
+         */
+        public boolean contains(double lat, double lon) {
+            return intersects(lat, lat, lon, lon);
+        }
+
+        boolean matches(File dbFile) {
+            return fileSize == dbFile.length() && fileModified == dbFile.lastModified();
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("min_lat", minLat);
+            json.put("max_lat", maxLat);
+            json.put("min_lon", minLon);
+            json.put("max_lon", maxLon);
+            json.put("file_size", fileSize);
+            json.put("file_modified", fileModified);
+            return json;
+        }
+
+        static Bounds fromJson(JSONObject json) throws JSONException {
+            return new Bounds(
+                    json.getDouble("min_lat"), json.getDouble("max_lat"),
+                    json.getDouble("min_lon"), json.getDouble("max_lon"),
+                    json.getLong("file_size"), json.getLong("file_modified"));
+        }
+    }
+
+    public StateBoundsIndex(File databaseDir) {
+        this.databaseDir = databaseDir;
+        this.indexFile = new File(databaseDir, INDEX_FILENAME);
+    }
+
+    /**
+     * Filter states to those whose extent intersects a search circle.
+     * States with unknown bounds are always included.
+     *
+     * @param states Candidate state IDs
+     * @param centerLat Circle center latitude
+     * @param centerLon Circle center longitude
+     * @param radiusKm Circle radius in kilometers
+     * @return The states worth querying, in their original order
+     */
+    public List<String> statesIntersecting(List<String> states,
+                                           double centerLat, double centerLon,
+                                           double radiusKm) {
+        // Same conservative degree conversion as the R*Tree query
+        double latDelta = radiusKm / 111.0;
+        double lonDelta = radiusKm / (111.0 * Math.cos(Math.toRadians(centerLat)));
+
+        List<String> relevant = new ArrayList<>();
+        for (String state : states) {
+            Bounds bounds = getBounds(state);
+            if (bounds == null || bounds.intersects(centerLat - latDelta, centerLat + latDelta,
+                    centerLon - lonDelta, centerLon + lonDelta)) {
+                relevant.add(state);
+            }
+        }
+        return relevant;
+    }
+
+    /**
+     * Filter states to those whose extent contains a point.
+     * States with unknown bounds are always included.
+     */
+    public List<String> statesContaining(List<String> states, double lat, double lon) {
+        List<String> relevant = new ArrayList<>();
+        for (String state : states) {
+            Bounds bounds = getBounds(state);
+            if (bounds == null || bounds.contains(lat, lon)) {
+                relevant.add(state);
+            }
+        }
+        return relevant;
+    }
+
+    /**
+     * Get the bounds of a state database, computing and persisting them if needed.
+     * A database whose bounds can't be read is not retried until its file changes.
+     * @return The bounds, or null if they can't be determined
+     */
+    public Bounds getBounds(String stateId) {
+        File dbFile = new File(databaseDir, stateId + ".db");
+        if (!dbFile.exists()) {
+            return null;
+        }
+
+        synchronized (this) {
+            loadIfNeeded();
+            Bounds bounds = boundsByState.get(stateId);
+            if (bounds != null && bounds.matches(dbFile)) {
+                return bounds;
+            }
+            long[] unreadable = unreadableByState.get(stateId);
+            if (unreadable != null && unreadable[0] == dbFile.length()
+                    && unreadable[1] == dbFile.lastModified()) {
+                return null;
+            }
+        }
+
+        // Opening (and for old databases, scanning) the file happens without the lock
+        long fileSize = dbFile.length();
+        long fileModified = dbFile.lastModified();
+        Bounds bounds = readBounds(dbFile);
+        synchronized (this) {
+            if (bounds != null) {
+                unreadableByState.remove(stateId);
+                boundsByState.put(stateId, bounds);
+                save();
+            } else {
+                unreadableByState.put(stateId, new long[]{fileSize, fileModified});
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Forget a state's bounds (e.g. after it is deleted).
+     */
+    public synchronized void remove(String stateId) {
+        loadIfNeeded();
+        unreadableByState.remove(stateId);
+        if (boundsByState.remove(stateId) != null) {
+            save();
+        }
+    }
+
+    /**
+     * Read a database's extent from its metadata, falling back to scanning its data.
+     */
+    private Bounds readBounds(File dbFile) {
+        SQLiteDatabase db = null;
+        try {
+            db = SQLiteDatabase.openDatabase(dbFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+
+            double[] extent = readMetadataBounds(db);
+            if (extent == null) {
+                Log.i(TAG, "No bounds metadata in " + dbFile.getName() + ", computing from data");
+                extent = mergeExtents(
+                        queryExtent(db, "SELECT MIN(min_lat), MAX(max_lat), MIN(min_lon), MAX(max_lon) FROM pois_rtree"),
+                        queryExtent(db, "SELECT MIN(lat), MAX(lat), MIN(lon), MAX(lon) FROM places"));
+            }
+            if (extent == null) {
+                return null;
+            }
+
+            return new Bounds(extent[0], extent[1], extent[2], extent[3],
+                    dbFile.length(), dbFile.lastModified());
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read bounds for " + dbFile.getName() + ": " + e.getMessage());
+            return null;
+        } finally {
+            if (db != null) db.close();
+        }
+    }
+
+    private static double[] readMetadataBounds(SQLiteDatabase db) {
+        Map<String, Double> values = new HashMap<>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT key, value FROM metadata " +
+                    "WHERE key IN ('min_lat', 'max_lat', 'min_lon', 'max_lon')", null);
+            while (cursor.moveToNext()) {
+                values.put(cursor.getString(0), Double.parseDouble(cursor.getString(1)));
+            }
+        } catch (Exception e) {
+            return null;
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+
+        if (values.size() != 4) {
+            return null;
+        }
+        return new double[]{
+                values.get("min_lat"), values.get("max_lat"),
+                values.get("min_lon"), values.get("max_lon")
+        };
+    }
+
+    private static double[] queryExtent(SQLiteDatabase db, String sql) {
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                return new double[]{
+                        cursor.getDouble(0), cursor.getDouble(1),
+                        cursor.getDouble(2), cursor.getDouble(3)
+                };
+            }
+        } catch (Exception e) {
+            // Table missing in this schema version
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+        return null;
+    }
+
+    private static double[] mergeExtents(double[] a, double[] b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return new double[]{
+                Math.min(a[0], b[0]), Math.max(a[1], b[1]),
+                Math.min(a[2], b[2]), Math.max(a[3], b[3])
+        };
+    }
+
+    private void loadIfNeeded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        if (!indexFile.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(indexFile))) {
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+
+            JSONObject root = new JSONObject(sb.toString());
+            Iterator<String> keys = root.keys();
+            while (keys.hasNext()) {
+                String stateId = keys.next();
+                boundsByState.put(stateId, Bounds.fromJson(root.getJSONObject(stateId)));
+            }
+            Log.d(TAG, "Loaded bounds for " + boundsByState.size() + " states");
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Error reading state bounds index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the index, replacing the previous copy atomically.
+     */
+    private void save() {
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        try {
+            JSONObject root = new JSONObject();
+            for (Map.Entry<String, Bounds> entry : boundsByState.entrySet()) {
+                root.put(entry.getKey(), entry.getValue().toJson());
+            }
+
+            try (FileWriter writer = new FileWriter(tempFile)) {
+                writer.write(root.toString());
+            }
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Error writing state bounds index: " + e.getMessage());
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(indexFile)) {
+            tempFile.delete();
+            Log.w(TAG, "Error replacing state bounds index");
+        }
+    }
+}
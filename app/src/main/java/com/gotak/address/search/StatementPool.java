@@ -0,0 +1,361 @@
+package com.gotak.address.search;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+
+import com.atakmap.coremap.log.Log;
+import com.gotak.address.search.nearby.PointOfInterestType;
+
+import java.util.Set;
+
+/**
+ * Pool of compiled statements for the hot queries against one open state database.
+ *
+ * Android's SQLiteDatabase keeps a per-connection cache of prepared statements keyed
+ * by SQL text, but only row-less statements can be held directly by callers. The pool
+ * therefore keeps every hot query on a single fixed SQL string (category filters are
+ * padded to a fixed number of placeholders) and compiles each of them once when the
+ * database is opened. Every later keystroke reuses the already-parsed and planned
+ * statement instead of re-preparing the FTS5 + JOIN query.
+ *
+ * The pool owns its database and is shared between threads through leases. release()
+ * marks it for closing; the connection (and every statement compiled for it) is only
+ * closed once the last lease is returned, so eviction never closes a database while
+ * another thread is still iterating one of its cursors.
+ */
+public class StatementPool {
+    private static final String TAG = "StatementPool";
+
+    // Every category filter uses this many placeholders so the SQL text never changes
+    private static final int CATEGORY_SLOTS = PointOfInterestType.values().length;
+    private static final String CATEGORY_PLACEHOLDERS = buildPlaceholders(CATEGORY_SLOTS);
+
+    // bm25() is lower-is-better; the score column lets callers merge rows across states.
+    // street/city/postcode complete the indexed columns for in-memory prefix refinement.
+    static final String FTS_SEARCH_SQL =
+        "SELECT p.id, p.osm_id, p.osm_type, p.lat, p.lon, " +
+        "       p.name, p.display_name, p.type, p.street, p.city, p.postcode, " +
+        "       bm25(places_fts) AS score " +
+        "FROM places_fts " +
+        "JOIN places p ON places_fts.rowid = p.id " +
+        "WHERE places_fts MATCH ? " +
+        "ORDER BY score " +
+        "LIMIT ?";
+
+    static final String LIKE_SEARCH_SQL =
+        "SELECT id, osm_id, osm_type, lat, lon, name, display_name, type " +
+        "FROM places " +
+        "WHERE name LIKE ? OR display_name LIKE ? OR street LIKE ? OR city LIKE ? " +
+        "LIMIT ?";
+
+    // Nearest first, so the LIMIT keeps the closest rows and every state's list
+    // is already distance-ordered for the cross-state merge (same metric as
+    // PLACES_NEAREST_SQL below)
+    static final String POI_RADIUS_SQL =
+        "SELECT p.id, p.osm_id, p.osm_type, p.lat, p.lon, " +
+        "       p.name, p.category, p.address, p.phone, p.website, p.opening_hours " +
+        "FROM pois p " +
+        "INNER JOIN pois_rtree r ON p.id = r.id " +
+        "WHERE r.min_lat >= ? AND r.max_lat <= ? " +
+        "  AND r.min_lon >= ? AND r.max_lon <= ? " +
+        "  AND p.category IN (" + CATEGORY_PLACEHOLDERS + ") " +
+        "ORDER BY (p.lat - ?) * (p.lat - ?) + (p.lon - ?) * (p.lon - ?) * ? " +
+        "LIMIT ?";
+
+    static final String POI_BY_CATEGORY_SQL =
+        "SELECT id, osm_id, osm_type, lat, lon, name, category, address, phone, website, opening_hours " +
+        "FROM pois " +
+        "WHERE category IN (" + CATEGORY_PLACEHOLDERS + ") " +
+        "ORDER BY name " +
+        "LIMIT ?";
+
+    static final String POI_BY_NAME_SQL =
+        "SELECT id, osm_id, osm_type, lat, lon, name, category, address " +
+        "FROM pois " +
+        "WHERE name LIKE ? " +
+        "ORDER BY name " +
+        "LIMIT ?";
+
+    // Places in a small box, nearest first; the last ORDER BY factor is cos²(lat)
+    // so longitude differences are compared in the same units as latitude
+    static final String PLACES_NEAREST_SQL =
+        "SELECT p.lat, p.lon, p.name, p.type, p.street, p.housenumber, " +
+        "       p.city, p.postcode, p.state, p.country " +
+        "FROM places p " +
+        "INNER JOIN places_rtree r ON p.id = r.id " +
+        "WHERE r.min_lat >= ? AND r.max_lat <= ? " +
+        "  AND r.min_lon >= ? AND r.max_lon <= ? " +
+        "ORDER BY (p.lat - ?) * (p.lat - ?) + (p.lon - ?) * (p.lon - ?) * ? " +
+        "LIMIT ?";
+
+    private static final String[] PLACE_QUERIES = { FTS_SEARCH_SQL, LIKE_SEARCH_SQL };
+    private static final String[] POI_QUERIES = { POI_RADIUS_SQL, POI_BY_CATEGORY_SQL, POI_BY_NAME_SQL };
+    private static final String[] REVERSE_QUERIES = { PLACES_NEAREST_SQL };
+
+    private final String stateId;
+    private final SQLiteDatabase db;
+    private final boolean hasPOIData;
+    private final boolean hasPlacesIndex;
+    private int leaseCount = 0;
+    private boolean closePending = false;
+    private volatile boolean closed = false;
+
+    /**
+     * A per-call handle on a pool. Close it (try-with-resources) when the query
+     * and all its cursors are done.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final StatementPool pool;
+        private boolean returned = false;
+
+        private Lease(StatementPool pool) {
+            this.pool = pool;
+        }
+
+        public StatementPool getPool() {
+            return pool;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (returned) {
+                    return;
+                }
+                returned = true;
+            }
+            pool.returnLease();
+        }
+    }
+
+    /**
+     * Build the pool for a freshly opened database, compiling every hot query.
+     * POI queries are only compiled when the database has the v2 POI tables,
+     * and reverse geocoding when it has the v3 places R*Tree.
+     */
+    public StatementPool(String stateId, SQLiteDatabase db) {
+        this.stateId = stateId;
+        this.db = db;
+
+        compileAll(PLACE_QUERIES);
+        this.hasPOIData = compileAll(POI_QUERIES);
+        this.hasPlacesIndex = compileAll(REVERSE_QUERIES);
+
+        Log.d(TAG, "Compiled statement pool for " + stateId + " (POI data: " + hasPOIData
+                + ", places index: " + hasPlacesIndex + ")");
+    }
+
+    /**
+     * Compile each query once so the connection's statement cache holds it.
+     * @return true if every query compiled (i.e. the tables it needs exist)
+     */
+    private boolean compileAll(String[] queries) {
+        boolean allCompiled = true;
+        for (String sql : queries) {
+            SQLiteStatement statement = null;
+            try {
+                statement = db.compileStatement(sql);
+            } catch (Exception e) {
+                Log.d(TAG, "Could not compile statement in " + stateId + ": " + e.getMessage());
+                allCompiled = false;
+            } finally {
+                if (statement != null) {
+                    statement.close();
+                }
+            }
+        }
+        return allCompiled;
+    }
+
+    public String getStateId() {
+        return stateId;
+    }
+
+    public SQLiteDatabase getDatabase() {
+        return db;
+    }
+
+    /**
+     * Check if the database has POI data (schema version 2+).
+     * Determined once when the pool was built.
+     */
+    public boolean hasPOIData() {
+        return hasPOIData;
+    }
+
+    /**
+     * Check if the database has the places R*Tree used for reverse geocoding (schema version 3+).
+     */
+    public boolean hasPlacesIndex() {
+        return hasPlacesIndex;
+    }
+
+    /**
+     * Check if the pool can still be queried.
+     */
+    public boolean isOpen() {
+        return !closed && db.isOpen();
+    }
+
+    /**
+     * Take a lease on the pool.
+     * @return The lease, or null if the pool is closing or closed
+     */
+    public synchronized Lease acquire() {
+        if (closePending || closed || !db.isOpen()) {
+            return null;
+        }
+        leaseCount++;
+        return new Lease(this);
+    }
+
+    private synchronized void returnLease() {
+        leaseCount--;
+        if (leaseCount == 0 && closePending) {
+            closeNow();
+        }
+    }
+
+    /**
+     * Full-text search with BM25 ranking.
+     * Cancelling the signal interrupts SQLite mid-query with OperationCanceledException.
+     *
+     * @param cancellationSignal Signal to interrupt the query, or null
+     */
+    public Cursor queryFts(String ftsQuery, int limit, CancellationSignal cancellationSignal) {
+        return db.rawQuery(FTS_SEARCH_SQL, new String[]{ftsQuery, String.valueOf(limit)},
+                cancellationSignal);
+    }
+
+    /**
+     * LIKE search fallback across name, display name, street and city.
+     *
+     * @param cancellationSignal Signal to interrupt the query, or null
+     */
+    public Cursor queryLike(String likeQuery, int limit, CancellationSignal cancellationSignal) {
+        return db.rawQuery(LIKE_SEARCH_SQL, new String[]{
+                likeQuery, likeQuery, likeQuery, likeQuery, String.valueOf(limit)
+        }, cancellationSignal);
+    }
+
+    /**
+     * R*Tree bounding box search filtered by category, nearest to the center first.
+     */
+    public Cursor queryPOIsInBox(double minLat, double maxLat, double minLon, double maxLon,
+                                 double centerLat, double centerLon,
+                                 Set<PointOfInterestType> categories, int limit) {
+        String latArg = String.valueOf(centerLat);
+        String lonArg = String.valueOf(centerLon);
+        double cosLat = Math.cos(Math.toRadians(centerLat));
+        String[] args = new String[4 + CATEGORY_SLOTS + 5 + 1];
+        args[0] = String.valueOf(minLat);
+        args[1] = String.valueOf(maxLat);
+        args[2] = String.valueOf(minLon);
+        args[3] = String.valueOf(maxLon);
+        fillCategoryArgs(args, 4, categories);
+        int order = 4 + CATEGORY_SLOTS;
+        args[order] = latArg;
+        args[order + 1] = latArg;
+        args[order + 2] = lonArg;
+        args[order + 3] = lonArg;
+        args[order + 4] = String.valueOf(cosLat * cosLat);
+        args[args.length - 1] = String.valueOf(limit);
+        return db.rawQuery(POI_RADIUS_SQL, args);
+    }
+
+    /**
+     * R*Tree bounding box search for places, nearest to a point first.
+     */
+    public Cursor queryPlacesNearest(double lat, double lon, double latDelta, double lonDelta, int limit) {
+        String latArg = String.valueOf(lat);
+        String lonArg = String.valueOf(lon);
+        double cosLat = Math.cos(Math.toRadians(lat));
+        return db.rawQuery(PLACES_NEAREST_SQL, new String[]{
+                String.valueOf(lat - latDelta), String.valueOf(lat + latDelta),
+                String.valueOf(lon - lonDelta), String.valueOf(lon + lonDelta),
+                latArg, latArg, lonArg, lonArg, String.valueOf(cosLat * cosLat),
+                String.valueOf(limit)
+        });
+    }
+
+    /**
+     * Search POIs of the given categories across the whole database.
+     *
+     * @param cancellationSignal Signal to interrupt the query, or null
+     */
+    public Cursor queryPOIsByCategory(Set<PointOfInterestType> categories, int limit,
+                                      CancellationSignal cancellationSignal) {
+        String[] args = new String[CATEGORY_SLOTS + 1];
+        fillCategoryArgs(args, 0, categories);
+        args[args.length - 1] = String.valueOf(limit);
+        return db.rawQuery(POI_BY_CATEGORY_SQL, args, cancellationSignal);
+    }
+
+    /**
+     * Search POIs whose name matches a LIKE pattern.
+     *
+     * @param cancellationSignal Signal to interrupt the query, or null
+     */
+    public Cursor queryPOIsByName(String likeQuery, int limit, CancellationSignal cancellationSignal) {
+        return db.rawQuery(POI_BY_NAME_SQL, new String[]{likeQuery, String.valueOf(limit)},
+                cancellationSignal);
+    }
+
+    /**
+     * Release the pool: no new leases are granted, and the database connection is
+     * closed as soon as no lease remains.
+     */
+    public synchronized void release() {
+        closePending = true;
+        if (leaseCount == 0) {
+            closeNow();
+        } else {
+            Log.d(TAG, "Deferring close of " + stateId + " until " + leaseCount + " lease(s) return");
+        }
+    }
+
+    private void closeNow() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (db.isOpen()) {
+                db.close();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Error releasing statement pool for " + stateId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copy category names into the placeholder slots, repeating the first
+     * category to pad unused slots (duplicates in IN are harmless).
+     */
+    private static void fillCategoryArgs(String[] args, int offset, Set<PointOfInterestType> categories) {
+        String padding = null;
+        int i = 0;
+        for (PointOfInterestType type : categories) {
+            if (padding == null) {
+                padding = type.name();
+            }
+            args[offset + i++] = type.name();
+        }
+        while (i < CATEGORY_SLOTS) {
+            args[offset + i++] = padding;
+        }
+    }
+
+    private static String buildPlaceholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("?");
+        }
+        return sb.toString();
+    }
+}
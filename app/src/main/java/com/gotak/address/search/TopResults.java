@@ -0,0 +1,84 @@
+package com.gotak.address.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Bounded heap of the best-scoring results seen so far, merged across states.
+ * The head is the worst row kept, so a better row can replace it in O(log k).
+ * Tracks whether any matching row may be missing (a state hit its limit, a row
+ * was dropped, or a state never answered).
+ */
+class TopResults {
+    private final int capacity;
+    private final PriorityQueue<ScoredResult> heap;
+    private boolean truncated = false;
+
+    TopResults(int capacity) {
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(capacity, (a, b) -> Double.compare(b.score, a.score));
+    }
+
+    /**
+     * Add a state's rows, which arrive already ordered best-first.
+     * @return true if any row was kept
+     */
+    boolean addAll(List<ScoredResult> rows) {
+        boolean changed = false;
+        if (rows.size() >= capacity) {
+            truncated = true;
+        }
+        for (ScoredResult row : rows) {
+            if (heap.size() < capacity) {
+                heap.add(row);
+            } else if (row.score < heap.peek().score) {
+                heap.poll();
+                heap.add(row);
+                truncated = true;
+            } else {
+                // Remaining rows from this state score no better
+                truncated = true;
+                break;
+            }
+            changed = true;
+        }
+        return changed;
+    }
+
+    void markTruncated() {
+        truncated = true;
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Get the kept results ordered best-first.
+     */
+    List<NominatimSearchResult> toList() {
+        List<NominatimSearchResult> results = new ArrayList<>(heap.size());
+        for (ScoredResult row : sortedRows()) {
+            results.add(row.result);
+        }
+        return results;
+    }
+
+    /**
+     * Get the indexed text of the kept results, in the same order as toList().
+     */
+    List<String> searchTexts() {
+        List<String> texts = new ArrayList<>(heap.size());
+        for (ScoredResult row : sortedRows()) {
+            texts.add(row.searchText);
+        }
+        return texts;
+    }
+
+    private List<ScoredResult> sortedRows() {
+        List<ScoredResult> sorted = new ArrayList<>(heap);
+        sorted.sort((a, b) -> Double.compare(a.score, b.score));
+        return sorted;
+    }
+}
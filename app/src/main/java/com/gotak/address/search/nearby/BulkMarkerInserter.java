@@ -0,0 +1,218 @@
+package com.gotak.address.search.nearby;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.atakmap.android.maps.MapGroup;
+import com.atakmap.android.maps.MapItem;
+import com.atakmap.android.maps.MapView;
+import com.atakmap.android.maps.Marker;
+import com.atakmap.coremap.log.Log;
+import com.gotak.address.sched.PluginScheduler;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adds a batch of POI markers to a map group without flooding the UI thread.
+ *
+ * Existing markers are found with one walk of the map tree, taken on the main thread
+ * when insertion starts, instead of a deepFindUID per result. Markers are built on a
+ * background thread and handed to the main thread, which adds and refreshes them in
+ * chunks that fit a frame budget, yielding to the looper between chunks. Inserting
+ * several hundred POIs keeps the map responsive, reports progress as it goes, and can
+ * be cancelled part way.
+ */
+public class BulkMarkerInserter {
+    private static final String TAG = "BulkMarkerInserter";
+
+    // Main thread time spent adding markers per chunk, well under a 16ms frame
+    private static final long FRAME_BUDGET_MS = 8;
+    private static final int MAX_CHUNK_SIZE = 50;
+
+    /**
+     * Builds the marker for a result. Called on a background thread.
+     */
+    public interface MarkerFactory {
+        Marker create(OverpassSearchResult result, String uid);
+    }
+
+    /**
+     * Insertion events, delivered on the main thread.
+     */
+    public interface Listener {
+        /** A chunk of markers was added to the group. */
+        void onMarkersAdded(List<Marker> markers);
+        void onProgress(int added, int skipped, int total);
+        void onFinished(int added, int skipped, boolean cancelled);
+    }
+
+    private final MapView mapView;
+    private final MapGroup group;
+    private final MarkerFactory factory;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final ConcurrentLinkedQueue<Marker> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean commitScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private volatile boolean buildFinished = false;
+    private volatile int skipped = 0;
+    private int total = 0;
+    private int added = 0;
+    private boolean running = false;
+
+    public BulkMarkerInserter(MapView mapView, MapGroup group, MarkerFactory factory, Listener listener) {
+        this.mapView = mapView;
+        this.group = group;
+        this.factory = factory;
+        this.listener = listener;
+    }
+
+    /**
+     * Start inserting. Call once, from the main thread.
+     *
+     * @param results POIs keyed by the UID their marker should get
+     */
+    public void start(Map<String, OverpassSearchResult> results) {
+        if (running) {
+            throw new IllegalStateException("Insertion already started");
+        }
+        running = true;
+        total = results.size();
+        final Map<String, OverpassSearchResult> toBuild = new LinkedHashMap<>(results);
+
+        // The map tree is only safe to walk on the main thread, where it is mutated
+        long startTime = SystemClock.elapsedRealtime();
+        final Set<String> existing = findExisting(toBuild.keySet());
+        skipped = existing.size();
+        Log.d(TAG, "Found " + existing.size() + " of " + total + " markers already on map in "
+                + (SystemClock.elapsedRealtime() - startTime) + "ms");
+
+        PluginScheduler.getInstance().execute(PluginScheduler.Lane.CPU, PluginScheduler.Priority.BULK, () -> {
+            try {
+                build(toBuild, existing);
+            } finally {
+                buildFinished = true;
+                scheduleCommit();
+            }
+        });
+    }
+
+    /**
+     * Stop adding markers. Markers already on the map stay there; onFinished still runs.
+     */
+    public void cancel() {
+        if (cancelled.compareAndSet(false, true)) {
+            Log.d(TAG, "Insertion cancelled after " + added + " of " + total + " markers");
+            scheduleCommit();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void build(Map<String, OverpassSearchResult> results, Set<String> existing) {
+        int skippedCount = existing.size();
+        for (Map.Entry<String, OverpassSearchResult> entry : results.entrySet()) {
+            if (cancelled.get()) {
+                return;
+            }
+            if (existing.contains(entry.getKey())) {
+                continue;
+            }
+            try {
+                pending.add(factory.create(entry.getValue(), entry.getKey()));
+                scheduleCommit();
+            } catch (Exception e) {
+                Log.e(TAG, "Error creating marker: " + e.getMessage());
+                skipped = ++skippedCount;
+            }
+        }
+    }
+
+    /**
+     * The subset of uids already in the map tree, in a single traversal. Main thread only.
+     */
+    private Set<String> findExisting(Set<String> uids) {
+        Set<String> found = new HashSet<>();
+        MapGroup rootGroup = mapView.getRootGroup();
+        if (rootGroup != null) {
+            collectUids(rootGroup, uids, found);
+        }
+        return found;
+    }
+
+    private static void collectUids(MapGroup group, Set<String> wanted, Set<String> found) {
+        for (MapItem item : group.getItems()) {
+            if (wanted.contains(item.getUID())) {
+                found.add(item.getUID());
+            }
+        }
+        for (MapGroup child : group.getChildGroups()) {
+            collectUids(child, wanted, found);
+        }
+    }
+
+    private void scheduleCommit() {
+        if (commitScheduled.compareAndSet(false, true)) {
+            mainHandler.post(this::commitChunk);
+        }
+    }
+
+    /**
+     * Add queued markers until the frame budget is spent, then yield.
+     */
+    private void commitChunk() {
+        commitScheduled.set(false);
+        if (!running) {
+            return;
+        }
+        if (cancelled.get()) {
+            pending.clear();
+            finish();
+            return;
+        }
+
+        List<Marker> chunk = new ArrayList<>();
+        long deadline = SystemClock.uptimeMillis() + FRAME_BUDGET_MS;
+        Marker marker;
+        while (chunk.size() < MAX_CHUNK_SIZE && SystemClock.uptimeMillis() < deadline
+                && (marker = pending.poll()) != null) {
+            try {
+                group.addItem(marker);
+                // ITEM_REFRESH is per item, so every marker gets its own, as single adds do
+                marker.refresh(mapView.getMapEventDispatcher(), null, BulkMarkerInserter.class);
+                chunk.add(marker);
+            } catch (Exception e) {
+                Log.e(TAG, "Error adding marker to map: " + e.getMessage());
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            added += chunk.size();
+            listener.onMarkersAdded(chunk);
+            listener.onProgress(added, skipped, total);
+        }
+
+        if (!pending.isEmpty()) {
+            scheduleCommit();
+        } else if (buildFinished) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        running = false;
+        Log.i(TAG, "Added " + added + " markers, skipped " + skipped + (cancelled.get() ? " (cancelled)" : ""));
+        listener.onFinished(added, skipped, cancelled.get());
+    }
+}
@@ -4,7 +4,12 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
 
 import androidx.core.content.ContextCompat;
 
@@ -13,20 +18,55 @@ import com.atakmap.android.icons.UserIconDatabase;
 import com.atakmap.android.icons.UserIconSet;
 import com.atakmap.android.maps.MapView;
 import com.gotak.address.plugin.R;
+import com.gotak.address.sched.PluginScheduler;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Helper class for managing POI icons using ATAK's built-in UserIconDatabase.
  * Uses the standard ATAK iconset (UUID: 6d781afb-89a6-4c07-b2b9-a89748b6a38f) for map markers,
  * with fallback to our drawable resources for list display.
+ *
+ * Rendered icon bitmaps are kept in an LRU cache shared by all instances, keyed by iconset,
+ * POI type and size and bounded by bytes. List rows bind icons with bindListIcon, which
+ * shows a cached bitmap or renders the missing one in the background.
  */
 public class IconsetHelper {
     private static final String TAG = "IconsetHelper";
     
     // Standard ATAK iconset UUID - same as used by Nearby plugin
     private static final String ATAK_ICONSET_UUID = "6d781afb-89a6-4c07-b2b9-a89748b6a38f";
+    // Cache key iconset for our own drawable resources
+    private static final String LIST_ICONSET = "list";
+    // Bytes of rendered icons kept in memory
+    private static final int BITMAP_CACHE_BYTES = (int) Math.min(4 * 1024 * 1024, Runtime.getRuntime().maxMemory() / 64);
+    
+    private static final LruCache<String, Bitmap> bitmapCache = new LruCache<String, Bitmap>(BITMAP_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getByteCount();
+        }
+    };
+    // ATAK icons known not to exist, so they are not looked up again
+    private static final Set<String> missingIcons = Collections.synchronizedSet(new HashSet<>());
+    // Callbacks waiting for an icon that is being rendered
+    private static final Map<String, List<IconCallback>> pendingLoads = new HashMap<>();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static volatile UserIconSet cachedIconset;
+    
+    /**
+     * Receives an icon rendered in the background, on the main thread.
+     */
+    public interface IconCallback {
+        void onIconLoaded(PointOfInterestType poiType, Bitmap bitmap);
+    }
     
     private final Context pluginContext;
     private final Map<PointOfInterestType, Integer> drawableMap;
@@ -56,9 +96,18 @@ public class IconsetHelper {
     }
     
     /**
-     * Get the standard ATAK iconset (lazy initialization).
+     * Get the standard ATAK iconset (lazy initialization, looked up once).
      */
     private UserIconSet getIconset() {
+        UserIconSet iconset = cachedIconset;
+        if (iconset == null) {
+            iconset = lookupIconset();
+            cachedIconset = iconset;
+        }
+        return iconset;
+    }
+    
+    private UserIconSet lookupIconset() {
         UserIconDatabase db = getUserIconDatabase();
         if (db == null) {
             Log.e(TAG, "UserIconDatabase is null - MapView not ready?");
@@ -197,20 +246,152 @@ public class IconsetHelper {
     }
 
     /**
-     * Get a Bitmap for a POI type (for list display).
+     * Get a Bitmap for a POI type (for list display), rendering it if it is not cached.
+     * Rendering inflates the drawable, so call this off the UI thread.
      */
     public Bitmap getIconBitmap(PointOfInterestType poiType, int size) {
+        String key = cacheKey(LIST_ICONSET, poiType, size);
+        Bitmap bitmap = bitmapCache.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+        
         Drawable drawable = getIconDrawable(poiType);
         if (drawable == null) {
             return null;
         }
         
-        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
         Canvas canvas = new Canvas(bitmap);
         drawable.setBounds(0, 0, size, size);
         drawable.draw(canvas);
+        bitmapCache.put(key, bitmap);
         return bitmap;
     }
+    
+    /**
+     * Get a list icon only if it is already rendered. Safe on the UI thread.
+     */
+    public Bitmap getCachedIconBitmap(PointOfInterestType poiType, int size) {
+        return bitmapCache.get(cacheKey(LIST_ICONSET, poiType, size));
+    }
+    
+    /**
+     * Render a list icon in the background. The callback runs on the main thread,
+     * right away if the icon is cached. Concurrent requests for one icon share a render.
+     */
+    public void loadIconBitmap(PointOfInterestType poiType, int size, IconCallback callback) {
+        Bitmap cached = getCachedIconBitmap(poiType, size);
+        if (cached != null) {
+            callback.onIconLoaded(poiType, cached);
+            return;
+        }
+        
+        String key = cacheKey(LIST_ICONSET, poiType, size);
+        synchronized (pendingLoads) {
+            List<IconCallback> waiting = pendingLoads.get(key);
+            if (waiting != null) {
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            pendingLoads.put(key, waiting);
+        }
+        
+        try {
+            PluginScheduler.getInstance().execute(PluginScheduler.Lane.CPU, PluginScheduler.Priority.INTERACTIVE, () -> {
+                Bitmap bitmap = null;
+                try {
+                    bitmap = getIconBitmap(poiType, size);
+                } finally {
+                    deliver(key, poiType, bitmap);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Could not render icon " + key + ": " + e.getMessage());
+            deliver(key, poiType, null);
+        }
+    }
+    
+    private static void deliver(String key, PointOfInterestType poiType, Bitmap bitmap) {
+        List<IconCallback> waiting;
+        synchronized (pendingLoads) {
+            waiting = pendingLoads.remove(key);
+        }
+        if (waiting == null) {
+            return;
+        }
+        mainHandler.post(() -> {
+            for (IconCallback callback : waiting) {
+                callback.onIconLoaded(poiType, bitmap);
+            }
+        });
+    }
+    
+    /**
+     * Show the list icon for poiType in an ImageView without rendering on the UI thread.
+     * A cached icon is shown at once; otherwise the view is blank until the icon is
+     * rendered. fallbackResId is shown when poiType is null or its icon fails to render.
+     * The icon is sized to the view's layout width.
+     */
+    public void bindListIcon(ImageView view, PointOfInterestType poiType, int fallbackResId) {
+        view.setTag(poiType);
+        if (poiType == null) {
+            view.setImageResource(fallbackResId);
+            return;
+        }
+        
+        int size = getListIconSize(view);
+        Bitmap cached = getCachedIconBitmap(poiType, size);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+        
+        view.setImageDrawable(null);
+        loadIconBitmap(poiType, size, (loadedType, bitmap) -> {
+            // The row may have been rebound to another result meanwhile
+            if (view.getTag() != loadedType) {
+                return;
+            }
+            if (bitmap != null) {
+                view.setImageBitmap(bitmap);
+            } else {
+                view.setImageResource(fallbackResId);
+            }
+        });
+    }
+    
+    /**
+     * Render every list icon at the given size in the background, so the first rows
+     * bound show their icons straight from the cache.
+     */
+    public void prewarmIconBitmaps(int size) {
+        PluginScheduler.getInstance().execute(PluginScheduler.Lane.CPU, PluginScheduler.Priority.BACKGROUND, () -> {
+            int rendered = 0;
+            for (PointOfInterestType poiType : PointOfInterestType.values()) {
+                if (getCachedIconBitmap(poiType, size) == null && getIconBitmap(poiType, size) != null) {
+                    rendered++;
+                }
+            }
+            if (rendered > 0) {
+                Log.d(TAG, "Pre-rendered " + rendered + " POI icons at " + size + "px");
+            }
+        });
+    }
+    
+    private int getListIconSize(ImageView view) {
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        if (params != null && params.width > 0) {
+            return params.width;
+        }
+        return Math.round(24 * pluginContext.getResources().getDisplayMetrics().density);
+    }
+    
+    private static String cacheKey(String iconset, PointOfInterestType poiType, int size) {
+        return iconset + ":" + poiType.name() + ":" + size;
+    }
 
     /**
      * Get the CoT type for a POI type.
@@ -284,15 +465,31 @@ public class IconsetHelper {
      * @return Bitmap from ATAK iconset, or null if not available
      */
     public Bitmap getAtakIconBitmap(PointOfInterestType poiType) {
+        // Size 0: the iconset's own bitmap size
+        String key = cacheKey(ATAK_ICONSET_UUID, poiType, 0);
+        Bitmap cached = bitmapCache.get(key);
+        if (cached != null || missingIcons.contains(key)) {
+            return cached;
+        }
+        
         UserIcon icon = getAtakIcon(poiType);
         UserIconDatabase db = getUserIconDatabase();
         if (icon != null && db != null) {
             try {
-                return db.getIconBitmap(icon.getId());
+                Bitmap bitmap = db.getIconBitmap(icon.getId());
+                if (bitmap != null) {
+                    bitmapCache.put(key, bitmap);
+                    return bitmap;
+                }
             } catch (Exception e) {
                 Log.w(TAG, "Failed to get ATAK icon bitmap: " + e.getMessage());
+                return null;
             }
         }
+        if (getIconset() != null) {
+            // The iconset is loaded and has no icon for this type
+            missingIcons.add(key);
+        }
         return null;
     }
     
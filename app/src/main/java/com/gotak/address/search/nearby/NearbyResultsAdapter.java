@@ -1,7 +1,6 @@
 package com.gotak.address.search.nearby;
 
 import android.content.Context;
-import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,13 +10,20 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.gotak.address.plugin.R;
+import com.gotak.address.sched.PluginScheduler;
+import com.gotak.address.search.StableIds;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -25,8 +31,14 @@ import java.util.Set;
  */
 public class NearbyResultsAdapter extends RecyclerView.Adapter<NearbyResultsAdapter.ViewHolder> {
 
+    // Rebind only the checkbox of a row
+    private static final Object PAYLOAD_SELECTION = new Object();
+    // Size of nearby_result_icon in nearby_result_item.xml
+    private static final int ICON_SIZE_DP = 22;
+
     private final Context context;
-    private final List<OverpassSearchResult> results;
+    private final AsyncListDiffer<OverpassSearchResult> differ;
+    private final StableIds<OverpassSearchResult> stableIds = new StableIds<>(OverpassSearchResult::getUniqueId);
     private final Set<String> selectedIds;
     private final OnResultClickListener listener;
     private final IconsetHelper iconsetHelper;
@@ -50,10 +62,23 @@ public class NearbyResultsAdapter extends RecyclerView.Adapter<NearbyResultsAdap
 
     public NearbyResultsAdapter(Context context, OnResultClickListener listener) {
         this.context = context;
-        this.results = new ArrayList<>();
+        // Diffs are computed off the main thread; a newer list supersedes one still being diffed
+        this.differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                        .setBackgroundThreadExecutor(PluginScheduler.getInstance().executor(
+                                PluginScheduler.Lane.CPU, PluginScheduler.Priority.INTERACTIVE))
+                        .build());
         this.selectedIds = new HashSet<>();
         this.listener = listener;
         this.iconsetHelper = new IconsetHelper(context);
+        setHasStableIds(true);
+    }
+
+    /**
+     * Render the row icons in the background so the first results bind from the cache.
+     */
+    public void prewarmIcons() {
+        iconsetHelper.prewarmIconBitmaps(Math.round(ICON_SIZE_DP * context.getResources().getDisplayMetrics().density));
     }
 
     public void setSelectionListener(OnSelectionChangedListener listener) {
@@ -69,35 +94,64 @@ public class NearbyResultsAdapter extends RecyclerView.Adapter<NearbyResultsAdap
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        OverpassSearchResult result = results.get(position);
+        OverpassSearchResult result = differ.getCurrentList().get(position);
         holder.bind(result);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_SELECTION) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+        }
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.bindSelection(differ.getCurrentList().get(position));
+        }
+    }
+
     @Override
     public int getItemCount() {
-        return results.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.getId(differ.getCurrentList(), position);
     }
 
     /**
      * Set the list of results to display.
      */
     public void setResults(List<OverpassSearchResult> newResults) {
-        results.clear();
         selectedIds.clear();
+        submit(newResults);
+    }
+
+    /**
+     * Replace the displayed results while a search is still refining them.
+     * Unlike setResults, selections of results that are still present are kept.
+     */
+    public void updateResults(List<OverpassSearchResult> newResults) {
+        Set<String> stillPresent = new HashSet<>();
         if (newResults != null) {
-            results.addAll(newResults);
+            for (OverpassSearchResult result : newResults) {
+                stillPresent.add(result.getUniqueId());
+            }
         }
-        notifyDataSetChanged();
-        notifySelectionChanged();
+        selectedIds.retainAll(stillPresent);
+        submit(newResults);
     }
 
     /**
      * Clear all results.
      */
     public void clear() {
-        results.clear();
         selectedIds.clear();
-        notifyDataSetChanged();
+        differ.submitList(null);
         notifySelectionChanged();
     }
 
@@ -125,10 +179,10 @@ public class NearbyResultsAdapter extends RecyclerView.Adapter<NearbyResultsAdap
      * Select all results.
      */
     public void selectAll() {
-        for (OverpassSearchResult result : results) {
+        for (OverpassSearchResult result : differ.getCurrentList()) {
             selectedIds.add(result.getUniqueId());
         }
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
         notifySelectionChanged();
     }
 
@@ -137,7 +191,7 @@ public class NearbyResultsAdapter extends RecyclerView.Adapter<NearbyResultsAdap
      */
     public void deselectAll() {
         selectedIds.clear();
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
         notifySelectionChanged();
     }
 
@@ -145,7 +199,7 @@ public class NearbyResultsAdapter extends RecyclerView.Adapter<NearbyResultsAdap
      * Check if all results are selected.
      */
     public boolean isAllSelected() {
-        return !results.isEmpty() && selectedIds.size() == results.size();
+        return !differ.getCurrentList().isEmpty() && selectedIds.size() == differ.getCurrentList().size();
     }
 
     /**
@@ -160,7 +214,7 @@ public class NearbyResultsAdapter extends RecyclerView.Adapter<NearbyResultsAdap
      */
     public List<OverpassSearchResult> getSelectedResults() {
         List<OverpassSearchResult> selected = new ArrayList<>();
-        for (OverpassSearchResult result : results) {
+        for (OverpassSearchResult result : differ.getCurrentList()) {
             if (selectedIds.contains(result.getUniqueId())) {
                 selected.add(result);
             }
@@ -172,15 +226,40 @@ public class NearbyResultsAdapter extends RecyclerView.Adapter<NearbyResultsAdap
      * Get all results.
      */
     public List<OverpassSearchResult> getAllResults() {
-        return new ArrayList<>(results);
+        return new ArrayList<>(differ.getCurrentList());
+    }
+
+    /**
+     * Diff the new results against the displayed ones in the background. Selection
+     * listeners hear about the change once the new list is showing.
+     */
+    private void submit(List<OverpassSearchResult> newResults) {
+        differ.submitList(newResults != null ? new ArrayList<>(newResults) : new ArrayList<>(),
+                this::notifySelectionChanged);
     }
 
     private void notifySelectionChanged() {
         if (selectionListener != null) {
-            selectionListener.onSelectionChanged(selectedIds.size(), results.size());
+            selectionListener.onSelectionChanged(selectedIds.size(), differ.getCurrentList().size());
         }
     }
 
+    private static final DiffUtil.ItemCallback<OverpassSearchResult> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<OverpassSearchResult>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull OverpassSearchResult oldItem, @NonNull OverpassSearchResult newItem) {
+            return oldItem.getUniqueId().equals(newItem.getUniqueId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull OverpassSearchResult oldItem, @NonNull OverpassSearchResult newItem) {
+            return Objects.equals(oldItem.getDisplayName(), newItem.getDisplayName())
+                    && Objects.equals(oldItem.getAddress(), newItem.getAddress())
+                    && Objects.equals(oldItem.getFormattedDistance(), newItem.getFormattedDistance())
+                    && oldItem.getPoiType() == newItem.getPoiType();
+        }
+    };
+
     /**
      * ViewHolder for a single POI result item.
      */
@@ -206,20 +285,20 @@ public class NearbyResultsAdapter extends RecyclerView.Adapter<NearbyResultsAdap
             markerButton = itemView.findViewById(R.id.nearby_marker_button);
         }
 
+        void bindSelection(OverpassSearchResult result) {
+            checkbox.setChecked(isSelected(result));
+        }
+
         void bind(OverpassSearchResult result) {
             // Set checkbox state
-            checkbox.setChecked(isSelected(result));
+            bindSelection(result);
 
-            // Set POI icon
+            // Set POI icon (cached bitmap, rendered in the background if missing)
             if (result.getPoiType() != null) {
-                Drawable icon = iconsetHelper.getIconDrawable(result.getPoiType());
-                if (icon != null) {
-                    iconView.setImageDrawable(icon);
-                    iconView.setVisibility(View.VISIBLE);
-                } else {
-                    iconView.setVisibility(View.GONE);
-                }
+                iconsetHelper.bindListIcon(iconView, result.getPoiType(), R.drawable.ic_marker);
+                iconView.setVisibility(View.VISIBLE);
             } else {
+                iconView.setTag(null);
                 iconView.setVisibility(View.GONE);
             }
 
@@ -252,7 +331,7 @@ public class NearbyResultsAdapter extends RecyclerView.Adapter<NearbyResultsAdap
                 // Notify item changed to update checkbox state
                 int pos = getAdapterPosition();
                 if (pos != RecyclerView.NO_POSITION) {
-                    notifyItemChanged(pos);
+                    notifyItemChanged(pos, PAYLOAD_SELECTION);
                 }
             });
 
@@ -5,29 +5,25 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
 import com.atakmap.coremap.log.Log;
+import com.gotak.address.net.HttpEngine;
+import com.gotak.address.net.JsonStreams;
+import com.gotak.address.sched.PluginScheduler;
 import com.gotak.address.search.OfflineAddressDatabase;
 
-import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.TreeSet;
+import java.util.concurrent.FutureTask;
 
 /**
  * Client for querying Points of Interest.
@@ -46,18 +42,27 @@ public class OverpassApiClient {
     private static final int MIN_OFFLINE_RESULTS = 10;
     private static final int MAX_RETRY_ATTEMPTS = 3;
     private static final long RETRY_DELAY_MS = 3000;
+    
+    // Online results kept (closest first); matches the offline POI limit
+    private static final int MAX_ONLINE_RESULTS = 100;
+    // Minimum time between progressive updates while a response streams in
+    private static final long PARTIAL_RESULTS_INTERVAL_MS = 300;
+
+    // Query centers are rounded to ~110m so nearby searches share a cached response
+    private static final double QUERY_CENTER_STEP_DEGREES = 0.001;
 
     private final Context context;
-    private final ExecutorService executor;
+    private final PluginScheduler.SerialExecutor executor;
     private final Handler mainHandler;
     private final OfflineAddressDatabase offlineDatabase;
     private boolean offlineOnly = false;
 
     public OverpassApiClient(Context context) {
         this.context = context;
-        this.executor = Executors.newSingleThreadExecutor();
+        this.executor = PluginScheduler.getInstance().newSerialExecutor(
+                PluginScheduler.Lane.IO, PluginScheduler.Priority.INTERACTIVE);
         this.mainHandler = new Handler(Looper.getMainLooper());
-        this.offlineDatabase = new OfflineAddressDatabase(context);
+        this.offlineDatabase = OfflineAddressDatabase.getInstance(context);
     }
 
     /**
@@ -92,24 +97,95 @@ public class OverpassApiClient {
         void onError(String errorMessage);
     }
 
+    /**
+     * Search callback that also receives results while the online response is still streaming.
+     */
+    public interface StreamingSearchCallback extends SearchCallback {
+        /**
+         * Called on the main thread with the closest results parsed so far.
+         * onSuccess still follows with the final list.
+         * 
+         * @param results Partial results, sorted by distance
+         */
+        void onPartialResults(List<OverpassSearchResult> results);
+    }
+
+    /**
+     * Handle on one searchNearby() call. Cancelling it interrupts the search,
+     * disconnects its HTTP request and drops any callbacks it has not delivered.
+     */
+    public static final class Search {
+        private FutureTask<?> task;
+        private HttpEngine.Call call;
+        private boolean cancelled = false;
+
+        private Search() {
+        }
+
+        public void cancel() {
+            FutureTask<?> runningTask;
+            HttpEngine.Call runningCall;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                runningTask = task;
+                runningCall = call;
+            }
+            if (runningCall != null) {
+                runningCall.cancel();
+            }
+            if (runningTask != null) {
+                runningTask.cancel(true);
+            }
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        private synchronized void setTask(FutureTask<?> task) {
+            this.task = task;
+        }
+
+        /**
+         * Register the HTTP call in flight; a search already cancelled cancels it at once.
+         */
+        private synchronized void setCall(HttpEngine.Call call) {
+            this.call = call;
+            if (cancelled && call != null) {
+                call.cancel();
+            }
+        }
+    }
+
     /**
      * Search for POIs of the specified types within a radius around a location.
      * Checks offline database first, then falls back to online API.
+     * If the callback is a StreamingSearchCallback, online results are also
+     * delivered progressively as the response is parsed.
      *
      * @param lat The latitude of the center point
      * @param lon The longitude of the center point
      * @param radiusKm The search radius in kilometers
      * @param types The POI types to search for
      * @param callback The callback for results
+     * @return Handle to cancel the search
      */
-    public void searchNearby(double lat, double lon, int radiusKm, 
-                             List<PointOfInterestType> types, SearchCallback callback) {
+    public Search searchNearby(double lat, double lon, int radiusKm, 
+                               List<PointOfInterestType> types, SearchCallback callback) {
+        final Search search = new Search();
         if (types == null || types.isEmpty()) {
-            mainHandler.post(() -> callback.onError("No POI categories selected"));
-            return;
+            postIfActive(search, () -> callback.onError("No POI categories selected"));
+            return search;
         }
 
-        executor.execute(() -> {
+        FutureTask<?> task = new FutureTask<>(() -> {
+            if (search.isCancelled()) {
+                return;
+            }
+            
             List<OverpassSearchResult> results = new ArrayList<>();
             
             // Step 1: Try offline database first
@@ -123,7 +199,7 @@ public class OverpassApiClient {
                     // If offline-only mode or we have good results, return them
                     if (offlineOnly || results.size() >= MIN_OFFLINE_RESULTS) {
                         final List<OverpassSearchResult> finalResults = results;
-                        mainHandler.post(() -> callback.onSuccess(finalResults));
+                        postIfActive(search, () -> callback.onSuccess(finalResults));
                         return;
                     }
                 } catch (Exception e) {
@@ -134,18 +210,23 @@ public class OverpassApiClient {
             // Step 2: If offline-only mode, return what we have
             if (offlineOnly) {
                 final List<OverpassSearchResult> finalResults = results;
-                mainHandler.post(() -> callback.onSuccess(finalResults));
+                postIfActive(search, () -> callback.onSuccess(finalResults));
                 return;
             }
             
             // Step 3: Check network availability
             if (!isNetworkAvailable()) {
-                Log.w(TAG, "No network available, returning offline results only");
+                Log.w(TAG, "No network available, returning offline and cached online results");
+                List<OverpassSearchResult> replayed = readCachedQuery(
+                        buildOverpassQuery(lat, lon, radiusKm * 1000, types), lat, lon);
+                if (replayed != null && !replayed.isEmpty()) {
+                    results = replayed;
+                }
                 final List<OverpassSearchResult> finalResults = results;
                 if (results.isEmpty()) {
-                    mainHandler.post(() -> callback.onError("No network connection and no offline data"));
+                    postIfActive(search, () -> callback.onError("No network connection and no offline data"));
                 } else {
-                    mainHandler.post(() -> callback.onSuccess(finalResults));
+                    postIfActive(search, () -> callback.onSuccess(finalResults));
                 }
                 return;
             }
@@ -155,8 +236,12 @@ public class OverpassApiClient {
                 String query = buildOverpassQuery(lat, lon, radiusKm * 1000, types);
                 Log.d(TAG, "Overpass query: " + query);
                 
-                String response = executeQuery(query);
-                List<OverpassSearchResult> onlineResults = parseResponse(response, lat, lon);
+                PartialResultsListener partialListener = null;
+                if (callback instanceof StreamingSearchCallback) {
+                    StreamingSearchCallback streaming = (StreamingSearchCallback) callback;
+                    partialListener = partial -> postIfActive(search, () -> streaming.onPartialResults(partial));
+                }
+                List<OverpassSearchResult> onlineResults = executeQuery(search, query, lat, lon, partialListener);
                 
                 // Prefer online results if we got any
                 if (!onlineResults.isEmpty()) {
@@ -164,33 +249,56 @@ public class OverpassApiClient {
                 }
                 
                 final List<OverpassSearchResult> finalResults = results;
-                mainHandler.post(() -> callback.onSuccess(finalResults));
+                postIfActive(search, () -> callback.onSuccess(finalResults));
                 
             } catch (Exception e) {
+                if (search.isCancelled()) {
+                    Log.d(TAG, "POI search cancelled during online phase");
+                    return;
+                }
                 Log.e(TAG, "Online search error: " + e.getMessage(), e);
                 
                 // Return offline results if we have any, otherwise report error
                 if (!results.isEmpty()) {
                     final List<OverpassSearchResult> finalResults = results;
-                    mainHandler.post(() -> callback.onSuccess(finalResults));
+                    postIfActive(search, () -> callback.onSuccess(finalResults));
                 } else {
-                    mainHandler.post(() -> callback.onError(e.getMessage()));
+                    postIfActive(search, () -> callback.onError(e.getMessage()));
                 }
             }
+        }, null);
+        search.setTask(task);
+        executor.execute(task);
+        return search;
+    }
+
+    /**
+     * Post a callback to the main thread unless its search has been cancelled by then.
+     */
+    private void postIfActive(Search search, Runnable runnable) {
+        mainHandler.post(() -> {
+            if (!search.isCancelled()) {
+                runnable.run();
+            }
         });
     }
 
     /**
      * Build an Overpass QL query for the specified POI types.
+     * The query is normalized (center rounded, types in a fixed order) so that it can
+     * serve as the response cache key; distances are still measured from the exact center.
      */
     private String buildOverpassQuery(double lat, double lon, int radiusMeters, 
                                        List<PointOfInterestType> types) {
+        double queryLat = Math.round(lat / QUERY_CENTER_STEP_DEGREES) * QUERY_CENTER_STEP_DEGREES;
+        double queryLon = Math.round(lon / QUERY_CENTER_STEP_DEGREES) * QUERY_CENTER_STEP_DEGREES;
+
         StringBuilder query = new StringBuilder();
         query.append("[out:json][timeout:25];\n");
         query.append("(\n");
         
-        for (PointOfInterestType type : types) {
-            query.append(type.toOverpassQueryFragment(lat, lon, radiusMeters));
+        for (PointOfInterestType type : new TreeSet<>(types)) {
+            query.append(type.toOverpassQueryFragment(queryLat, queryLon, radiusMeters));
             query.append("\n");
         }
         
@@ -201,64 +309,77 @@ public class OverpassApiClient {
     }
 
     /**
-     * Execute the Overpass query and return the raw response.
+     * Receives snapshots of the closest results while a response is being parsed.
+     * Called on the worker thread.
+     */
+    private interface PartialResultsListener {
+        void onPartialResults(List<OverpassSearchResult> results);
+    }
+
+    /**
+     * Execute the Overpass query and parse the response as it streams in.
      * Automatically retries on 502/503/504 errors after a 3-second delay.
      */
-    private String executeQuery(String query) throws IOException {
-        return executeQueryWithRetry(query, 1);
+    private List<OverpassSearchResult> executeQuery(Search search, String query,
+                                                    double centerLat, double centerLon,
+                                                    PartialResultsListener partialListener)
+            throws IOException {
+        return executeQueryWithRetry(search, query, centerLat, centerLon, partialListener, 1);
     }
 
     /**
      * Execute query with retry logic for gateway errors.
      */
-    private String executeQueryWithRetry(String query, int attempt) throws IOException {
-        URL url = new URL(OVERPASS_API_URL);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        
+    private List<OverpassSearchResult> executeQueryWithRetry(Search search, String query, double centerLat,
+                                                             double centerLon,
+                                                             PartialResultsListener partialListener,
+                                                             int attempt)
+            throws IOException {
+        HttpEngine.Request request = overpassRequest(query);
+        HttpEngine.Call call = HttpEngine.getInstance().newCall(request);
+        search.setCall(call);
         try {
-            connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.setConnectTimeout(TIMEOUT_MS);
-            connection.setReadTimeout(TIMEOUT_MS);
-            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            connection.setRequestProperty("User-Agent", "ATAK-Address-Plugin/1.0");
-
-            // Write query as POST data
-            String postData = "data=" + URLEncoder.encode(query, "UTF-8");
-            try (OutputStream os = connection.getOutputStream()) {
-                os.write(postData.getBytes(StandardCharsets.UTF_8));
-            }
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                // Retry on 502, 503, or 504 gateway errors
-                if (isRetryableError(responseCode) && attempt < MAX_RETRY_ATTEMPTS) {
-                    Log.i(TAG, "Got HTTP " + responseCode + ", retrying after " + RETRY_DELAY_MS + 
-                          "ms (attempt " + (attempt + 1) + "/" + MAX_RETRY_ATTEMPTS + ")");
-                    connection.disconnect();
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Retry interrupted");
-                    }
-                    return executeQueryWithRetry(query, attempt + 1);
+            return call.executeJson(reader -> parseResponse(reader, centerLat, centerLon, partialListener));
+        } catch (HttpEngine.HttpStatusException e) {
+            // Retry on 502, 503, or 504 gateway errors
+            int responseCode = e.getStatusCode();
+            if (isRetryableError(responseCode) && attempt < MAX_RETRY_ATTEMPTS) {
+                Log.i(TAG, "Got HTTP " + responseCode + ", retrying after " + RETRY_DELAY_MS + 
+                      "ms (attempt " + (attempt + 1) + "/" + MAX_RETRY_ATTEMPTS + ")");
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Retry interrupted");
                 }
-                throw new IOException("HTTP error code: " + responseCode);
+                return executeQueryWithRetry(search, query, centerLat, centerLon, partialListener, attempt + 1);
             }
+            throw e;
+        }
+    }
 
-            // Read response
-            try (InputStream is = connection.getInputStream();
-                 BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                return response.toString();
+    private HttpEngine.Request overpassRequest(String query) throws IOException {
+        return HttpEngine.Request.postForm(OVERPASS_API_URL, "data", query)
+                .setLabel("Overpass")
+                .setTimeouts(TIMEOUT_MS, TIMEOUT_MS)
+                .setCacheKey("overpass:" + query);
+    }
+
+    /**
+     * Replay a previous response to this query from the disk cache.
+     *
+     * @return Cached results, or null if the query has no cached response
+     */
+    private List<OverpassSearchResult> readCachedQuery(String query, double centerLat, double centerLon) {
+        try {
+            List<OverpassSearchResult> results = HttpEngine.getInstance().readCached(overpassRequest(query),
+                    reader -> parseResponse(reader, centerLat, centerLon, null));
+            if (results != null) {
+                Log.i(TAG, "Replayed " + results.size() + " cached Overpass results");
             }
-        } finally {
-            connection.disconnect();
+            return results;
+        } catch (IOException e) {
+            return null;
         }
     }
 
@@ -270,80 +391,181 @@ public class OverpassApiClient {
     }
 
     /**
-     * Parse the Overpass JSON response into search results.
+     * Parse the streamed Overpass JSON response into search results.
+     * Only the closest MAX_ONLINE_RESULTS are kept, in a bounded max-heap keyed by
+     * distance. Once the heap is full, an element farther than the current worst
+     * is dropped as soon as its coordinates are known, without reading its tags.
+     * 
+     * @param partialListener Receives throttled snapshots while parsing, or null
      */
-    private List<OverpassSearchResult> parseResponse(String jsonResponse, 
-                                                      double centerLat, double centerLon) throws JSONException {
-        List<OverpassSearchResult> results = new ArrayList<>();
+    private List<OverpassSearchResult> parseResponse(JsonReader reader, double centerLat, double centerLon,
+                                                      PartialResultsListener partialListener) throws IOException {
+        // Farthest result at the head, so it is the one replaced
+        PriorityQueue<OverpassSearchResult> closest = new PriorityQueue<>(MAX_ONLINE_RESULTS,
+                (a, b) -> Double.compare(b.getDistanceMeters(), a.getDistanceMeters()));
+        int scanned = 0;
+        long lastPartial = System.currentTimeMillis();
         
-        JSONObject root = new JSONObject(jsonResponse);
-        JSONArray elements = root.optJSONArray("elements");
-        
-        if (elements == null) {
-            return results;
-        }
-
-        for (int i = 0; i < elements.length(); i++) {
-            JSONObject element = elements.getJSONObject(i);
-            
-            // Get coordinates - for ways, use the center point
-            double lat, lon;
-            if (element.has("center")) {
-                JSONObject center = element.getJSONObject("center");
-                lat = center.getDouble("lat");
-                lon = center.getDouble("lon");
-            } else {
-                lat = element.optDouble("lat", 0);
-                lon = element.optDouble("lon", 0);
-            }
-            
-            if (lat == 0 && lon == 0) {
-                continue; // Skip elements without valid coordinates
-            }
-
-            // Get tags
-            JSONObject tags = element.optJSONObject("tags");
-            if (tags == null) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"elements".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
                 continue;
             }
-
-            // Determine POI type from tags
-            PointOfInterestType poiType = determinePoiType(tags);
-            
-            // Get name
-            String name = tags.optString("name", "");
-            if (name.isEmpty()) {
-                // Try alternative name fields
-                name = tags.optString("official_name", "");
-                if (name.isEmpty()) {
-                    name = tags.optString("alt_name", "");
+            reader.beginArray();
+            while (reader.hasNext()) {
+                scanned++;
+                double cutoff = closest.size() < MAX_ONLINE_RESULTS
+                        ? Double.MAX_VALUE : closest.peek().getDistanceMeters();
+                OverpassSearchResult result = parseElement(reader, centerLat, centerLon, cutoff);
+                if (result == null || result.getDistanceMeters() >= cutoff) {
+                    continue;
+                }
+                if (closest.size() >= MAX_ONLINE_RESULTS) {
+                    closest.poll();
                 }
-                if (name.isEmpty() && poiType != null) {
-                    // Use POI type as fallback name
-                    name = poiType.getOsmValue().replace("_", " ");
-                    name = name.substring(0, 1).toUpperCase() + name.substring(1);
+                closest.add(result);
+                
+                long now = System.currentTimeMillis();
+                if (partialListener != null && now - lastPartial >= PARTIAL_RESULTS_INTERVAL_MS) {
+                    partialListener.onPartialResults(sortedByDistance(closest));
+                    lastPartial = now;
                 }
             }
+            reader.endArray();
+        }
+        reader.endObject();
 
-            // Calculate distance from center
-            double distance = calculateDistance(centerLat, centerLon, lat, lon);
+        Log.d(TAG, "Parsed " + scanned + " Overpass elements, kept closest " + closest.size());
+        return sortedByDistance(closest);
+    }
 
-            // Get additional details
-            String address = buildAddress(tags);
-            
-            long osmId = element.optLong("id", 0);
-            String osmType = element.optString("type", "node");
+    private static List<OverpassSearchResult> sortedByDistance(PriorityQueue<OverpassSearchResult> heap) {
+        List<OverpassSearchResult> results = new ArrayList<>(heap);
+        results.sort((a, b) -> Double.compare(a.getDistanceMeters(), b.getDistanceMeters()));
+        return results;
+    }
+
+    /**
+     * Parse one streamed Overpass element.
+     * @param cutoffMeters Elements known to be at least this far are skipped without reading their tags
+     * @return The result, or null if the element has no coordinates or tags, or is past the cutoff
+     */
+    private OverpassSearchResult parseElement(JsonReader reader, double centerLat, double centerLon,
+                                              double cutoffMeters) throws IOException {
+        long osmId = 0;
+        String osmType = "node";
+        double lat = 0, lon = 0;
+        double centerPointLat = Double.NaN, centerPointLon = Double.NaN;
+        JSONObject tags = null;
+        boolean tooFar = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            switch (field) {
+                case "id": osmId = JsonStreams.nextLong(reader, 0); break;
+                case "type": osmType = JsonStreams.nextString(reader, "node"); break;
+                case "lat": lat = JsonStreams.nextDouble(reader, 0); break;
+                case "lon": lon = JsonStreams.nextDouble(reader, 0); break;
+                case "center":
+                    // Ways and relations carry their center point here
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        break;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String centerField = reader.nextName();
+                        if ("lat".equals(centerField)) {
+                            centerPointLat = JsonStreams.nextDouble(reader, Double.NaN);
+                        } else if ("lon".equals(centerField)) {
+                            centerPointLon = JsonStreams.nextDouble(reader, Double.NaN);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case "tags":
+                    // Overpass writes coordinates before tags, so far elements never build a JSONObject
+                    if (isBeyond(centerLat, centerLon, lat, lon, centerPointLat, centerPointLon, cutoffMeters)) {
+                        reader.skipValue();
+                        tooFar = true;
+                    } else if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        tags = JsonStreams.readObject(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                default: reader.skipValue(); break;
+            }
+        }
+        reader.endObject();
+        
+        if (tooFar) {
+            return null;
+        }
+        
+        // Get coordinates - for ways, use the center point
+        if (!Double.isNaN(centerPointLat) && !Double.isNaN(centerPointLon)) {
+            lat = centerPointLat;
+            lon = centerPointLon;
+        }
+        
+        if (lat == 0 && lon == 0) {
+            return null; // Skip elements without valid coordinates
+        }
 
-            OverpassSearchResult result = new OverpassSearchResult(
-                osmId, osmType, name, lat, lon, distance, poiType, address, tags
-            );
-            results.add(result);
+        if (tags == null) {
+            return null;
         }
 
-        // Sort by distance
-        results.sort((a, b) -> Double.compare(a.getDistanceMeters(), b.getDistanceMeters()));
+        // Determine POI type from tags
+        PointOfInterestType poiType = determinePoiType(tags);
         
-        return results;
+        // Get name
+        String name = tags.optString("name", "");
+        if (name.isEmpty()) {
+            // Try alternative name fields
+            name = tags.optString("official_name", "");
+            if (name.isEmpty()) {
+                name = tags.optString("alt_name", "");
+            }
+            if (name.isEmpty() && poiType != null) {
+                // Use POI type as fallback name
+                name = poiType.getOsmValue().replace("_", " ");
+                name = name.substring(0, 1).toUpperCase() + name.substring(1);
+            }
+        }
+
+        // Calculate distance from center
+        double distance = calculateDistance(centerLat, centerLon, lat, lon);
+
+        // Get additional details
+        String address = buildAddress(tags);
+
+        return new OverpassSearchResult(
+            osmId, osmType, name, lat, lon, distance, poiType, address, tags
+        );
+    }
+
+    /**
+     * Check whether an element's coordinates read so far put it at or past the cutoff.
+     * Unknown coordinates are never beyond it.
+     */
+    private boolean isBeyond(double centerLat, double centerLon, double lat, double lon,
+                             double centerPointLat, double centerPointLon, double cutoffMeters) {
+        if (cutoffMeters == Double.MAX_VALUE) {
+            return false;
+        }
+        if (!Double.isNaN(centerPointLat) && !Double.isNaN(centerPointLon)) {
+            return calculateDistance(centerLat, centerLon, centerPointLat, centerPointLon) >= cutoffMeters;
+        }
+        if (lat == 0 && lon == 0) {
+            return false;
+        }
+        return calculateDistance(centerLat, centerLon, lat, lon) >= cutoffMeters;
     }
 
     /**
@@ -410,10 +632,9 @@ public class OverpassApiClient {
     }
 
     /**
-     * Shutdown the executor service and close offline database.
+     * Drop queued searches. The shared offline database is closed on plugin unload.
      */
     public void shutdown() {
-        executor.shutdown();
-        offlineDatabase.close();
+        executor.clear();
     }
 }
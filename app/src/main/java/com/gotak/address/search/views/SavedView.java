@@ -1,13 +1,10 @@
 package com.gotak.address.search.views;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.util.Base64;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.ByteArrayOutputStream;
 import java.util.UUID;
 
 /**
@@ -32,9 +29,12 @@ public class SavedView {
     private boolean is3DMode;      // Whether view was captured in 3D mode
     
     // Display
-    private String thumbnailBase64; // Base64-encoded PNG thumbnail
+    private String thumbnailFile;   // Thumbnail file name in the ThumbnailStore
     private String geocodedAddress; // Reverse-geocoded address for display
     
+    // Base64 JPEG from a views file written before thumbnails moved to their own files
+    private String legacyThumbnailBase64;
+    
     /**
      * Create a new SavedView with auto-generated ID.
      */
@@ -45,10 +45,11 @@ public class SavedView {
     
     /**
      * Create a SavedView from captured map state.
+     * The thumbnail is saved separately with ViewsManager.saveThumbnail.
      */
     public static SavedView capture(String name, double lat, double lon, double zoom,
                                      double altitude, double tilt, double rotation,
-                                     boolean is3D, Bitmap thumbnail, String address) {
+                                     boolean is3D, String address) {
         SavedView view = new SavedView();
         view.name = name;
         view.latitude = lat;
@@ -60,10 +61,6 @@ public class SavedView {
         view.is3DMode = is3D;
         view.geocodedAddress = address;
         
-        if (thumbnail != null) {
-            view.setThumbnail(thumbnail);
-        }
-        
         return view;
     }
     
@@ -79,50 +76,37 @@ public class SavedView {
     public double getRotation() { return rotation; }
     public boolean is3DMode() { return is3DMode; }
     public String getGeocodedAddress() { return geocodedAddress; }
+    public String getThumbnailFile() { return thumbnailFile; }
     
     // Setters
     public void setName(String name) { this.name = name; }
     public void setGeocodedAddress(String address) { this.geocodedAddress = address; }
+    void setThumbnailFile(String fileName) { this.thumbnailFile = fileName; }
     
     /**
-     * Set thumbnail from Bitmap (encodes to Base64).
+     * Check if this view has a thumbnail.
      */
-    public void setThumbnail(Bitmap bitmap) {
-        if (bitmap == null) {
-            this.thumbnailBase64 = null;
-            return;
-        }
-        
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        // Use JPEG with high quality for crisp thumbnail display
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 85, baos);
-        byte[] bytes = baos.toByteArray();
-        this.thumbnailBase64 = Base64.encodeToString(bytes, Base64.NO_WRAP);
+    public boolean hasThumbnail() {
+        return thumbnailFile != null && !thumbnailFile.isEmpty();
     }
     
     /**
-     * Get thumbnail as Bitmap (decodes from Base64).
+     * JPEG bytes of a thumbnail still embedded in an old views file, or null.
+     * Clears it, so it is only migrated once.
      */
-    public Bitmap getThumbnail() {
-        if (thumbnailBase64 == null || thumbnailBase64.isEmpty()) {
+    byte[] takeLegacyThumbnail() {
+        String base64 = legacyThumbnailBase64;
+        legacyThumbnailBase64 = null;
+        if (base64 == null || base64.isEmpty()) {
             return null;
         }
-        
         try {
-            byte[] bytes = Base64.decode(thumbnailBase64, Base64.NO_WRAP);
-            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-        } catch (Exception e) {
+            return Base64.decode(base64, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
             return null;
         }
     }
     
-    /**
-     * Check if this view has a thumbnail.
-     */
-    public boolean hasThumbnail() {
-        return thumbnailBase64 != null && !thumbnailBase64.isEmpty();
-    }
-    
     /**
      * Get display subtitle (mode + address).
      */
@@ -157,8 +141,8 @@ public class SavedView {
             json.put("geocodedAddress", geocodedAddress);
         }
         
-        if (thumbnailBase64 != null) {
-            json.put("thumbnail", thumbnailBase64);
+        if (thumbnailFile != null) {
+            json.put("thumbnailFile", thumbnailFile);
         }
         
         return json;
@@ -180,7 +164,8 @@ public class SavedView {
         view.rotation = json.optDouble("rotation", 0);
         view.is3DMode = json.optBoolean("is3DMode", false);
         view.geocodedAddress = json.optString("geocodedAddress", null);
-        view.thumbnailBase64 = json.optString("thumbnail", null);
+        view.thumbnailFile = json.optString("thumbnailFile", null);
+        view.legacyThumbnailBase64 = json.optString("thumbnail", null);
         
         return view;
     }
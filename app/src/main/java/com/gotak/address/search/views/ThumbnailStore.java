@@ -0,0 +1,180 @@
+package com.gotak.address.search.views;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import com.atakmap.coremap.log.Log;
+import com.gotak.address.sched.PluginScheduler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Saved view thumbnails, one JPEG file per view.
+ *
+ * SavedView only records the file name, so the views JSON stays small and loads quickly
+ * however many views have thumbnails. Thumbnails are decoded on the IO lane when a card
+ * needs one, downsampled to the card size, and kept in a memory-bounded LRU cache shared
+ * by all stores.
+ */
+public class ThumbnailStore {
+    private static final String TAG = "ThumbnailStore";
+
+    private static final String FILE_SUFFIX = ".jpg";
+    private static final int JPEG_QUALITY = 85;
+    // Bytes of decoded thumbnails kept in memory
+    private static final int CACHE_BYTES = (int) Math.min(8 * 1024 * 1024, Runtime.getRuntime().maxMemory() / 16);
+
+    private static final LruCache<String, Bitmap> cache = new LruCache<String, Bitmap>(CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getByteCount();
+        }
+    };
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final File dir;
+
+    /**
+     * Receives a decoded thumbnail on the main thread; bitmap is null if it could not be read.
+     */
+    public interface Callback {
+        void onThumbnailLoaded(String fileName, Bitmap bitmap);
+    }
+
+    public ThumbnailStore(File dir) {
+        this.dir = dir;
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+    }
+
+    /**
+     * Compress and save a view's thumbnail. Call off the UI thread.
+     *
+     * @return The file name to record in the SavedView
+     */
+    public String save(String viewId, Bitmap bitmap) throws IOException {
+        File tempFile = new File(dir, viewId + FILE_SUFFIX + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)) {
+                throw new IOException("Could not encode thumbnail");
+            }
+        }
+        return commit(viewId, tempFile);
+    }
+
+    /**
+     * Save a thumbnail that is already JPEG encoded.
+     *
+     * @return The file name to record in the SavedView
+     */
+    public String save(String viewId, byte[] jpeg) throws IOException {
+        File tempFile = new File(dir, viewId + FILE_SUFFIX + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(jpeg);
+        }
+        return commit(viewId, tempFile);
+    }
+
+    /**
+     * Delete a thumbnail file and drop its decoded copies.
+     */
+    public void delete(String fileName) {
+        if (fileName == null) {
+            return;
+        }
+        evict(fileName);
+        File file = new File(dir, fileName);
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete thumbnail " + fileName);
+        }
+    }
+
+    /**
+     * Decoded thumbnail if it is already cached at this size. Safe on the UI thread.
+     */
+    public Bitmap getCached(String fileName, int size) {
+        return cache.get(cacheKey(fileName, size));
+    }
+
+    /**
+     * Decode a thumbnail in the background, downsampled to about size pixels square.
+     * The callback runs on the main thread, right away if the thumbnail is cached.
+     */
+    public void load(String fileName, int size, Callback callback) {
+        Bitmap cached = getCached(fileName, size);
+        if (cached != null) {
+            callback.onThumbnailLoaded(fileName, cached);
+            return;
+        }
+
+        try {
+            PluginScheduler.getInstance().execute(PluginScheduler.Lane.IO, PluginScheduler.Priority.INTERACTIVE, () -> {
+                Bitmap bitmap = decode(new File(dir, fileName), size);
+                if (bitmap != null) {
+                    cache.put(cacheKey(fileName, size), bitmap);
+                }
+                mainHandler.post(() -> callback.onThumbnailLoaded(fileName, bitmap));
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Could not load thumbnail " + fileName + ": " + e.getMessage());
+            callback.onThumbnailLoaded(fileName, null);
+        }
+    }
+
+    private String commit(String viewId, File tempFile) throws IOException {
+        String fileName = viewId + FILE_SUFFIX;
+        File file = new File(dir, fileName);
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Failed to save thumbnail " + fileName);
+        }
+        evict(fileName);
+        return fileName;
+    }
+
+    private static void evict(String fileName) {
+        String prefix = fileName + ":";
+        for (String key : cache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Decode at the largest power-of-two reduction that still covers size pixels.
+     */
+    private static Bitmap decode(File file, int size) {
+        if (!file.exists()) {
+            Log.w(TAG, "Thumbnail file missing: " + file.getName());
+            return null;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            Log.w(TAG, "Unreadable thumbnail: " + file.getName());
+            return null;
+        }
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= size && options.outHeight / (sampleSize * 2) >= size) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        return BitmapFactory.decodeFile(file.getPath(), options);
+    }
+
+    private static String cacheKey(String fileName, int size) {
+        return fileName + ":" + size;
+    }
+}
@@ -2,6 +2,8 @@ package com.gotak.address.search.views;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,9 +13,12 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.gotak.address.plugin.R;
+import com.gotak.address.sched.PluginScheduler;
+import com.gotak.address.search.StableIds;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -26,7 +31,15 @@ public class ViewsAdapter extends RecyclerView.Adapter<ViewsAdapter.ViewHolder>
     
     private final Context context;
     private final List<SavedView> views;
+    // What each row showed when it was last set, since SavedViews are edited in place
+    private final List<String> contents;
+    private final StableIds<SavedView> stableIds = new StableIds<>(SavedView::getId);
     private final ViewActionListener listener;
+    private final ThumbnailStore thumbnailStore;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Views waiting for their diff to finish, and which diff is the latest
+    private List<SavedView> pendingViews;
+    private int diffGeneration = 0;
     
     /**
      * Listener for view card actions.
@@ -38,10 +51,13 @@ public class ViewsAdapter extends RecyclerView.Adapter<ViewsAdapter.ViewHolder>
         void onViewsMoved(int fromPosition, int toPosition);
     }
     
-    public ViewsAdapter(Context context, ViewActionListener listener) {
+    public ViewsAdapter(Context context, ViewActionListener listener, ThumbnailStore thumbnailStore) {
         this.context = context;
         this.listener = listener;
+        this.thumbnailStore = thumbnailStore;
         this.views = new ArrayList<>();
+        this.contents = new ArrayList<>();
+        setHasStableIds(true);
     }
     
     /**
@@ -55,8 +71,15 @@ public class ViewsAdapter extends RecyclerView.Adapter<ViewsAdapter.ViewHolder>
         
         SavedView view = views.remove(fromPosition);
         views.add(toPosition, view);
+        contents.add(toPosition, contents.remove(fromPosition));
+        stableIds.invalidate();
         notifyItemMoved(fromPosition, toPosition);
         
+        // A diff started before the move no longer matches the list; start it again
+        if (pendingViews != null) {
+            setViews(pendingViews);
+        }
+        
         // Notify listener to persist the change
         if (listener != null) {
             listener.onViewsMoved(fromPosition, toPosition);
@@ -72,21 +95,50 @@ public class ViewsAdapter extends RecyclerView.Adapter<ViewsAdapter.ViewHolder>
     
     /**
      * Update the list of views.
+     * The change is diffed on a background thread and only the cards that were added,
+     * removed, moved or edited are updated.
      */
     public void setViews(List<SavedView> newViews) {
-        views.clear();
-        if (newViews != null) {
-            views.addAll(newViews);
+        List<SavedView> oldViews = new ArrayList<>(views);
+        List<String> oldContents = new ArrayList<>(contents);
+        List<SavedView> updatedViews = newViews != null ? new ArrayList<>(newViews) : new ArrayList<>();
+        List<String> updatedContents = new ArrayList<>();
+        for (SavedView view : updatedViews) {
+            updatedContents.add(contentsOf(view));
         }
-        notifyDataSetChanged();
+        
+        pendingViews = updatedViews;
+        int generation = ++diffGeneration;
+        PluginScheduler.getInstance().execute(PluginScheduler.Lane.CPU, PluginScheduler.Priority.INTERACTIVE, () -> {
+            DiffUtil.DiffResult diff = DiffUtil.calculateDiff(
+                    new ViewsDiffCallback(oldViews, oldContents, updatedViews, updatedContents));
+            mainHandler.post(() -> {
+                if (generation != diffGeneration) {
+                    // Superseded by a newer list
+                    return;
+                }
+                pendingViews = null;
+                views.clear();
+                views.addAll(updatedViews);
+                contents.clear();
+                contents.addAll(updatedContents);
+                stableIds.invalidate();
+                diff.dispatchUpdatesTo(this);
+            });
+        });
     }
     
     /**
      * Clear all views.
      */
     public void clear() {
+        pendingViews = null;
+        diffGeneration++;
+        int count = views.size();
         views.clear();
-        notifyDataSetChanged();
+        contents.clear();
+        stableIds.invalidate();
+        notifyItemRangeRemoved(0, count);
     }
     
     @NonNull
@@ -107,6 +159,56 @@ public class ViewsAdapter extends RecyclerView.Adapter<ViewsAdapter.ViewHolder>
         return views.size();
     }
     
+    @Override
+    public long getItemId(int position) {
+        return stableIds.getId(views, position);
+    }
+    
+    /**
+     * Everything a card displays, for telling whether it needs rebinding.
+     */
+    private static String contentsOf(SavedView view) {
+        return view.getName() + "|" + view.getGeocodedAddress() + "|" + view.getLatitude() + "|"
+                + view.getLongitude() + "|" + view.is3DMode() + "|" + view.hasThumbnail();
+    }
+    
+    private static class ViewsDiffCallback extends DiffUtil.Callback {
+        private final List<SavedView> oldViews;
+        private final List<String> oldContents;
+        private final List<SavedView> newViews;
+        private final List<String> newContents;
+        
+        ViewsDiffCallback(List<SavedView> oldViews, List<String> oldContents,
+                          List<SavedView> newViews, List<String> newContents) {
+            this.oldViews = oldViews;
+            this.oldContents = oldContents;
+            this.newViews = newViews;
+            this.newContents = newContents;
+        }
+        
+        @Override
+        public int getOldListSize() {
+            return oldViews.size();
+        }
+        
+        @Override
+        public int getNewListSize() {
+            return newViews.size();
+        }
+        
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return oldViews.get(oldPosition).getId().equals(newViews.get(newPosition).getId());
+        }
+        
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            // A replaced SavedView may carry a new thumbnail
+            return oldViews.get(oldPosition) == newViews.get(newPosition)
+                    && oldContents.get(oldPosition).equals(newContents.get(newPosition));
+        }
+    }
+    
     class ViewHolder extends RecyclerView.ViewHolder {
         
         private final FrameLayout thumbnailContainer;
@@ -153,14 +255,30 @@ public class ViewsAdapter extends RecyclerView.Adapter<ViewsAdapter.ViewHolder>
             }
             subtitle.setText(sub);
             
-            // Thumbnail
-            Bitmap thumb = view.getThumbnail();
-            if (thumb != null) {
-                thumbnail.setImageBitmap(thumb);
-                thumbnail.setScaleType(ImageView.ScaleType.CENTER_CROP);
+            // Thumbnail, decoded off the UI thread unless already cached
+            String thumbnailFile = view.getThumbnailFile();
+            thumbnail.setTag(thumbnailFile);
+            if (thumbnailFile == null || thumbnailStore == null) {
+                showEmptyThumbnail();
             } else {
-                thumbnail.setImageResource(R.drawable.ic_views_empty);
-                thumbnail.setScaleType(ImageView.ScaleType.CENTER);
+                int size = getThumbnailSize();
+                Bitmap cached = thumbnailStore.getCached(thumbnailFile, size);
+                if (cached != null) {
+                    showThumbnail(cached);
+                } else {
+                    thumbnail.setImageDrawable(null);
+                    thumbnailStore.load(thumbnailFile, size, (fileName, bitmap) -> {
+                        // The card may have been rebound to another view meanwhile
+                        if (!fileName.equals(thumbnail.getTag())) {
+                            return;
+                        }
+                        if (bitmap != null) {
+                            showThumbnail(bitmap);
+                        } else {
+                            showEmptyThumbnail();
+                        }
+                    });
+                }
             }
             
             // Mode badge (2D/3D)
@@ -185,6 +303,25 @@ public class ViewsAdapter extends RecyclerView.Adapter<ViewsAdapter.ViewHolder>
                 }
             });
         }
+        
+        private void showThumbnail(Bitmap bitmap) {
+            thumbnail.setImageBitmap(bitmap);
+            thumbnail.setScaleType(ImageView.ScaleType.CENTER_CROP);
+        }
+        
+        private void showEmptyThumbnail() {
+            thumbnail.setImageResource(R.drawable.ic_views_empty);
+            thumbnail.setScaleType(ImageView.ScaleType.CENTER);
+        }
+        
+        /**
+         * Thumbnail edge in pixels: the card width once laid out, else half the
+         * screen for the two-column grid.
+         */
+        private int getThumbnailSize() {
+            int width = thumbnail.getWidth();
+            return width > 0 ? width : context.getResources().getDisplayMetrics().widthPixels / 2;
+        }
     }
 }
 
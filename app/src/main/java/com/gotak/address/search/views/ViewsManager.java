@@ -1,6 +1,7 @@
 package com.gotak.address.search.views;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.os.Environment;
 
 import com.atakmap.coremap.log.Log;
@@ -26,10 +27,12 @@ public class ViewsManager {
     
     private static final String TAG = "ViewsManager";
     private static final String VIEWS_FILENAME = "saved_views.json";
+    private static final String THUMBNAILS_DIRNAME = "view_thumbnails";
     private static final int MAX_VIEWS = 50; // Maximum number of saved views
     
     private final Context context;
     private final File viewsFile;
+    private final ThumbnailStore thumbnailStore;
     private final List<SavedView> views;
     private final List<ViewsChangeListener> listeners;
     
@@ -52,6 +55,7 @@ public class ViewsManager {
             pluginDir.mkdirs();
         }
         this.viewsFile = new File(pluginDir, VIEWS_FILENAME);
+        this.thumbnailStore = new ThumbnailStore(new File(pluginDir, THUMBNAILS_DIRNAME));
         Log.i(TAG, "Views file location: " + viewsFile.getAbsolutePath());
         
         loadViews();
@@ -124,6 +128,50 @@ public class ViewsManager {
         } catch (JSONException e) {
             Log.e(TAG, "Error parsing views JSON: " + e.getMessage(), e);
         }
+        
+        migrateEmbeddedThumbnails();
+    }
+    
+    /**
+     * Move thumbnails embedded as Base64 in an old views file out to their own files,
+     * then rewrite the views file without them.
+     */
+    private void migrateEmbeddedThumbnails() {
+        int migrated = 0;
+        for (SavedView view : views) {
+            byte[] jpeg = view.takeLegacyThumbnail();
+            if (jpeg == null) {
+                continue;
+            }
+            try {
+                view.setThumbnailFile(thumbnailStore.save(view.getId(), jpeg));
+                migrated++;
+            } catch (IOException e) {
+                Log.e(TAG, "Error moving thumbnail of " + view.getName() + " to a file: " + e.getMessage(), e);
+            }
+        }
+        if (migrated > 0) {
+            saveViews();
+            Log.i(TAG, "Moved " + migrated + " embedded thumbnails to " + THUMBNAILS_DIRNAME);
+        }
+    }
+    
+    /**
+     * Thumbnail files of the saved views, for loading them into cards.
+     */
+    public ThumbnailStore getThumbnailStore() {
+        return thumbnailStore;
+    }
+    
+    /**
+     * Save the thumbnail for a view that has not been added yet. Call off the UI thread.
+     */
+    public void saveThumbnail(SavedView view, Bitmap thumbnail) {
+        try {
+            view.setThumbnailFile(thumbnailStore.save(view.getId(), thumbnail));
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving thumbnail: " + e.getMessage(), e);
+        }
     }
     
     /**
@@ -203,12 +251,13 @@ public class ViewsManager {
     }
     
     /**
-     * Add a new view.
+     * Add a new view. A view that doesn't fit has its thumbnail file deleted.
      * @return true if added, false if at capacity
      */
     public boolean addView(SavedView view) {
         if (!canAddView()) {
             Log.w(TAG, "Cannot add view - at maximum capacity (" + MAX_VIEWS + ")");
+            thumbnailStore.delete(view.getThumbnailFile());
             return false;
         }
         
@@ -243,6 +292,7 @@ public class ViewsManager {
         for (int i = 0; i < views.size(); i++) {
             if (views.get(i).getId().equals(viewId)) {
                 SavedView removed = views.remove(i);
+                thumbnailStore.delete(removed.getThumbnailFile());
                 saveViews();
                 notifyListeners();
                 Log.i(TAG, "Deleted view: " + removed.getName());
@@ -284,6 +334,9 @@ public class ViewsManager {
      * Clear all views (for testing/reset).
      */
     public void clearAll() {
+        for (SavedView view : views) {
+            thumbnailStore.delete(view.getThumbnailFile());
+        }
         views.clear();
         saveViews();
         notifyListeners();
@@ -18,12 +18,9 @@ import com.atakmap.android.widgets.TextWidget;
 import com.atakmap.app.SettingsActivity;
 import com.atakmap.coremap.log.Log;
 import com.atakmap.coremap.maps.coords.GeoPoint;
+import com.gotak.address.sched.PluginScheduler;
 
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Widget that displays the geocoded address for the map center crosshairs.
@@ -56,8 +53,8 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
     private static final int COLOR_RED = 0xFFFF4444;
     private static final int COLOR_YELLOW = 0xFFFFFF00;
     
-    // Refresh rate (1 second like tak-geocoder-plugin)
-    private static final int REFRESH_PERIOD_MS = 1000;
+    // How long the map must be still after a pan/zoom before geocoding the new center
+    private static final long MAP_SETTLE_DELAY_MS = 750;
     
     // Minimum distance (meters) before re-geocoding to avoid excessive API calls
     private static final double MIN_DISTANCE_FOR_GEOCODE = 50.0;
@@ -69,8 +66,8 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
     private LinearLayoutWidget layout;
     private TextWidget addressWidget;
     
-    private ScheduledExecutorService scheduler;
-    private ScheduledFuture<?> geocodingTask;
+    private PluginScheduler.SerialExecutor scheduler;
+    private MapSettleWatcher settleWatcher;
     private Handler mainHandler;
     
     // Photon API fallback geocoder
@@ -92,8 +89,10 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
         this.pluginContext = context;
         this.prefs = PreferenceManager.getDefaultSharedPreferences(MapView.getMapView().getContext());
         this.mainHandler = new Handler(Looper.getMainLooper());
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
-        this.photonGeocoder = new ReverseGeocoder();
+        this.scheduler = PluginScheduler.getInstance().newSerialExecutor(
+                PluginScheduler.Lane.IO, PluginScheduler.Priority.BACKGROUND);
+        this.photonGeocoder = new ReverseGeocoder(context);
+        this.settleWatcher = new MapSettleWatcher(mapView, MAP_SETTLE_DELAY_MS, this::requestGeocoding);
         
         // Register preference listener
         prefs.registerOnSharedPreferenceChangeListener(this);
@@ -113,9 +112,11 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
             layout.addChildWidget(addressWidget);
         }
         
-        // Always start the geocoding task - it will check shouldShowWidget() each cycle
-        // This ensures we detect when crosshairs are enabled/disabled
-        startGeocoding();
+        // Geocode on map movement only while the widget is shown;
+        // the preference listener starts and stops it when crosshairs are toggled
+        if (shouldShowWidget()) {
+            startGeocoding();
+        }
     }
     
     @Override
@@ -129,7 +130,7 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
         }
         
         if (scheduler != null) {
-            scheduler.shutdown();
+            scheduler.clear();
         }
         
         if (photonGeocoder != null) {
@@ -157,7 +158,7 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
             // Single tap - refresh geocoding immediately
             Log.d(TAG, "Single tap - refreshing geocoding");
             lastGeocodedPoint = null;
-            performGeocoding();
+            requestGeocoding();
         }
         
         lastClickTime = currentTime;
@@ -183,9 +184,10 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
             if (shouldShow) {
                 // Force immediate geocode when enabled
                 lastGeocodedPoint = null;
-                performGeocoding();
+                startGeocoding();
             } else {
                 // Immediately hide the widget when disabled
+                stopGeocoding();
                 updateWidgetVisibility(false);
                 currentAddress = "";
                 lastDisplayedText = "";
@@ -208,27 +210,31 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
         return prefs.getBoolean(PREF_MAP_CENTER_PHOTON_FALLBACK, DEFAULT_PHOTON_FALLBACK);
     }
     
+    /**
+     * Geocode the map center whenever the map settles after moving (and once now).
+     */
     private void startGeocoding() {
         Log.d(TAG, "Starting map center geocoding");
-        
-        if (geocodingTask != null) {
-            geocodingTask.cancel(false);
+        if (settleWatcher.isStarted()) {
+            requestGeocoding();
+        } else {
+            settleWatcher.start();
         }
-        
-        geocodingTask = scheduler.scheduleWithFixedDelay(
-                this::performGeocoding,
-                0,
-                REFRESH_PERIOD_MS,
-                TimeUnit.MILLISECONDS
-        );
     }
     
     private void stopGeocoding() {
         Log.d(TAG, "Stopping map center geocoding");
-        
-        if (geocodingTask != null) {
-            geocodingTask.cancel(false);
-            geocodingTask = null;
+        if (settleWatcher != null) {
+            settleWatcher.stop();
+        }
+    }
+    
+    /**
+     * Run a geocode of the current map center off the main thread.
+     */
+    private void requestGeocoding() {
+        if (scheduler != null) {
+            scheduler.execute(this::performGeocoding);
         }
     }
     
@@ -261,8 +267,13 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
         
         Log.d(TAG, "Geocoding map center: " + point.getLatitude() + ", " + point.getLongitude());
         
-        // Try ATAK's GeocodeManager first
-        String formattedAddress = tryAtakGeocoder(point);
+        // Try the downloaded state databases first (instant, no network)
+        String formattedAddress = tryOfflineGeocoder(point);
+        
+        // Try ATAK's GeocodeManager
+        if (formattedAddress == null) {
+            formattedAddress = tryAtakGeocoder(point);
+        }
         
         // Fallback to Photon API if ATAK geocoder fails
         if (formattedAddress == null) {
@@ -279,7 +290,7 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
             }
         }
         
-        // ATAK geocoder succeeded
+        // Offline or ATAK geocoder succeeded
         lastGeocodedPoint = point;
         
         if (!formattedAddress.equals(currentAddress)) {
@@ -289,10 +300,25 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
         }
     }
     
+    /**
+     * Try to geocode from the downloaded state databases (no network).
+     * Returns the formatted address, or null if no offline address is nearby.
+     */
+    private String tryOfflineGeocoder(GeoPoint point) {
+        Address address = OfflineReverseGeocoder.getInstance(pluginContext)
+                .reverseGeocode(point.getLatitude(), point.getLongitude());
+        return address != null ? formatAddressFromAndroid(address) : null;
+    }
+    
     /**
      * Try to geocode using ATAK's built-in GeocodeManager.
      */
     private String tryAtakGeocoder(GeoPoint point) {
+        Address cached = ReverseGeocodeCache.getInstance().getAtakAddress(point);
+        if (cached != null) {
+            return formatAddressFromAndroid(cached);
+        }
+        
         try {
             GeocodeManager geocodeManager = GeocodeManager.getInstance(mapView.getContext());
             GeocodeManager.Geocoder geocoder = geocodeManager.getSelectedGeocoder();
@@ -315,6 +341,7 @@ public class MapCenterWidget extends AbstractWidgetMapComponent
             }
             
             Address address = addresses.get(0);
+            ReverseGeocodeCache.getInstance().putAtakAddress(point, address);
             String formattedAddress = formatAddressFromAndroid(address);
             
             Log.d(TAG, "ATAK geocoding success: " + formattedAddress);
@@ -0,0 +1,78 @@
+package com.gotak.address.selfgeo;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.atakmap.android.maps.MapView;
+import com.atakmap.coremap.log.Log;
+import com.atakmap.map.AtakMapView;
+
+/**
+ * Runs a callback once the map camera has stopped moving.
+ *
+ * Listens for ATAK map-moved events and restarts a settle delay on each one, so a
+ * pan or zoom gesture produces a single callback after it ends. While the map is
+ * still, nothing is scheduled at all - unlike fixed-rate polling of the map center,
+ * which wakes the device every period for the whole shift.
+ */
+public class MapSettleWatcher implements AtakMapView.OnMapMovedListener {
+    private static final String TAG = "MapSettleWatcher";
+
+    private final MapView mapView;
+    private final long settleDelayMs;
+    private final Runnable onSettled;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean started = false;
+
+    /**
+     * @param settleDelayMs How long the map must be still before onSettled runs
+     * @param onSettled Called on the main thread; hand long work to a background thread
+     */
+    public MapSettleWatcher(MapView mapView, long settleDelayMs, Runnable onSettled) {
+        this.mapView = mapView;
+        this.settleDelayMs = settleDelayMs;
+        this.onSettled = onSettled;
+    }
+
+    /**
+     * Start listening. onSettled runs once right away for the current position.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        mapView.addOnMapMovedListener(this);
+        mainHandler.post(onSettled);
+        Log.d(TAG, "Watching map movement");
+    }
+
+    /**
+     * Stop listening and drop any pending callback.
+     */
+    public synchronized void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        mapView.removeOnMapMovedListener(this);
+        mainHandler.removeCallbacks(onSettled);
+        Log.d(TAG, "Stopped watching map movement");
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Called for every camera change, possibly from the render thread.
+     */
+    @Override
+    public void onMapMoved(AtakMapView view, boolean animate) {
+        if (!started) {
+            return;
+        }
+        mainHandler.removeCallbacks(onSettled);
+        mainHandler.postDelayed(onSettled, settleDelayMs);
+    }
+}
@@ -23,12 +23,9 @@ import com.atakmap.android.widgets.TextWidget;
 import com.atakmap.app.SettingsActivity;
 import com.atakmap.coremap.log.Log;
 import com.atakmap.coremap.maps.coords.GeoPoint;
+import com.gotak.address.sched.PluginScheduler;
 
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Widget that displays the geocoded address for the currently selected marker
@@ -37,7 +34,7 @@ import java.util.concurrent.TimeUnit;
  * matches the size of coordinate text shown for markers.
  * 
  * Modes:
- * - When red X (crosshairs) is active: continuously shows address for map center
+ * - When red X (crosshairs) is active: shows address for map center, updated when the map settles
  * - When red X is not active: shows address when a marker is tapped (stays until deselected)
  */
 public class MarkerSelectionWidget extends AbstractWidgetMapComponent 
@@ -68,8 +65,8 @@ public class MarkerSelectionWidget extends AbstractWidgetMapComponent
     private static final int COLOR_RED = 0xFFFF4444;
     private static final int COLOR_YELLOW = 0xFFFFFF00;  // For crosshairs mode
     
-    // Crosshairs mode - continuous geocoding
-    private static final int CROSSHAIRS_REFRESH_PERIOD_MS = 1000;
+    // Crosshairs mode - geocode once the map has been still this long after moving
+    private static final long MAP_SETTLE_DELAY_MS = 750;
     private static final double MIN_DISTANCE_FOR_GEOCODE = 50.0;  // meters
     
     private MapView mapView;
@@ -79,8 +76,8 @@ public class MarkerSelectionWidget extends AbstractWidgetMapComponent
     private LinearLayoutWidget layout;
     private TextWidget addressWidget;
     
-    private ScheduledExecutorService scheduler;
-    private ScheduledFuture<?> crosshairsGeocodingTask;
+    private PluginScheduler.SerialExecutor scheduler;
+    private MapSettleWatcher settleWatcher;
     private Handler mainHandler;
     
     // Photon API fallback geocoder
@@ -106,8 +103,11 @@ public class MarkerSelectionWidget extends AbstractWidgetMapComponent
         this.pluginContext = context;
         this.prefs = PreferenceManager.getDefaultSharedPreferences(MapView.getMapView().getContext());
         this.mainHandler = new Handler(Looper.getMainLooper());
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
-        this.photonGeocoder = new ReverseGeocoder();
+        this.scheduler = PluginScheduler.getInstance().newSerialExecutor(
+                PluginScheduler.Lane.IO, PluginScheduler.Priority.BACKGROUND);
+        this.photonGeocoder = new ReverseGeocoder(context);
+        this.settleWatcher = new MapSettleWatcher(mapView, MAP_SETTLE_DELAY_MS,
+                this::performCrosshairsGeocoding);
         
         // Register preference listener
         prefs.registerOnSharedPreferenceChangeListener(this);
@@ -157,7 +157,7 @@ public class MarkerSelectionWidget extends AbstractWidgetMapComponent
         }
         
         if (scheduler != null) {
-            scheduler.shutdown();
+            scheduler.clear();
         }
         
         if (photonGeocoder != null) {
@@ -335,8 +335,13 @@ public class MarkerSelectionWidget extends AbstractWidgetMapComponent
      */
     private void performGeocoding(final GeoPoint point, final int successColor) {
         scheduler.execute(() -> {
-            // Try ATAK's GeocodeManager first
-            String formattedAddress = tryAtakGeocoder(point);
+            // Try the downloaded state databases first (instant, no network)
+            String formattedAddress = tryOfflineGeocoder(point);
+            
+            // Try ATAK's GeocodeManager
+            if (formattedAddress == null) {
+                formattedAddress = tryAtakGeocoder(point);
+            }
             
             // Fallback to Photon API if ATAK geocoder fails
             if (formattedAddress == null) {
@@ -351,17 +356,32 @@ public class MarkerSelectionWidget extends AbstractWidgetMapComponent
                 }
             }
             
-            // ATAK geocoder succeeded
+            // Offline or ATAK geocoder succeeded
             lastGeocodedPoint = point;
             currentAddress = formattedAddress;
             updateWidget(currentAddress, successColor);
         });
     }
     
+    /**
+     * Try to geocode from the downloaded state databases (no network).
+     * Returns the formatted address, or null if no offline address is nearby.
+     */
+    private String tryOfflineGeocoder(GeoPoint point) {
+        Address address = OfflineReverseGeocoder.getInstance(pluginContext)
+                .reverseGeocode(point.getLatitude(), point.getLongitude());
+        return address != null ? formatAddressFromAndroid(address) : null;
+    }
+    
     /**
      * Try to geocode using ATAK's built-in GeocodeManager.
      */
     private String tryAtakGeocoder(GeoPoint point) {
+        Address cached = ReverseGeocodeCache.getInstance().getAtakAddress(point);
+        if (cached != null) {
+            return formatAddressFromAndroid(cached);
+        }
+        
         try {
             GeocodeManager geocodeManager = GeocodeManager.getInstance(mapView.getContext());
             GeocodeManager.Geocoder geocoder = geocodeManager.getSelectedGeocoder();
@@ -384,6 +404,7 @@ public class MarkerSelectionWidget extends AbstractWidgetMapComponent
             }
             
             Address address = addresses.get(0);
+            ReverseGeocodeCache.getInstance().putAtakAddress(point, address);
             String formattedAddress = formatAddressFromAndroid(address);
             
             Log.d(TAG, "ATAK geocoding success: " + formattedAddress);
@@ -591,37 +612,26 @@ public class MarkerSelectionWidget extends AbstractWidgetMapComponent
     }
     
     /**
-     * Start continuous geocoding for crosshairs position.
+     * Start geocoding the crosshairs position each time the map settles after moving.
      */
     private void startCrosshairsGeocoding() {
         Log.d(TAG, "Starting crosshairs geocoding");
-        
-        if (crosshairsGeocodingTask != null) {
-            crosshairsGeocodingTask.cancel(false);
-        }
-        
-        crosshairsGeocodingTask = scheduler.scheduleWithFixedDelay(
-                this::performCrosshairsGeocoding,
-                0,
-                CROSSHAIRS_REFRESH_PERIOD_MS,
-                TimeUnit.MILLISECONDS
-        );
+        settleWatcher.start();
     }
     
     /**
-     * Stop continuous geocoding for crosshairs.
+     * Stop geocoding for crosshairs.
      */
     private void stopCrosshairsGeocoding() {
         Log.d(TAG, "Stopping crosshairs geocoding");
-        
-        if (crosshairsGeocodingTask != null) {
-            crosshairsGeocodingTask.cancel(false);
-            crosshairsGeocodingTask = null;
+        if (settleWatcher != null) {
+            settleWatcher.stop();
         }
     }
     
     /**
      * Perform geocoding for the current crosshairs (map center) position.
+     * Reads the center on the calling thread; the lookup itself runs on the scheduler.
      */
     private void performCrosshairsGeocoding() {
         if (mapView == null || !isCrosshairsMode) return;
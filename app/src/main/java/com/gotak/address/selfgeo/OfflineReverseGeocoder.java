@@ -0,0 +1,58 @@
+package com.gotak.address.selfgeo;
+
+import android.content.Context;
+import android.location.Address;
+
+import com.atakmap.coremap.log.Log;
+import com.gotak.address.search.OfflineAddressDatabase;
+
+/**
+ * Reverse geocoding from the downloaded state databases, with no network traffic.
+ *
+ * Shared by ReverseGeocoder and the address widgets, which query it before the ATAK
+ * geocoder or Photon, so disconnected users still get instant address labels. It queries
+ * the plugin-wide OfflineAddressDatabase, sharing its connection cache with searches.
+ */
+public class OfflineReverseGeocoder {
+    private static final String TAG = "OfflineReverseGeocoder";
+
+    private static OfflineReverseGeocoder instance;
+
+    private final OfflineAddressDatabase database;
+
+    public static synchronized OfflineReverseGeocoder getInstance(Context context) {
+        if (instance == null) {
+            instance = new OfflineReverseGeocoder(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Drop the shared instance (plugin unload).
+     */
+    public static synchronized void shutdown() {
+        instance = null;
+    }
+
+    private OfflineReverseGeocoder(Context context) {
+        this.database = OfflineAddressDatabase.getInstance(context);
+    }
+
+    /**
+     * Find the nearest address to a point. Blocks briefly on SQLite; call off the main thread.
+     *
+     * @return The address, or null if no downloaded state has one nearby
+     */
+    public Address reverseGeocode(double latitude, double longitude) {
+        try {
+            Address address = database.reverseGeocode(latitude, longitude);
+            if (address != null) {
+                Log.d(TAG, "Offline address found for " + latitude + ", " + longitude);
+            }
+            return address;
+        } catch (Exception e) {
+            Log.w(TAG, "Offline reverse geocoding error: " + e.getMessage());
+            return null;
+        }
+    }
+}
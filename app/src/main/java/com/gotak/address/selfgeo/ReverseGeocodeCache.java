@@ -0,0 +1,77 @@
+package com.gotak.address.selfgeo;
+
+import android.location.Address;
+import android.util.LruCache;
+
+import com.atakmap.coremap.maps.coords.GeoPoint;
+
+import java.util.Locale;
+
+/**
+ * Reverse geocode results shared by every address widget and the saved-views panel.
+ *
+ * Results are keyed by a grid cell of CELL_SIZE_DEGREES (~55m north-south, about one
+ * city block), so any point in a cell reuses the address found for the first point
+ * geocoded there. Panning back and forth over an area therefore geocodes each block
+ * once, whichever widget asked first.
+ *
+ * ATAK geocoder results are kept as Address objects, since each widget formats them
+ * its own way; Photon/Nominatim results are kept as the formatted string ReverseGeocoder
+ * returns. Both are memory-bounded LRU caches. Photon/Nominatim responses are also
+ * persisted across restarts by the HTTP response cache, under the same cell key.
+ */
+public class ReverseGeocodeCache {
+    private static final double CELL_SIZE_DEGREES = 0.0005;
+    private static final int MAX_ENTRIES = 512;
+
+    private static ReverseGeocodeCache instance;
+
+    private final LruCache<String, Address> atakAddresses = new LruCache<>(MAX_ENTRIES);
+    private final LruCache<String, String> onlineAddresses = new LruCache<>(MAX_ENTRIES);
+
+    public static synchronized ReverseGeocodeCache getInstance() {
+        if (instance == null) {
+            instance = new ReverseGeocodeCache();
+        }
+        return instance;
+    }
+
+    private ReverseGeocodeCache() {
+    }
+
+    /**
+     * Key of the grid cell containing a point.
+     */
+    public static String cellKey(double latitude, double longitude) {
+        long row = (long) Math.floor(latitude / CELL_SIZE_DEGREES);
+        long col = (long) Math.floor(longitude / CELL_SIZE_DEGREES);
+        return String.format(Locale.US, "%d:%d", row, col);
+    }
+
+    /**
+     * Cached ATAK geocoder result for the point's cell, or null.
+     */
+    public Address getAtakAddress(GeoPoint point) {
+        return atakAddresses.get(cellKey(point.getLatitude(), point.getLongitude()));
+    }
+
+    public void putAtakAddress(GeoPoint point, Address address) {
+        atakAddresses.put(cellKey(point.getLatitude(), point.getLongitude()), address);
+    }
+
+    /**
+     * Cached Photon/Nominatim address for the point's cell, or null.
+     */
+    public String getOnlineAddress(double latitude, double longitude) {
+        return onlineAddresses.get(cellKey(latitude, longitude));
+    }
+
+    public void putOnlineAddress(double latitude, double longitude, String address) {
+        onlineAddresses.put(cellKey(latitude, longitude), address);
+    }
+
+    public void clear() {
+        atakAddresses.evictAll();
+        onlineAddresses.evictAll();
+    }
+}
@@ -1,22 +1,27 @@
 package com.gotak.address.selfgeo;
 
+import android.content.Context;
+import android.location.Address;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
 import com.atakmap.coremap.log.Log;
+import com.gotak.address.net.HttpEngine;
+import com.gotak.address.net.JsonStreams;
+import com.gotak.address.sched.PluginScheduler;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Performs reverse geocoding (coordinates to address) using the Photon API.
@@ -31,16 +36,19 @@ public class ReverseGeocoder {
     // Nominatim API as fallback
     private static final String NOMINATIM_REVERSE_URL = "https://nominatim.openstreetmap.org/reverse";
     
-    private static final String USER_AGENT = "ATAK-AddressPlugin/1.0";
     private static final int CONNECT_TIMEOUT = 10000;
     private static final int READ_TIMEOUT = 15000;
     
-    private final ExecutorService executor;
+    // Lookups in flight across every ReverseGeocoder, by ReverseGeocodeCache cell
+    private static final Map<String, List<ReverseGeocodeCallback>> IN_FLIGHT = new HashMap<>();
+    
     private final Handler mainHandler;
+    private final OfflineReverseGeocoder offlineGeocoder;
+    private volatile boolean shutdown = false;
     
-    public ReverseGeocoder() {
-        this.executor = Executors.newSingleThreadExecutor();
+    public ReverseGeocoder(Context context) {
         this.mainHandler = new Handler(Looper.getMainLooper());
+        this.offlineGeocoder = OfflineReverseGeocoder.getInstance(context);
     }
     
     /**
@@ -53,38 +61,103 @@ public class ReverseGeocoder {
     
     /**
      * Reverse geocode coordinates to an address string.
+     * Answers from the shared ReverseGeocodeCache when the point's cell was already geocoded,
+     * then from the downloaded state databases, and only then goes online.
+     * Concurrent requests for the same cell, from any ReverseGeocoder, share one lookup.
      */
     public void reverseGeocode(double latitude, double longitude, ReverseGeocodeCallback callback) {
-        executor.execute(() -> {
+        String cached = ReverseGeocodeCache.getInstance().getOnlineAddress(latitude, longitude);
+        if (cached != null) {
+            mainHandler.post(() -> callback.onSuccess(cached));
+            return;
+        }
+        
+        String cellKey = ReverseGeocodeCache.cellKey(latitude, longitude);
+        synchronized (IN_FLIGHT) {
+            List<ReverseGeocodeCallback> waiting = IN_FLIGHT.get(cellKey);
+            if (waiting != null) {
+                Log.d(TAG, "Joining in-flight lookup for cell " + cellKey);
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            IN_FLIGHT.put(cellKey, waiting);
+        }
+        
+        if (shutdown) {
+            complete(cellKey, null, "Reverse geocoder shut down");
+            return;
+        }
+        try {
+            PluginScheduler.getInstance().execute(PluginScheduler.Lane.IO, PluginScheduler.Priority.BACKGROUND,
+                    () -> lookup(latitude, longitude, cellKey));
+        } catch (RejectedExecutionException e) {
+            complete(cellKey, null, "Reverse geocoder busy: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Run one lookup for a cell and deliver it to everyone waiting on the cell.
+     */
+    private void lookup(double latitude, double longitude, String cellKey) {
+        Address offline = offlineGeocoder.reverseGeocode(latitude, longitude);
+        if (offline != null) {
+            complete(cellKey, buildAddressFromOffline(offline), null);
+            return;
+        }
+        
+        ReverseGeocodeCache cache = ReverseGeocodeCache.getInstance();
+        try {
+            // Try Photon first
+            String address = performPhotonReverse(latitude, longitude);
+            
+            if (address == null || address.isEmpty()) {
+                // Fall back to Nominatim
+                Log.d(TAG, "Photon returned no results, trying Nominatim");
+                address = performNominatimReverse(latitude, longitude);
+            }
+            
+            if (address != null && !address.isEmpty()) {
+                cache.putOnlineAddress(latitude, longitude, address);
+                complete(cellKey, address, null);
+            } else {
+                complete(cellKey, null, "No address found");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Reverse geocoding error", e);
+            // Try Nominatim as fallback
             try {
-                // Try Photon first
-                String address = performPhotonReverse(latitude, longitude);
-                
-                if (address == null || address.isEmpty()) {
-                    // Fall back to Nominatim
-                    Log.d(TAG, "Photon returned no results, trying Nominatim");
-                    address = performNominatimReverse(latitude, longitude);
-                }
-                
-                final String finalAddress = address;
-                if (finalAddress != null && !finalAddress.isEmpty()) {
-                    mainHandler.post(() -> callback.onSuccess(finalAddress));
+                String address = performNominatimReverse(latitude, longitude);
+                if (address != null && !address.isEmpty()) {
+                    cache.putOnlineAddress(latitude, longitude, address);
+                    complete(cellKey, address, null);
                 } else {
-                    mainHandler.post(() -> callback.onError("No address found"));
+                    complete(cellKey, null, e.getMessage());
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "Reverse geocoding error", e);
-                // Try Nominatim as fallback
-                try {
-                    String address = performNominatimReverse(latitude, longitude);
-                    if (address != null && !address.isEmpty()) {
-                        final String fallbackAddress = address;
-                        mainHandler.post(() -> callback.onSuccess(fallbackAddress));
-                    } else {
-                        mainHandler.post(() -> callback.onError(e.getMessage()));
-                    }
-                } catch (Exception e2) {
-                    mainHandler.post(() -> callback.onError(e.getMessage()));
+            } catch (Exception e2) {
+                complete(cellKey, null, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Deliver a result (address, or null with an error) to every callback waiting on a cell.
+     */
+    private void complete(String cellKey, String address, String errorMessage) {
+        List<ReverseGeocodeCallback> waiting;
+        synchronized (IN_FLIGHT) {
+            waiting = IN_FLIGHT.remove(cellKey);
+        }
+        if (waiting == null) {
+            return;
+        }
+        mainHandler.post(() -> {
+            for (ReverseGeocodeCallback callback : waiting) {
+                if (address != null) {
+                    callback.onSuccess(address);
+                } else {
+                    callback.onError(errorMessage);
                 }
             }
         });
@@ -93,53 +166,92 @@ public class ReverseGeocoder {
     /**
      * Perform Photon reverse geocoding.
      */
-    private String performPhotonReverse(double latitude, double longitude) throws IOException, JSONException {
+    private String performPhotonReverse(double latitude, double longitude) throws IOException {
         String urlString = String.format(Locale.US, 
                 "%s?lat=%.6f&lon=%.6f&limit=1",
                 PHOTON_REVERSE_URL, latitude, longitude);
         
         Log.d(TAG, "Photon reverse: " + urlString);
         
-        HttpURLConnection connection = null;
-        try {
-            URL url = new URL(urlString);
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", USER_AGENT);
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setConnectTimeout(CONNECT_TIMEOUT);
-            connection.setReadTimeout(READ_TIMEOUT);
-            
-            int responseCode = connection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                throw new IOException("Photon HTTP error: " + responseCode);
-            }
-            
-            StringBuilder response = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-            }
-            
-            // Parse GeoJSON response
-            JSONObject json = new JSONObject(response.toString());
-            JSONArray features = json.getJSONArray("features");
-            
-            if (features.length() == 0) {
-                return null;
-            }
-            
-            JSONObject properties = features.getJSONObject(0).getJSONObject("properties");
-            return buildAddressFromPhoton(properties);
-            
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
+        // Parse GeoJSON response, keeping only the first feature's properties
+        JSONObject properties = HttpEngine.getInstance().newCall(
+                request(urlString, "Photon", latitude, longitude))
+                .executeJson(reader -> {
+                    JSONObject first = null;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (!"features".equals(reader.nextName())) {
+                            reader.skipValue();
+                            continue;
+                        }
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            if (first == null) {
+                                first = readFeatureProperties(reader);
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endArray();
+                    }
+                    reader.endObject();
+                    return first;
+                });
+        
+        if (properties == null) {
+            return null;
+        }
+        return buildAddressFromPhoton(properties);
+    }
+    
+    /**
+     * Read a streamed GeoJSON feature, returning its properties object.
+     */
+    private static JSONObject readFeatureProperties(JsonReader reader) throws IOException {
+        JSONObject properties = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("properties".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                properties = JsonStreams.readObject(reader);
+            } else {
+                reader.skipValue();
             }
         }
+        reader.endObject();
+        return properties != null ? properties : new JSONObject();
+    }
+    
+    /**
+     * Responses are cached on disk per ReverseGeocodeCache cell, like the in-memory results.
+     */
+    private static HttpEngine.Request request(String urlString, String label,
+                                              double latitude, double longitude) {
+        return HttpEngine.Request.get(urlString)
+                .setLabel(label)
+                .setHeader("Accept", "application/json")
+                .setTimeouts(CONNECT_TIMEOUT, READ_TIMEOUT)
+                .setCacheKey("reverse:" + label.toLowerCase(Locale.ROOT) + ":"
+                        + ReverseGeocodeCache.cellKey(latitude, longitude));
+    }
+    
+    /**
+     * Build a formatted address from an offline database place, in the same
+     * format as Photon results.
+     */
+    private String buildAddressFromOffline(Address address) {
+        JSONObject properties = new JSONObject();
+        try {
+            properties.putOpt("name", address.getFeatureName());
+            properties.putOpt("housenumber", address.getSubThoroughfare());
+            properties.putOpt("street", address.getThoroughfare());
+            properties.putOpt("city", address.getLocality());
+            properties.putOpt("state", address.getAdminArea());
+            properties.putOpt("country", address.getCountryName() != null
+                    ? address.getCountryName() : address.getCountryCode());
+        } catch (JSONException e) {
+            Log.w(TAG, "Could not convert offline address: " + e.getMessage());
+        }
+        return buildAddressFromPhoton(properties);
     }
     
     /**
@@ -243,45 +355,18 @@ public class ReverseGeocoder {
     /**
      * Perform Nominatim reverse geocoding as fallback.
      */
-    private String performNominatimReverse(double latitude, double longitude) throws IOException, JSONException {
+    private String performNominatimReverse(double latitude, double longitude) throws IOException {
         String urlString = String.format(Locale.US,
                 "%s?lat=%.6f&lon=%.6f&format=json&addressdetails=1",
                 NOMINATIM_REVERSE_URL, latitude, longitude);
         
         Log.d(TAG, "Nominatim reverse: " + urlString);
         
-        HttpURLConnection connection = null;
-        try {
-            URL url = new URL(urlString);
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", USER_AGENT);
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setConnectTimeout(CONNECT_TIMEOUT);
-            connection.setReadTimeout(READ_TIMEOUT);
-            
-            int responseCode = connection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                throw new IOException("Nominatim HTTP error: " + responseCode);
-            }
-            
-            StringBuilder response = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-            }
-            
-            JSONObject json = new JSONObject(response.toString());
-            return buildAddressFromNominatim(json);
-            
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
+        // A single small object - materialize it for the address builder
+        JSONObject json = HttpEngine.getInstance().newCall(
+                request(urlString, "Nominatim", latitude, longitude))
+                .executeJson(JsonStreams::readObject);
+        return buildAddressFromNominatim(json);
     }
     
     /**
@@ -396,10 +481,10 @@ public class ReverseGeocoder {
     }
     
     /**
-     * Shutdown the executor.
+     * Stop accepting lookups. Lookups already queued on the shared scheduler still complete.
      */
     public void shutdown() {
-        executor.shutdown();
+        shutdown = true;
     }
 }
 
@@ -19,12 +19,9 @@ import com.atakmap.android.widgets.TextWidget;
 import com.atakmap.app.SettingsActivity;
 import com.atakmap.coremap.log.Log;
 import com.atakmap.coremap.maps.coords.GeoPoint;
+import com.gotak.address.sched.PluginScheduler;
 
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Widget that displays the user's current address above their callsign on the map.
@@ -78,8 +75,7 @@ public class SelfLocationWidget extends AbstractWidgetMapComponent
     private LinearLayoutWidget layout;
     private TextWidget addressWidget;
     
-    private ScheduledExecutorService scheduler;
-    private ScheduledFuture<?> geocodingTask;
+    private PluginScheduler.PeriodicTask geocodingTask;
     private Handler mainHandler;
     
     // Photon API fallback geocoder
@@ -109,8 +105,7 @@ public class SelfLocationWidget extends AbstractWidgetMapComponent
         // Use ATAK's context for SharedPreferences to match settings UI
         this.prefs = PreferenceManager.getDefaultSharedPreferences(MapView.getMapView().getContext());
         this.mainHandler = new Handler(Looper.getMainLooper());
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
-        this.photonGeocoder = new ReverseGeocoder();
+        this.photonGeocoder = new ReverseGeocoder(context);
         
         // Register preference listener
         prefs.registerOnSharedPreferenceChangeListener(this);
@@ -168,10 +163,6 @@ public class SelfLocationWidget extends AbstractWidgetMapComponent
             prefs.unregisterOnSharedPreferenceChangeListener(this);
         }
         
-        if (scheduler != null) {
-            scheduler.shutdown();
-        }
-        
         if (photonGeocoder != null) {
             photonGeocoder.shutdown();
         }
@@ -275,14 +266,15 @@ public class SelfLocationWidget extends AbstractWidgetMapComponent
         Log.d(TAG, "Starting geocoding with period: " + getRefreshPeriodSeconds() + "s");
         
         if (geocodingTask != null) {
-            geocodingTask.cancel(false);
+            geocodingTask.cancel();
         }
         
-        geocodingTask = scheduler.scheduleWithFixedDelay(
+        geocodingTask = PluginScheduler.getInstance().scheduleWithFixedDelay(
+                PluginScheduler.Lane.IO,
+                PluginScheduler.Priority.BACKGROUND,
                 this::performGeocoding,
                 0, // Initial delay
-                getRefreshPeriodSeconds(),
-                TimeUnit.SECONDS
+                getRefreshPeriodSeconds() * 1000L
         );
     }
     
@@ -290,7 +282,7 @@ public class SelfLocationWidget extends AbstractWidgetMapComponent
         Log.d(TAG, "Stopping geocoding");
         
         if (geocodingTask != null) {
-            geocodingTask.cancel(false);
+            geocodingTask.cancel();
             geocodingTask = null;
         }
     }
@@ -377,8 +369,13 @@ public class SelfLocationWidget extends AbstractWidgetMapComponent
         
         Log.d(TAG, "Geocoding location: " + point.getLatitude() + ", " + point.getLongitude());
         
-        // Try ATAK's GeocodeManager first (better accuracy with house numbers)
-        String formattedAddress = tryAtakGeocoder(point);
+        // Try the downloaded state databases first (instant, no network)
+        String formattedAddress = tryOfflineGeocoder(point);
+        
+        // Try ATAK's GeocodeManager (better accuracy with house numbers)
+        if (formattedAddress == null) {
+            formattedAddress = tryAtakGeocoder(point);
+        }
         
         // Fallback to Photon API if ATAK geocoder fails (only if enabled for privacy)
         if (formattedAddress == null) {
@@ -396,7 +393,7 @@ public class SelfLocationWidget extends AbstractWidgetMapComponent
             }
         }
         
-        // ATAK geocoder succeeded
+        // Offline or ATAK geocoder succeeded
         lastGeocodedPoint = point;
         
         if (!formattedAddress.equals(currentAddress)) {
@@ -410,11 +407,26 @@ public class SelfLocationWidget extends AbstractWidgetMapComponent
         }
     }
     
+    /**
+     * Try to geocode from the downloaded state databases (no network).
+     * Returns the formatted address, or null if no offline address is nearby.
+     */
+    private String tryOfflineGeocoder(GeoPoint point) {
+        Address address = OfflineReverseGeocoder.getInstance(pluginContext)
+                .reverseGeocode(point.getLatitude(), point.getLongitude());
+        return address != null ? formatAddressFromAndroid(address) : null;
+    }
+    
     /**
      * Try to geocode using ATAK's built-in GeocodeManager.
      * Returns the formatted address, or null if geocoding failed.
      */
     private String tryAtakGeocoder(GeoPoint point) {
+        Address cached = ReverseGeocodeCache.getInstance().getAtakAddress(point);
+        if (cached != null) {
+            return formatAddressFromAndroid(cached);
+        }
+        
         try {
             GeocodeManager geocodeManager = GeocodeManager.getInstance(mapView.getContext());
             GeocodeManager.Geocoder geocoder = geocodeManager.getSelectedGeocoder();
@@ -438,6 +450,7 @@ public class SelfLocationWidget extends AbstractWidgetMapComponent
             }
             
             Address address = addresses.get(0);
+            ReverseGeocodeCache.getInstance().putAtakAddress(point, address);
             String formattedAddress = formatAddressFromAndroid(address);
             
             Log.d(TAG, "ATAK geocoding success: " + formattedAddress);
@@ -0,0 +1,91 @@
+package com.gotak.address.net;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class HostRateLimiterTest {
+
+    private static final String HOST = "nominatim.openstreetmap.org";
+    private static final long INTERVAL = 1000;
+
+    private HostRateLimiter limiter;
+
+    @Before
+    public void setUp() {
+        limiter = new HostRateLimiter();
+        limiter.setMinInterval(HOST, INTERVAL);
+    }
+
+    @Test
+    public void unlimitedHostGetsNoSlot() {
+        assertNull(limiter.reserve("photon.komoot.io", 0));
+    }
+
+    @Test
+    public void slotsAreSpacedByInterval() {
+        assertEquals(0, limiter.reserve(HOST, 0).getStartMs());
+        assertEquals(1000, limiter.reserve(HOST, 10).getStartMs());
+        assertEquals(2000, limiter.reserve(HOST, 20).getStartMs());
+    }
+
+    @Test
+    public void idleHostStartsAtOnce() {
+        limiter.reserve(HOST, 0);
+        assertEquals(5000, limiter.reserve(HOST, 5000).getStartMs());
+    }
+
+    @Test
+    public void waitIsTimeUntilSlot() {
+        HostRateLimiter.Slot slot = limiter.reserve(HOST, 0);
+        slot = limiter.reserve(HOST, 0);
+        assertEquals(1000, slot.getWaitMs(0));
+        assertEquals(250, slot.getWaitMs(750));
+        assertEquals(0, slot.getWaitMs(1500));
+    }
+
+    @Test
+    public void releasedTailSlotRollsScheduleBack() {
+        limiter.reserve(HOST, 0);
+        HostRateLimiter.Slot second = limiter.reserve(HOST, 0);
+        limiter.release(second);
+
+        assertEquals(1000, limiter.reserve(HOST, 100).getStartMs());
+        assertEquals(2000, limiter.reserve(HOST, 100).getStartMs());
+    }
+
+    @Test
+    public void releasedMiddleSlotGoesToNextCaller() {
+        limiter.reserve(HOST, 0);
+        HostRateLimiter.Slot second = limiter.reserve(HOST, 0);
+        limiter.reserve(HOST, 0);
+        limiter.release(second);
+
+        assertEquals(1000, limiter.reserve(HOST, 100).getStartMs());
+        assertEquals(3000, limiter.reserve(HOST, 100).getStartMs());
+    }
+
+    @Test
+    public void releasedSlotsCollapseFromTheTail() {
+        limiter.reserve(HOST, 0);
+        HostRateLimiter.Slot second = limiter.reserve(HOST, 0);
+        HostRateLimiter.Slot third = limiter.reserve(HOST, 0);
+        limiter.release(second);
+        limiter.release(third);
+
+        assertEquals(1000, limiter.reserve(HOST, 100).getStartMs());
+        assertEquals(2000, limiter.reserve(HOST, 100).getStartMs());
+        assertEquals(3000, limiter.reserve(HOST, 100).getStartMs());
+    }
+
+    @Test
+    public void passedReleasedSlotIsNotReused() {
+        limiter.reserve(HOST, 0);
+        HostRateLimiter.Slot second = limiter.reserve(HOST, 0);
+        limiter.reserve(HOST, 0);
+        limiter.release(second);
+
+        assertEquals(3000, limiter.reserve(HOST, 1500).getStartMs());
+    }
+}
@@ -0,0 +1,54 @@
+package com.gotak.address.search;
+
+import static org.junit.Assert.*;
+
+import com.gotak.address.search.nearby.OverpassSearchResult;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class DistanceMergeTest {
+
+    @Test
+    public void mergesNearestFirstUpToLimit() {
+        List<List<OverpassSearchResult>> lists = Arrays.asList(
+                pois(10, 30, 50), pois(20, 40), pois());
+
+        assertEquals(Arrays.asList(10.0, 20.0, 30.0, 40.0),
+                distances(DistanceMerge.merge(lists, 4)));
+    }
+
+    @Test
+    public void takesEverythingWhenUnderLimit() {
+        List<List<OverpassSearchResult>> lists = Arrays.asList(pois(5, 15), pois(1, 25));
+
+        assertEquals(Arrays.asList(1.0, 5.0, 15.0, 25.0),
+                distances(DistanceMerge.merge(lists, 100)));
+    }
+
+    @Test
+    public void noListsGiveNoResults() {
+        assertTrue(DistanceMerge.merge(Collections.emptyList(), 10).isEmpty());
+    }
+
+    private static List<OverpassSearchResult> pois(double... distances) {
+        List<OverpassSearchResult> pois = new ArrayList<>();
+        for (double distance : distances) {
+            pois.add(new OverpassSearchResult((long) distance, "node", "POI " + distance,
+                    0, 0, distance, null, null, null));
+        }
+        return pois;
+    }
+
+    private static List<Double> distances(List<OverpassSearchResult> pois) {
+        List<Double> distances = new ArrayList<>();
+        for (OverpassSearchResult poi : pois) {
+            distances.add(poi.getDistanceMeters());
+        }
+        return distances;
+    }
+}
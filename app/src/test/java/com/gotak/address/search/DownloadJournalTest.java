@@ -0,0 +1,93 @@
+package com.gotak.address.search;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+public class DownloadJournalTest {
+
+    private static final String URL = "https://example.com/virginia.db";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void createSplitsFileIntoContiguousSegments() {
+        DownloadJournal journal = DownloadJournal.create(URL, 10, "\"etag\"", 3);
+
+        List<DownloadJournal.Segment> segments = journal.getSegments();
+        assertEquals(3, segments.size());
+        assertSegment(segments.get(0), 0, 3);
+        assertSegment(segments.get(1), 4, 7);
+        assertSegment(segments.get(2), 8, 9);
+        assertEquals(0, journal.getDownloadedBytes());
+        assertFalse(journal.isComplete());
+    }
+
+    @Test
+    public void createNeverMakesMoreSegmentsThanBytes() {
+        DownloadJournal journal = DownloadJournal.create(URL, 2, null, 5);
+
+        List<DownloadJournal.Segment> segments = journal.getSegments();
+        assertEquals(2, segments.size());
+        assertSegment(segments.get(0), 0, 0);
+        assertSegment(segments.get(1), 1, 1);
+    }
+
+    @Test
+    public void saveAndLoadRoundTripProgress() throws Exception {
+        DownloadJournal journal = DownloadJournal.create(URL, 10, "\"etag\"", 2);
+        journal.getSegments().get(0).addWritten(5);
+        journal.getSegments().get(1).addWritten(2);
+
+        File file = new File(folder.getRoot(), "virginia.db.part.json");
+        journal.save(file);
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        DownloadJournal loaded = DownloadJournal.load(file);
+        assertNotNull(loaded);
+        assertEquals(URL, loaded.getUrl());
+        assertEquals(10, loaded.getTotalBytes());
+        assertEquals("\"etag\"", loaded.getValidator());
+        assertEquals(7, loaded.getDownloadedBytes());
+
+        List<DownloadJournal.Segment> segments = loaded.getSegments();
+        assertEquals(2, segments.size());
+        assertSegment(segments.get(0), 0, 4);
+        assertSegment(segments.get(1), 5, 9);
+        assertTrue(segments.get(0).isComplete());
+        assertEquals(7, segments.get(1).nextOffset());
+        assertFalse(loaded.isComplete());
+    }
+
+    @Test
+    public void saveReplacesPreviousCopy() throws Exception {
+        File file = new File(folder.getRoot(), "virginia.db.part.json");
+        DownloadJournal journal = DownloadJournal.create(URL, 4, null, 1);
+        journal.save(file);
+
+        journal.getSegments().get(0).addWritten(4);
+        journal.save(file);
+
+        DownloadJournal loaded = DownloadJournal.load(file);
+        assertNotNull(loaded);
+        assertNull(loaded.getValidator());
+        assertTrue(loaded.isComplete());
+        assertEquals(4, loaded.getDownloadedBytes());
+    }
+
+    @Test
+    public void loadMissingJournalReturnsNull() {
+        assertNull(DownloadJournal.load(new File(folder.getRoot(), "missing.json")));
+    }
+
+    private static void assertSegment(DownloadJournal.Segment segment, long start, long end) {
+        assertEquals(start, segment.start);
+        assertEquals(end, segment.end);
+    }
+}
@@ -0,0 +1,99 @@
+package com.gotak.address.search;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PrefixRefinementCacheTest {
+
+    private static final List<String> STATES = Arrays.asList("virginia", "maryland");
+
+    @Test
+    public void longerLastPrefixIsRefinement() {
+        assertTrue(PrefixRefinementCache.isRefinement("lynnh*", "lynnha*"));
+        assertTrue(PrefixRefinementCache.isRefinement("main lynnh*", "main lynnhav*"));
+    }
+
+    @Test
+    public void sameOrShorterPrefixIsNotRefinement() {
+        assertFalse(PrefixRefinementCache.isRefinement("lynnh*", "lynnh*"));
+        assertFalse(PrefixRefinementCache.isRefinement("lynnha*", "lynnh*"));
+        assertFalse(PrefixRefinementCache.isRefinement("lynnh*", "lynx*"));
+    }
+
+    @Test
+    public void changedEarlierTermIsNotRefinement() {
+        assertFalse(PrefixRefinementCache.isRefinement("main lynn*", "maine lynnh*"));
+        assertFalse(PrefixRefinementCache.isRefinement("lynn*", "main lynnh*"));
+    }
+
+    @Test
+    public void nonPrefixTermsAreNotRefinements() {
+        assertFalse(PrefixRefinementCache.isRefinement("lynn", "lynnh*"));
+        assertFalse(PrefixRefinementCache.isRefinement("lynn*", "lynnh"));
+        // Terms the tokenizer would split can't be matched in memory
+        assertFalse(PrefixRefinementCache.isRefinement("st-lo*", "st-lou*"));
+    }
+
+    @Test
+    public void refinementIgnoresCaseAndDiacritics() {
+        assertTrue(PrefixRefinementCache.isRefinement("caf*", "café*"));
+        assertTrue(PrefixRefinementCache.isRefinement("Lynn*", "lynnh*"));
+    }
+
+    @Test
+    public void matchesRequiresEveryTerm() {
+        String text = "123 Main Street, Lynnhaven, VA 23452";
+        assertTrue(PrefixRefinementCache.matches(text, new String[]{"main", "lynn*"}));
+        assertTrue(PrefixRefinementCache.matches(text, new String[]{"234*"}));
+        assertFalse(PrefixRefinementCache.matches(text, new String[]{"main", "lynx*"}));
+        // Exact terms must match a whole token
+        assertFalse(PrefixRefinementCache.matches(text, new String[]{"mai"}));
+    }
+
+    @Test
+    public void matchesFoldsCaseAndDiacritics() {
+        assertTrue(PrefixRefinementCache.matches("Café du Monde", new String[]{"cafe", "mon*"}));
+        assertTrue(PrefixRefinementCache.matches("CAFE DU MONDE", new String[]{"café"}));
+    }
+
+    @Test
+    public void refineFiltersStoredCompleteResults() {
+        PrefixRefinementCache cache = new PrefixRefinementCache();
+        NominatimSearchResult lynnhaven = result(1, "Lynnhaven");
+        NominatimSearchResult lynnwood = result(2, "Lynnwood");
+        cache.store("lynn*", STATES, Arrays.asList(lynnhaven, lynnwood),
+                Arrays.asList("Lynnhaven Parkway", "Lynnwood Drive"), false);
+
+        List<NominatimSearchResult> refined = cache.refine("lynnh*", STATES);
+        assertEquals(Collections.singletonList(lynnhaven), refined);
+
+        // The filtered set can be refined again
+        assertEquals(Collections.singletonList(lynnhaven), cache.refine("lynnha*", STATES));
+    }
+
+    @Test
+    public void refineFallsThroughWhenResultsIncompleteOrStatesChanged() {
+        PrefixRefinementCache cache = new PrefixRefinementCache();
+        List<NominatimSearchResult> results = Collections.singletonList(result(1, "Lynnhaven"));
+        List<String> texts = Collections.singletonList("Lynnhaven Parkway");
+
+        cache.store("lynn*", STATES, results, texts, true);
+        assertNull(cache.refine("lynnh*", STATES));
+
+        cache.store("lynn*", STATES, results, texts, false);
+        assertNull(cache.refine("lynnh*", Collections.singletonList("virginia")));
+        assertNull(cache.refine("main*", STATES));
+
+        cache.clear();
+        assertNull(cache.refine("lynnh*", STATES));
+    }
+
+    private static NominatimSearchResult result(long id, String name) {
+        return new NominatimSearchResult(id, 0, 0, name, name, "road", "way", id);
+    }
+}
@@ -0,0 +1,66 @@
+package com.gotak.address.search;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class StableIdsTest {
+
+    private final StableIds<String> ids = new StableIds<>(item -> item);
+
+    @Test
+    public void keyKeepsItsIdAcrossLists() {
+        List<String> first = Arrays.asList("a", "b");
+        long a = ids.getId(first, 0);
+        long b = ids.getId(first, 1);
+        assertNotEquals(a, b);
+
+        List<String> second = Arrays.asList("b", "c", "a");
+        assertEquals(b, ids.getId(second, 0));
+        assertEquals(a, ids.getId(second, 2));
+        long c = ids.getId(second, 1);
+        assertNotEquals(a, c);
+        assertNotEquals(b, c);
+    }
+
+    @Test
+    public void removedKeyGetsNewIdWhenItReturns() {
+        List<String> first = Arrays.asList("a", "b");
+        long b = ids.getId(first, 1);
+
+        ids.getId(Arrays.asList("a"), 0);
+        assertNotEquals(b, ids.getId(Arrays.asList("a", "b"), 1));
+    }
+
+    @Test
+    public void duplicateKeysGetSeparateIds() {
+        List<String> list = Arrays.asList("a", "a", "b");
+        long first = ids.getId(list, 0);
+        long second = ids.getId(list, 1);
+        assertNotEquals(first, second);
+
+        // Each occurrence keeps its own ID in the next list
+        List<String> next = Arrays.asList("b", "a", "a");
+        assertEquals(first, ids.getId(next, 1));
+        assertEquals(second, ids.getId(next, 2));
+    }
+
+    @Test
+    public void invalidateReassignsListChangedInPlace() {
+        List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        long a = ids.getId(list, 0);
+        long b = ids.getId(list, 1);
+
+        list.add(0, "c");
+        ids.invalidate();
+        assertEquals(a, ids.getId(list, 1));
+        assertEquals(b, ids.getId(list, 2));
+        long c = ids.getId(list, 0);
+        assertNotEquals(a, c);
+        assertNotEquals(b, c);
+    }
+}
@@ -0,0 +1,79 @@
+package com.gotak.address.search;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TopResultsTest {
+
+    @Test
+    public void mergesStatesBestFirst() {
+        TopResults top = new TopResults(5);
+        assertTrue(top.addAll(rows(1, 4)));
+        assertTrue(top.addAll(rows(2, 3)));
+
+        assertEquals(Arrays.asList("1.0", "2.0", "3.0", "4.0"), names(top.toList()));
+        assertEquals(Arrays.asList("text 1.0", "text 2.0", "text 3.0", "text 4.0"), top.searchTexts());
+        assertFalse(top.isTruncated());
+    }
+
+    @Test
+    public void keepsOnlyBestRowsAndMarksTruncated() {
+        TopResults top = new TopResults(3);
+        top.addAll(rows(2, 5));
+        top.addAll(rows(1, 3, 6));
+
+        assertEquals(Arrays.asList("1.0", "2.0", "3.0"), names(top.toList()));
+        assertTrue(top.isTruncated());
+    }
+
+    @Test
+    public void worseRowsAreNotKept() {
+        TopResults top = new TopResults(2);
+        top.addAll(rows(1));
+        top.addAll(rows(2));
+
+        assertFalse(top.addAll(rows(3)));
+        assertEquals(Arrays.asList("1.0", "2.0"), names(top.toList()));
+        assertTrue(top.isTruncated());
+    }
+
+    @Test
+    public void stateAtLimitMarksTruncated() {
+        TopResults top = new TopResults(2);
+        top.addAll(rows(1, 2));
+        assertTrue(top.isTruncated());
+    }
+
+    @Test
+    public void markTruncated() {
+        TopResults top = new TopResults(5);
+        top.addAll(rows(1));
+        assertFalse(top.isTruncated());
+        top.markTruncated();
+        assertTrue(top.isTruncated());
+    }
+
+    private static List<ScoredResult> rows(double... scores) {
+        List<ScoredResult> rows = new ArrayList<>();
+        for (double score : scores) {
+            String name = String.valueOf(score);
+            NominatimSearchResult result = new NominatimSearchResult(
+                    (long) (score * 10), 0, 0, name, name, "road", "way", (long) (score * 10));
+            rows.add(new ScoredResult(result, score, "text " + name));
+        }
+        return rows;
+    }
+
+    private static List<String> names(List<NominatimSearchResult> results) {
+        List<String> names = new ArrayList<>();
+        for (NominatimSearchResult result : results) {
+            names.add(result.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,29 @@
+package com.gotak.address.selfgeo;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ReverseGeocodeCacheTest {
+
+    @Test
+    public void pointsInOneCellShareKey() {
+        assertEquals("0:0", ReverseGeocodeCache.cellKey(0.0001, 0.0001));
+        assertEquals(ReverseGeocodeCache.cellKey(36.85011, -76.28561),
+                ReverseGeocodeCache.cellKey(36.85019, -76.28559));
+    }
+
+    @Test
+    public void cellBoundarySplitsKeys() {
+        assertEquals("0:0", ReverseGeocodeCache.cellKey(0.0004, 0.0004));
+        assertEquals("1:1", ReverseGeocodeCache.cellKey(0.0006, 0.0006));
+    }
+
+    @Test
+    public void negativeCoordinatesRoundDown() {
+        // Floor, not truncation, so the cells either side of 0 stay distinct
+        assertEquals("-1:-1", ReverseGeocodeCache.cellKey(-0.0001, -0.0001));
+        assertNotEquals(ReverseGeocodeCache.cellKey(-0.0001, 0.0001),
+                ReverseGeocodeCache.cellKey(0.0001, 0.0001));
+    }
+}
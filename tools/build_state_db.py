@@ -634,6 +634,19 @@ def create_database(places, pois, output_path, region_name):
     cursor.execute('CREATE INDEX idx_places_type ON places(type)')
     cursor.execute('CREATE INDEX idx_places_city ON places(city)')
     
+    # R*Tree over places for offline reverse geocoding (nearest address)
+    cursor.execute('''
+        CREATE VIRTUAL TABLE places_rtree USING rtree(
+            id,
+            min_lat, max_lat,
+            min_lon, max_lon
+        )
+    ''')
+    cursor.execute('''
+        INSERT INTO places_rtree (id, min_lat, max_lat, min_lon, max_lon)
+        SELECT id, lat, lat, lon, lon FROM places
+    ''')
+    
     # POI table
     cursor.execute('''
         CREATE TABLE pois (
@@ -695,7 +708,15 @@ def create_database(places, pois, output_path, region_name):
     cursor.execute('INSERT INTO metadata VALUES (?, ?)',
                    ('region', region_name))
     cursor.execute('INSERT INTO metadata VALUES (?, ?)',
-                   ('schema_version', '2'))
+                   ('schema_version', '3'))
+    
+    # Bounding box, used by the plugin to route spatial queries to relevant states
+    lats = [p['lat'] for p in places] + [p['lat'] for p in pois]
+    lons = [p['lon'] for p in places] + [p['lon'] for p in pois]
+    if lats and lons:
+        for key, value in (('min_lat', min(lats)), ('max_lat', max(lats)),
+                           ('min_lon', min(lons)), ('max_lon', max(lons))):
+            cursor.execute('INSERT INTO metadata VALUES (?, ?)', (key, str(value)))
     
     conn.commit()
     cursor.execute('VACUUM')
@@ -755,7 +776,7 @@ def build_manifest(output_dir):
     
     manifest = {
         "version": "2.0",
-        "schema_version": 2,
+        "schema_version": 3,
         "poi_categories": list(POI_CATEGORIES.keys()),
         "regions": []
     }